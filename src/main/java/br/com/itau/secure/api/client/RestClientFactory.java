@@ -5,11 +5,14 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
 import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestClient;
 
+import java.net.http.HttpClient;
 import java.time.Duration;
+import java.util.concurrent.Executors;
 
 @Component
 @RequiredArgsConstructor
@@ -18,6 +21,8 @@ public class RestClientFactory {
     private final RestClient.Builder builder;
     @Value("${api.url.fraud}")
     private String urlFraudApi;
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreadsEnabled;
 
     public RestClient riskRestClient() {
         return builder.baseUrl(urlFraudApi)
@@ -29,6 +34,17 @@ public class RestClientFactory {
     }
 
     private ClientHttpRequestFactory generateClientHttpRequestFactory() {
+        if (virtualThreadsEnabled) {
+            // o HttpClient do JDK não prende a thread virtual à carrier enquanto espera a resposta
+            HttpClient httpClient = HttpClient.newBuilder()
+                    .connectTimeout(Duration.ofSeconds(3))
+                    .executor(Executors.newVirtualThreadPerTaskExecutor())
+                    .build();
+            JdkClientHttpRequestFactory factory = new JdkClientHttpRequestFactory(httpClient);
+            factory.setReadTimeout(Duration.ofSeconds(5));
+            return factory;
+        }
+
         SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory();
 
         factory.setReadTimeout(Duration.ofSeconds(5));
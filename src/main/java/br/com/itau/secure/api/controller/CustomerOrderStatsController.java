@@ -0,0 +1,25 @@
+package br.com.itau.secure.api.controller;
+
+import br.com.itau.secure.api.model.CustomerOrderStatsResponse;
+import br.com.itau.secure.domain.service.CustomerOrderStatsService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/customers")
+public class CustomerOrderStatsController {
+
+    private final CustomerOrderStatsService customerOrderStatsService;
+
+    public CustomerOrderStatsController(CustomerOrderStatsService customerOrderStatsService) {
+        this.customerOrderStatsService = customerOrderStatsService;
+    }
+
+    @GetMapping("/{customerId}/order-stats")
+    public ResponseEntity<CustomerOrderStatsResponse> getOrderStats(@PathVariable String customerId) {
+        return ResponseEntity.ok(CustomerOrderStatsResponse.fromStats(customerOrderStatsService.findByCustomerId(customerId)));
+    }
+}
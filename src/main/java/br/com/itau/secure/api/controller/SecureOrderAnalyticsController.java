@@ -0,0 +1,31 @@
+package br.com.itau.secure.api.controller;
+
+import br.com.itau.secure.api.model.ApprovalFunnelResponse;
+import br.com.itau.secure.domain.model.FunnelDimension;
+import br.com.itau.secure.domain.service.SecureOrderAnalyticsService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Instant;
+
+@RestController
+@RequestMapping("/analytics")
+public class SecureOrderAnalyticsController {
+
+    private final SecureOrderAnalyticsService secureOrderAnalyticsService;
+
+    public SecureOrderAnalyticsController(SecureOrderAnalyticsService secureOrderAnalyticsService) {
+        this.secureOrderAnalyticsService = secureOrderAnalyticsService;
+    }
+
+    @GetMapping("/approval-funnel")
+    public ResponseEntity<ApprovalFunnelResponse> getApprovalFunnel(@RequestParam(required = false) Instant from,
+                                                                    @RequestParam(required = false) Instant to,
+                                                                    @RequestParam(defaultValue = "category") String groupBy,
+                                                                    @RequestParam(required = false) String category) {
+        return ResponseEntity.ok(secureOrderAnalyticsService.approvalFunnel(from, to, FunnelDimension.fromString(groupBy), category));
+    }
+}
@@ -1,47 +1,151 @@
 package br.com.itau.secure.api.controller;
 
 
+import br.com.itau.secure.api.exception.BatchSizeExceededException;
 import br.com.itau.secure.api.mapper.SecureOrderMapper;
+import br.com.itau.secure.api.model.CursorPage;
+import br.com.itau.secure.api.model.SecureOrderBatchItemResponse;
 import br.com.itau.secure.api.model.SecureOrderInput;
 import br.com.itau.secure.api.model.SecureOrderResponse;
+import br.com.itau.secure.api.model.SecureOrderSummaryResponse;
 import br.com.itau.secure.domain.model.SecureOrder;
+import br.com.itau.secure.domain.model.SecureOrderVersion;
+import br.com.itau.secure.domain.service.SecureOrderEventBroadcaster;
+import br.com.itau.secure.domain.service.SecureOrderIngestionPipeline;
 import br.com.itau.secure.domain.service.SecureOrderService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.net.URI;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 
 @RestController
 @RequestMapping("/secure-orders")
 public class SecureOrderController {
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
 
     private final SecureOrderService secureOrderService;
+    private final ObjectMapper objectMapper;
+    private final ObjectProvider<SecureOrderIngestionPipeline> ingestionPipeline;
+    private final SecureOrderEventBroadcaster secureOrderEventBroadcaster;
+    @Value("${secure-order.batch.max-size:500}")
+    private int maxBatchSize;
 
-    public SecureOrderController(SecureOrderService secureOrderService) {
+    public SecureOrderController(SecureOrderService secureOrderService, ObjectMapper objectMapper,
+                                 ObjectProvider<SecureOrderIngestionPipeline> ingestionPipeline,
+                                 SecureOrderEventBroadcaster secureOrderEventBroadcaster) {
         this.secureOrderService = secureOrderService;
+        this.objectMapper = objectMapper;
+        this.ingestionPipeline = ingestionPipeline;
+        this.secureOrderEventBroadcaster = secureOrderEventBroadcaster;
     }
 
     @PostMapping
-    @ResponseStatus(HttpStatus.CREATED)
-    public SecureOrderResponse createOrder(@RequestBody SecureOrderInput input) {
-        return SecureOrderResponse.fromEntity(secureOrderService.createUpdateSecureOrder(SecureOrderMapper.toEntity(input)));
+    public ResponseEntity<SecureOrderResponse> createOrder(@RequestBody SecureOrderInput input,
+                                                           @RequestHeader(name = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        SecureOrder secureOrder = SecureOrderMapper.toEntity(input);
+
+        // com a ingestão assíncrona ativa o pedido só é aceito aqui; gravação e publicação ficam com o pipeline
+        SecureOrderIngestionPipeline pipeline = ingestionPipeline.getIfAvailable();
+        if (pipeline != null) {
+            String acceptedOrderId = pipeline.submit(secureOrder, idempotencyKey);
+            URI location = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .path("/{id}")
+                    .buildAndExpand(acceptedOrderId)
+                    .toUri();
+            // numa retentativa o pedido original pode ainda não estar gravado: o cliente segue o Location
+            SecureOrderResponse body = acceptedOrderId.equals(secureOrder.getId()) ? SecureOrderResponse.fromEntity(secureOrder) : null;
+            return ResponseEntity.accepted().location(location).body(body);
+        }
+
+        SecureOrder createdOrder = secureOrderService.createSecureOrder(secureOrder, idempotencyKey);
+        return ResponseEntity.status(HttpStatus.CREATED).body(SecureOrderResponse.fromEntity(createdOrder));
+    }
+
+    @PostMapping("/batch")
+    public ResponseEntity<List<SecureOrderBatchItemResponse>> createOrders(@RequestBody List<SecureOrderInput> inputs) {
+        if (inputs.size() > maxBatchSize) {
+            throw new BatchSizeExceededException(inputs.size(), maxBatchSize);
+        }
+
+        List<SecureOrder> secureOrders = inputs.stream().map(SecureOrderMapper::toEntity).toList();
+        return ResponseEntity.status(HttpStatus.MULTI_STATUS).body(secureOrderService.createSecureOrders(secureOrders));
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<SecureOrderResponse> getOrderById(@PathVariable String id) {
+    public ResponseEntity<SecureOrderResponse> getOrderById(@PathVariable String id,
+                                                            @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                                            WebRequest webRequest) {
+        // polling: compara o ETag com uma projeção leve antes de carregar o documento completo
+        if (ifNoneMatch != null) {
+            String currentETag = secureOrderService.findVersionById(id).toETag();
+            if (webRequest.checkNotModified(currentETag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(currentETag).build();
+            }
+        }
+
         SecureOrder order = secureOrderService.findById(id);
-        return ResponseEntity.ok(SecureOrderResponse.fromEntity(order));
+        return ResponseEntity.ok()
+                .eTag(SecureOrderVersion.of(order).toETag())
+                .body(SecureOrderResponse.fromEntity(order));
+    }
+
+    @GetMapping(path = "/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamOrderEvents(@PathVariable String id) {
+        return secureOrderEventBroadcaster.subscribe(id, () -> secureOrderService.findByIdUncached(id));
     }
 
     @GetMapping
     public ResponseEntity<List<SecureOrderResponse>> findOrders(
+            @RequestParam(name = "customerId", required = true) String customerId,
+            @RequestParam(name = "after", required = false) String after,
+            @RequestParam(name = "limit", defaultValue = "50") int limit) {
+
+        CursorPage<SecureOrderResponse> page = secureOrderService.findByCustomerId(customerId, after, limit);
+        return pageResponse(page);
+    }
+
+    @GetMapping(params = "view=summary")
+    public ResponseEntity<List<SecureOrderSummaryResponse>> findOrderSummaries(
+            @RequestParam(name = "customerId", required = true) String customerId,
+            @RequestParam(name = "after", required = false) String after,
+            @RequestParam(name = "limit", defaultValue = "50") int limit) {
+
+        CursorPage<SecureOrderSummaryResponse> page = secureOrderService.findSummariesByCustomerId(customerId, after, limit);
+        return pageResponse(page);
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamOrders(
             @RequestParam(name = "customerId", required = true) String customerId) {
 
-        List<SecureOrderResponse> orders = secureOrderService.findByCustomerId(customerId);
-        return ResponseEntity.ok(orders);
+        StreamingResponseBody body = outputStream -> {
+            try (Stream<SecureOrderResponse> orders = secureOrderService.streamByCustomerId(customerId)) {
+                Iterator<SecureOrderResponse> iterator = orders.iterator();
+                while (iterator.hasNext()) {
+                    outputStream.write(objectMapper.writeValueAsBytes(iterator.next()));
+                    outputStream.write('\n');
+                }
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
     }
 
     @PatchMapping("/{id}/cancel")
@@ -51,4 +155,12 @@ public class SecureOrderController {
         return ResponseEntity.ok(SecureOrderResponse.fromEntity(cancelledOrder));
     }
 
+    private static <T> ResponseEntity<List<T>> pageResponse(CursorPage<T> page) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.nextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.nextCursor());
+        }
+        return response.body(page.items());
+    }
+
 }
@@ -0,0 +1,7 @@
+package br.com.itau.secure.api.exception;
+
+public class BatchSizeExceededException extends RuntimeException {
+    public BatchSizeExceededException(int size, int maxSize) {
+        super("Batch with " + size + " orders exceeds the limit of " + maxSize + " orders per request.");
+    }
+}
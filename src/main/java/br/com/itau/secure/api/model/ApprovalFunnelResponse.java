@@ -0,0 +1,42 @@
+package br.com.itau.secure.api.model;
+
+import br.com.itau.secure.domain.model.ApprovalFunnelBucket;
+import br.com.itau.secure.domain.model.FunnelDimension;
+
+import java.time.Instant;
+import java.util.List;
+
+public record ApprovalFunnelResponse(
+        Instant from,
+        Instant to,
+        FunnelDimension groupBy,
+        List<Bucket> buckets
+) {
+    // validationRate: RECEIVED -> VALIDATED; pendingRate: VALIDATED -> PENDING; approval/rejection sobre o total do grupo
+    public record Bucket(
+            String key,
+            long total,
+            long validated,
+            long pending,
+            long approved,
+            long rejected,
+            long cancelled,
+            double validationRate,
+            double pendingRate,
+            double approvalRate,
+            double rejectionRate
+    ) {
+        public static Bucket fromBucket(ApprovalFunnelBucket bucket) {
+            return new Bucket(bucket.key(), bucket.total(), bucket.validated(), bucket.pending(),
+                    bucket.approved(), bucket.rejected(), bucket.cancelled(),
+                    rate(bucket.validated(), bucket.total()),
+                    rate(bucket.pending(), bucket.validated()),
+                    rate(bucket.approved(), bucket.total()),
+                    rate(bucket.rejected(), bucket.total()));
+        }
+
+        private static double rate(long part, long whole) {
+            return whole == 0 ? 0.0 : (double) part / whole;
+        }
+    }
+}
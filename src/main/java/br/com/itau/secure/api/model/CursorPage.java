@@ -0,0 +1,6 @@
+package br.com.itau.secure.api.model;
+
+import java.util.List;
+
+public record CursorPage<T>(List<T> items, String nextCursor) {
+}
@@ -0,0 +1,33 @@
+package br.com.itau.secure.api.model;
+
+import br.com.itau.secure.domain.model.CustomerOrderStats;
+import br.com.itau.secure.domain.service.status.InsuranceCategory;
+import br.com.itau.secure.domain.service.status.SecureOrderStatus;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.Map;
+
+public record CustomerOrderStatsResponse(
+        String customerId,
+        long totalOrders,
+        Map<SecureOrderStatus, Long> statusCounts,
+        Map<InsuranceCategory, BigDecimal> insuredAmountByCategory,
+        Instant lastOrderAt
+) {
+    // todos os status e categorias aparecem na resposta, mesmo os que ainda não tiveram pedidos
+    public static CustomerOrderStatsResponse fromStats(CustomerOrderStats stats) {
+        Map<SecureOrderStatus, Long> statusCounts = new EnumMap<>(SecureOrderStatus.class);
+        for (SecureOrderStatus status : SecureOrderStatus.values()) {
+            statusCounts.put(status, stats.statusCounts() == null ? 0L : stats.statusCounts().getOrDefault(status, 0L));
+        }
+        Map<InsuranceCategory, BigDecimal> insuredAmounts = new EnumMap<>(InsuranceCategory.class);
+        for (InsuranceCategory category : InsuranceCategory.values()) {
+            insuredAmounts.put(category, stats.insuredAmountByCategory() == null ? BigDecimal.ZERO
+                    : stats.insuredAmountByCategory().getOrDefault(category, BigDecimal.ZERO));
+        }
+        long totalOrders = statusCounts.values().stream().mapToLong(Long::longValue).sum();
+        return new CustomerOrderStatsResponse(stats.customerId(), totalOrders, statusCounts, insuredAmounts, stats.lastOrderAt());
+    }
+}
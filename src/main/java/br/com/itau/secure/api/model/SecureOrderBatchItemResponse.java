@@ -0,0 +1,19 @@
+package br.com.itau.secure.api.model;
+
+import br.com.itau.secure.domain.model.SecureOrder;
+import br.com.itau.secure.domain.service.status.SecureOrderStatus;
+
+public record SecureOrderBatchItemResponse(
+        int index,
+        String id,
+        SecureOrderStatus status,
+        String error
+) {
+    public static SecureOrderBatchItemResponse accepted(int index, SecureOrder secureOrder) {
+        return new SecureOrderBatchItemResponse(index, secureOrder.getId(), secureOrder.getStatus(), null);
+    }
+
+    public static SecureOrderBatchItemResponse failed(int index, SecureOrder secureOrder, String error) {
+        return new SecureOrderBatchItemResponse(index, secureOrder.getId(), null, error);
+    }
+}
@@ -0,0 +1,22 @@
+package br.com.itau.secure.api.model;
+
+import br.com.itau.secure.domain.model.SecureOrder;
+import br.com.itau.secure.domain.service.status.SecureOrderStatus;
+
+import java.time.Instant;
+import java.util.List;
+
+public record SecureOrderStatusEvent(
+        String orderId,
+        SecureOrderStatus status,
+        Instant timestamp
+) {
+    public static SecureOrderStatusEvent lastTransitionOf(SecureOrder secureOrder) {
+        List<SecureOrder.History> history = secureOrder.getHistory();
+        return of(secureOrder.getId(), history.get(history.size() - 1));
+    }
+
+    public static SecureOrderStatusEvent of(String orderId, SecureOrder.History transition) {
+        return new SecureOrderStatusEvent(orderId, transition.getStatus(), transition.getTimestamp());
+    }
+}
@@ -0,0 +1,29 @@
+package br.com.itau.secure.api.model;
+
+import br.com.itau.secure.domain.model.SecureOrderSummary;
+import br.com.itau.secure.domain.service.status.SecureOrderStatus;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+public record SecureOrderSummaryResponse(
+        String id,
+        SecureOrderStatus status,
+        String category,
+        BigDecimal totalMonthlyPremiumAmount,
+        BigDecimal insuredAmount,
+        Instant createdAt,
+        Instant finishedAt
+) {
+    public static SecureOrderSummaryResponse fromSummary(SecureOrderSummary summary) {
+        return new SecureOrderSummaryResponse(
+                summary.id(),
+                summary.status(),
+                summary.category(),
+                summary.totalMonthlyPremiumAmount(),
+                summary.insuredAmount(),
+                summary.createdAt(),
+                summary.finishedAt()
+        );
+    }
+}
@@ -0,0 +1,105 @@
+package br.com.itau.secure.commom;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+// Roda de tempo com hash (Varghese & Lauck): cada slot cobre um tick e guarda uma lista encadeada dos prazos que
+// caem nele; prazos além de uma volta carregam o número de voltas restantes. Agendar é O(1) e custa um nó por
+// prazo, sem heap nem thread por timer. O agendamento pode vir de qualquer thread (fila sem lock, transferida no
+// avanço); o avanço é feito por uma única thread.
+public class HashedTimingWheel<T> {
+    private final long tickMillis;
+    private final long startMillis;
+    private final Node<T>[] slots;
+    private final int mask;
+    private final Queue<Node<T>> scheduled = new ConcurrentLinkedQueue<>();
+    private final AtomicLong size = new AtomicLong();
+    // próximo tick a expirar, contado a partir de startMillis
+    private long currentTick;
+
+    private static final class Node<T> {
+        private final T item;
+        private final long deadlineMillis;
+        private long remainingRounds;
+        private Node<T> next;
+
+        private Node(T item, long deadlineMillis) {
+            this.item = item;
+            this.deadlineMillis = deadlineMillis;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public HashedTimingWheel(long tickMillis, int wheelSize, long startMillis) {
+        if (tickMillis <= 0 || wheelSize <= 0) {
+            throw new IllegalArgumentException("tickMillis and wheelSize must be positive");
+        }
+        this.tickMillis = tickMillis;
+        this.startMillis = startMillis;
+        // potência de 2 para trocar o módulo por uma máscara
+        int slotCount = Integer.highestOneBit(wheelSize - 1) << 1;
+        this.slots = new Node[Math.max(slotCount, 1)];
+        this.mask = slots.length - 1;
+    }
+
+    public void schedule(T item, long deadlineMillis) {
+        scheduled.add(new Node<>(item, deadlineMillis));
+        size.incrementAndGet();
+    }
+
+    public long size() {
+        return size.get();
+    }
+
+    // Expira todos os ticks já encerrados até nowMillis e entrega os itens vencidos; devolve quantos expiraram.
+    // Um tick só é processado depois de terminar, então nenhum item sai antes do prazo.
+    public synchronized int advance(long nowMillis, Consumer<T> onExpired) {
+        long lastElapsedTick = Math.floorDiv(nowMillis - startMillis, tickMillis) - 1;
+        int expired = 0;
+        while (currentTick <= lastElapsedTick) {
+            transferScheduled();
+            expired += expireSlot((int) (currentTick & mask), onExpired);
+            currentTick++;
+        }
+        return expired;
+    }
+
+    private void transferScheduled() {
+        Node<T> node;
+        while ((node = scheduled.poll()) != null) {
+            // prazo já vencido ou no tick corrente vai para o slot que está sendo expirado
+            long deadlineTick = Math.max(Math.floorDiv(node.deadlineMillis - startMillis, tickMillis), currentTick);
+            node.remainingRounds = (deadlineTick - currentTick) / slots.length;
+            int slot = (int) (deadlineTick & mask);
+            node.next = slots[slot];
+            slots[slot] = node;
+        }
+    }
+
+    private int expireSlot(int slot, Consumer<T> onExpired) {
+        int expired = 0;
+        Node<T> previous = null;
+        Node<T> node = slots[slot];
+        while (node != null) {
+            Node<T> next = node.next;
+            if (node.remainingRounds <= 0) {
+                if (previous == null) {
+                    slots[slot] = next;
+                } else {
+                    previous.next = next;
+                }
+                node.next = null;
+                size.decrementAndGet();
+                expired++;
+                onExpired.accept(node.item);
+            } else {
+                node.remainingRounds--;
+                previous = node;
+            }
+            node = next;
+        }
+        return expired;
+    }
+}
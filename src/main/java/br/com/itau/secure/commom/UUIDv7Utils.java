@@ -18,4 +18,10 @@ public class UUIDv7Utils {
 
         return OffsetDateTime.ofInstant(Instant.ofEpochMilli(timestamp), ZoneId.systemDefault());
     }
+
+    // menor UUIDv7 do milissegundo informado: serve de limite para consultas por intervalo de tempo sobre o _id
+    public static String lowerBoundId(Instant instant) {
+        long mostSignificantBits = (instant.toEpochMilli() << 16) | 0x7000L;
+        return new UUID(mostSignificantBits, Long.MIN_VALUE).toString();
+    }
 }
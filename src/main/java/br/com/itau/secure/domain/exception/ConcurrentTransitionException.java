@@ -0,0 +1,7 @@
+package br.com.itau.secure.domain.exception;
+
+public class ConcurrentTransitionException extends RuntimeException {
+    public ConcurrentTransitionException(String orderId) {
+        super("SecureOrder " + orderId + " was changed by a concurrent transition.");
+    }
+}
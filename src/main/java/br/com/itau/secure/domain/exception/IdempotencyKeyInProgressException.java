@@ -0,0 +1,7 @@
+package br.com.itau.secure.domain.exception;
+
+public class IdempotencyKeyInProgressException extends RuntimeException {
+    public IdempotencyKeyInProgressException(String idempotencyKey) {
+        super("A request with Idempotency-Key " + idempotencyKey + " is still being processed.");
+    }
+}
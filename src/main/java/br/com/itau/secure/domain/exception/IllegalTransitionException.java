@@ -0,0 +1,10 @@
+package br.com.itau.secure.domain.exception;
+
+import br.com.itau.secure.domain.service.status.SecureOrderEvent;
+import br.com.itau.secure.domain.service.status.SecureOrderStatus;
+
+public class IllegalTransitionException extends RuntimeException {
+    public IllegalTransitionException(String orderId, SecureOrderStatus status, SecureOrderEvent event) {
+        super("SecureOrder " + orderId + " in status " + status + " does not accept " + event + ".");
+    }
+}
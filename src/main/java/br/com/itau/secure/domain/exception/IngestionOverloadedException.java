@@ -0,0 +1,14 @@
+package br.com.itau.secure.domain.exception;
+
+public class IngestionOverloadedException extends RuntimeException {
+    private final long retryAfterSeconds;
+
+    public IngestionOverloadedException(int capacity, long retryAfterSeconds) {
+        super("Order ingestion buffer is full (capacity " + capacity + "). Retry later.");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,7 @@
+package br.com.itau.secure.domain.exception;
+
+public class InvalidAnalyticsQueryException extends RuntimeException {
+    public InvalidAnalyticsQueryException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,11 @@
+package br.com.itau.secure.domain.model;
+
+// Contagens de um grupo do funil: pedidos criados na janela e quantos passaram por cada etapa ou terminaram em cada estado.
+public record ApprovalFunnelBucket(String key,
+                                   long total,
+                                   long validated,
+                                   long pending,
+                                   long approved,
+                                   long rejected,
+                                   long cancelled) {
+}
@@ -0,0 +1,13 @@
+package br.com.itau.secure.domain.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+// Último resume token processado de um change stream; o id é o nome da coleção observada.
+@Document(collection = "change_stream_checkpoints")
+public record ChangeStreamCheckpoint(@Id String id,
+                                     String resumeToken,
+                                     Instant updatedAt) {
+}
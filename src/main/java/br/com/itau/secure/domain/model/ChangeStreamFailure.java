@@ -0,0 +1,15 @@
+package br.com.itau.secure.domain.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+// Pedido cujo evento do change stream falhou mesmo após as retentativas: é reprocessado a partir do documento
+// atual até redrive-attempts vezes e depois fica registrado aqui, como uma mensagem na DLQ. O id é o do pedido.
+@Document(collection = "change_stream_failures")
+public record ChangeStreamFailure(@Id String id,
+                                  String error,
+                                  int attempts,
+                                  Instant failedAt) {
+}
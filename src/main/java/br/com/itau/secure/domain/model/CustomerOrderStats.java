@@ -0,0 +1,19 @@
+package br.com.itau.secure.domain.model;
+
+import br.com.itau.secure.domain.service.status.InsuranceCategory;
+import br.com.itau.secure.domain.service.status.SecureOrderStatus;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Map;
+
+// Agregados por cliente mantidos com $inc a cada gravação de pedido, sem varrer os pedidos na leitura.
+// statusCounts conta os pedidos pelo status atual; o valor segurado é somado na criação do pedido.
+@Document(collection = "customer_order_stats")
+public record CustomerOrderStats(@Id String customerId,
+                                 Map<SecureOrderStatus, Long> statusCounts,
+                                 Map<InsuranceCategory, BigDecimal> insuredAmountByCategory,
+                                 Instant lastOrderAt) {
+}
@@ -0,0 +1,31 @@
+package br.com.itau.secure.domain.model;
+
+import br.com.itau.secure.domain.exception.InvalidAnalyticsQueryException;
+
+// Dimensões de agrupamento do funil de aprovação e o campo do pedido correspondente a cada uma.
+public enum FunnelDimension {
+    CATEGORY("category"),
+    SALES_CHANNEL("salesChannel"),
+    RISK_PROFILE("riskClassification");
+
+    private final String field;
+
+    FunnelDimension(String field) {
+        this.field = field;
+    }
+
+    public String getField() {
+        return field;
+    }
+
+    // aceita o nome do enum ou do campo, sem diferenciar maiúsculas (ex.: sales_channel, salesChannel)
+    public static FunnelDimension fromString(String text) {
+        for (FunnelDimension dimension : values()) {
+            if (dimension.name().equalsIgnoreCase(text) || dimension.field.equalsIgnoreCase(text)
+                    || dimension.name().replace("_", "").equalsIgnoreCase(text)) {
+                return dimension;
+            }
+        }
+        throw new InvalidAnalyticsQueryException("Unknown funnel dimension: " + text);
+    }
+}
@@ -0,0 +1,14 @@
+package br.com.itau.secure.domain.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+// A chave é o próprio _id: o índice único garante que só uma requisição consegue registrá-la.
+@Document(collection = "idempotency_keys")
+public record IdempotencyKey(@Id String key,
+                             String orderId,
+                             @Indexed(expireAfter = "24h") Instant createdAt) {
+}
@@ -0,0 +1,14 @@
+package br.com.itau.secure.domain.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+// Trava com prazo para tarefas que devem rodar numa única instância; o id é o nome da tarefa.
+// Quem não renovar até expiresAt perde a trava para a próxima instância que tentar.
+@Document(collection = "leases")
+public record Lease(@Id String id,
+                    String owner,
+                    Instant expiresAt) {
+}
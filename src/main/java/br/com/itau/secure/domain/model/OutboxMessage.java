@@ -0,0 +1,18 @@
+package br.com.itau.secure.domain.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.Map;
+
+// Mensagem já serializada pelo conversor do RabbitMQ; o relay publica exatamente o que foi gravado.
+@Document(collection = "secure_order_outbox")
+public record OutboxMessage(@Id String id,
+                            String exchange,
+                            String routingKey,
+                            String contentType,
+                            Map<String, Object> headers,
+                            String body,
+                            Instant createdAt) {
+}
@@ -0,0 +1,8 @@
+package br.com.itau.secure.domain.model;
+
+import java.time.Instant;
+
+// Pedido parado em PENDING: o id e o momento da entrada em PENDING (última transição do history) bastam
+// para recalcular o prazo de resposta de pagamento e subscrição.
+public record PendingOrder(String id, Instant pendingSince) {
+}
@@ -6,11 +6,15 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.Getter;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Transient;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.math.BigDecimal;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -18,6 +22,14 @@ import java.util.Map;
 import static br.com.itau.secure.commom.IdGenerator.generateTimeBasedUUID;
 
 @Document(collection = "secure_orders")
+@CompoundIndexes({
+        // listagens por cliente, paginadas por _id (UUIDv7) do mais recente para o mais antigo
+        @CompoundIndex(name = "customerId_id", def = "{'customerId': 1, '_id': -1}"),
+        // varreduras operacionais por status e data de criação
+        @CompoundIndex(name = "status_createdAt", def = "{'status': 1, 'createdAt': 1}"),
+        // funil de aprovação filtrado por categoria numa janela de _id
+        @CompoundIndex(name = "category_id", def = "{'category': 1, '_id': 1}")
+})
 @Getter
 public class SecureOrder {
 
@@ -36,6 +48,11 @@ public class SecureOrder {
     private Map<String, BigDecimal> coverages;
     private List<String> assistances;
     private List<History> history;
+    // classificação retornada pela análise de fraude; a validação seguinte não depende do payload da mensagem
+    private String riskClassification;
+    // quantos itens do history já estão gravados; os demais são transições pendentes
+    @Transient
+    private int persistedHistorySize;
 
     @Builder
     public SecureOrder(String customerId, String productId, String category, String salesChannel,
@@ -55,6 +72,7 @@ public class SecureOrder {
         this.coverages = coverages;
         this.assistances = assistances;
         this.history = history;
+        this.persistedHistorySize = history == null ? 0 : history.size();
 
         if(this.history == null) {
             this.history = new ArrayList<>();
@@ -63,8 +81,51 @@ public class SecureOrder {
     }
 
     public void setStatus(SecureOrderStatus newStatus, Instant data) {
-        this.history.add(new History(newStatus, data != null? data: Instant.now()));
+        Instant timestamp = data != null? data: Instant.now();
+        this.history.add(new History(newStatus, timestamp));
         this.status = newStatus;
+        if (newStatus.isTerminal()) {
+            this.finishedAt = timestamp;
+        }
+    }
+
+    public void setRiskClassification(String riskClassification) {
+        this.riskClassification = riskClassification;
+    }
+
+    public boolean isNew() {
+        return this.persistedHistorySize == 0;
+    }
+
+    public List<History> pendingTransitions() {
+        return this.history.subList(this.persistedHistorySize, this.history.size());
+    }
+
+    // status gravado no banco: junto com o tamanho do history é a condição da gravação das transições pendentes
+    public SecureOrderStatus getPersistedStatus() {
+        return this.persistedHistorySize == 0 ? null : this.history.get(this.persistedHistorySize - 1).getStatus();
+    }
+
+    public void markTransitionsPersisted() {
+        this.persistedHistorySize = this.history.size();
+    }
+
+    // cópia independente para que alterações de estado não vazem para instâncias compartilhadas (ex.: cache)
+    public SecureOrder copy() {
+        List<History> historyCopy = new ArrayList<>(this.history.size());
+        this.history.forEach(item -> historyCopy.add(new History(item.getStatus(), item.getTimestamp())));
+
+        SecureOrder copy = new SecureOrder(this.customerId, this.productId, this.category, this.salesChannel,
+                this.paymentMethod, this.finishedAt, this.totalMonthlyPremiumAmount, this.insuredAmount,
+                this.coverages == null ? null : new HashMap<>(this.coverages),
+                this.assistances == null ? null : new ArrayList<>(this.assistances),
+                historyCopy);
+        copy.id = this.id;
+        copy.createdAt = this.createdAt;
+        copy.status = this.status;
+        copy.riskClassification = this.riskClassification;
+        copy.persistedHistorySize = this.persistedHistorySize;
+        return copy;
     }
 
     @Data
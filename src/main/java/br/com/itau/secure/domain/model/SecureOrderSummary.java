@@ -0,0 +1,18 @@
+package br.com.itau.secure.domain.model;
+
+import br.com.itau.secure.domain.service.status.SecureOrderStatus;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+// Projeção de SecureOrder: somente estes campos são lidos do MongoDB (coverages, assistances e history ficam de fora).
+public record SecureOrderSummary(
+        String id,
+        SecureOrderStatus status,
+        String category,
+        BigDecimal totalMonthlyPremiumAmount,
+        BigDecimal insuredAmount,
+        Instant createdAt,
+        Instant finishedAt
+) {
+}
@@ -0,0 +1,19 @@
+package br.com.itau.secure.domain.model;
+
+import java.time.Instant;
+import java.util.List;
+
+// Versão do estado do pedido: toda transição adiciona um item ao history, então tamanho + última transição
+// identificam o estado sem precisar ler o documento inteiro.
+public record SecureOrderVersion(String id, int historySize, Instant lastTransitionAt) {
+
+    public static SecureOrderVersion of(SecureOrder secureOrder) {
+        List<SecureOrder.History> history = secureOrder.getHistory();
+        Instant lastTransitionAt = history.isEmpty() ? null : history.get(history.size() - 1).getTimestamp();
+        return new SecureOrderVersion(secureOrder.getId(), history.size(), lastTransitionAt);
+    }
+
+    public String toETag() {
+        return historySize + "-" + (lastTransitionAt == null ? 0 : lastTransitionAt.toEpochMilli());
+    }
+}
@@ -0,0 +1,13 @@
+package br.com.itau.secure.domain.repository;
+
+import br.com.itau.secure.domain.model.ChangeStreamFailure;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ChangeStreamFailureRepository extends MongoRepository<ChangeStreamFailure, String> {
+
+    List<ChangeStreamFailure> findTop100ByAttemptsLessThanOrderByFailedAtAsc(int maxAttempts);
+}
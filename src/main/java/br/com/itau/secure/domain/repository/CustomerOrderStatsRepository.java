@@ -0,0 +1,9 @@
+package br.com.itau.secure.domain.repository;
+
+import br.com.itau.secure.domain.model.CustomerOrderStats;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface CustomerOrderStatsRepository extends MongoRepository<CustomerOrderStats, String>, CustomerOrderStatsRepositoryCustom {
+}
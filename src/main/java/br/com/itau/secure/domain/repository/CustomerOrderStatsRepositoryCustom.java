@@ -0,0 +1,15 @@
+package br.com.itau.secure.domain.repository;
+
+import br.com.itau.secure.domain.model.SecureOrder;
+import br.com.itau.secure.domain.service.status.SecureOrderStatus;
+
+import java.util.List;
+
+public interface CustomerOrderStatsRepositoryCustom {
+
+    // upsert com $inc do status e do valor segurado da categoria e $max da data do último pedido
+    void recordCreated(List<SecureOrder> secureOrders);
+
+    // move um pedido de um status para outro: $inc -1 no anterior e +1 no novo
+    void recordTransition(String customerId, SecureOrderStatus from, SecureOrderStatus to);
+}
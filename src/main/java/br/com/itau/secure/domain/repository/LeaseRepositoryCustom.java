@@ -0,0 +1,11 @@
+package br.com.itau.secure.domain.repository;
+
+import java.time.Duration;
+
+public interface LeaseRepositoryCustom {
+
+    // Adquire ou renova a trava: só grava se ela não existir, estiver expirada ou já for do owner.
+    boolean acquire(String name, String owner, Duration ttl);
+
+    void release(String name, String owner);
+}
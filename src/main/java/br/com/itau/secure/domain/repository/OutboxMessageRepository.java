@@ -0,0 +1,15 @@
+package br.com.itau.secure.domain.repository;
+
+import br.com.itau.secure.domain.model.OutboxMessage;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface OutboxMessageRepository extends MongoRepository<OutboxMessage, String> {
+
+    // _id é UUIDv7: a ordem do índice é a ordem de gravação
+    List<OutboxMessage> findAllByOrderByIdAsc(Limit limit);
+}
@@ -0,0 +1,13 @@
+package br.com.itau.secure.domain.repository;
+
+import br.com.itau.secure.domain.model.ApprovalFunnelBucket;
+import br.com.itau.secure.domain.model.FunnelDimension;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface SecureOrderAnalyticsRepository {
+
+    // pedidos criados em [from, to), dos pedidos ativos e do arquivo; category é um filtro opcional
+    List<ApprovalFunnelBucket> approvalFunnel(Instant from, Instant to, FunnelDimension groupBy, String category);
+}
@@ -0,0 +1,29 @@
+package br.com.itau.secure.domain.repository;
+
+import br.com.itau.secure.domain.model.SecureOrder;
+import br.com.itau.secure.domain.model.SecureOrderVersion;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+// Pedidos em estado terminal movidos de secure_orders pelo job de arquivamento. Somente leitura para a aplicação.
+public interface SecureOrderArchiveRepository {
+    String ARCHIVE_COLLECTION = "secure_orders_archive";
+
+    Optional<SecureOrder> findById(String id);
+
+    Optional<SecureOrderVersion> findVersionById(String id);
+
+    // mesma ordenação e cursor (_id menor que after) das listagens de secure_orders; limit 0 traz todos
+    <T> List<T> findByCustomerId(String customerId, String after, int limit, Class<T> type);
+
+    Stream<SecureOrder> streamByCustomerId(String customerId);
+
+    // Copia um lote de pedidos terminais criados antes do corte para o arquivo e os remove de secure_orders.
+    // Retorna quantos pedidos foram encontrados no lote.
+    int archiveBatch(Instant createdBefore, int batchSize);
+
+    void ensureIndexes();
+}
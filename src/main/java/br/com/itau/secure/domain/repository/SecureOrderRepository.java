@@ -2,15 +2,25 @@ package br.com.itau.secure.domain.repository;
 
 
 import br.com.itau.secure.domain.model.SecureOrder;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.mongodb.repository.Meta;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 
 @Repository
-public interface SecureOrderRepository extends MongoRepository<SecureOrder, String> {
+public interface SecureOrderRepository extends MongoRepository<SecureOrder, String>, SecureOrderRepositoryCustom {
 
     List<SecureOrder> findByCustomerId(String customerId);
+
+    <T> List<T> findByCustomerIdOrderByIdDesc(String customerId, Limit limit, Class<T> type);
+
+    <T> List<T> findByCustomerIdAndIdLessThanOrderByIdDesc(String customerId, String id, Limit limit, Class<T> type);
+
+    @Meta(cursorBatchSize = 200)
+    Stream<SecureOrder> streamByCustomerIdOrderByIdDesc(String customerId);
 }
 
@@ -0,0 +1,26 @@
+package br.com.itau.secure.domain.repository;
+
+import br.com.itau.secure.domain.model.PendingOrder;
+import br.com.itau.secure.domain.model.SecureOrder;
+import br.com.itau.secure.domain.model.SecureOrderVersion;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+public interface SecureOrderRepositoryCustom {
+
+    // Insere todos os pedidos em um único bulk write não ordenado.
+    // Retorna as falhas indexadas pela posição do pedido na lista recebida.
+    Map<Integer, String> insertAll(List<SecureOrder> secureOrders);
+
+    Optional<SecureOrderVersion> findVersionById(String id);
+
+    // grava só as transições pendentes: $set do status/finishedAt e $push no history, sem reescrever o documento.
+    // A gravação só acontece se o documento ainda estiver na versão lida (status e tamanho do history).
+    boolean appendTransitions(SecureOrder secureOrder);
+
+    // pedidos em PENDING lidos em streaming, só com id e momento da entrada em PENDING (índice status_createdAt)
+    Stream<PendingOrder> streamPendingOrders();
+}
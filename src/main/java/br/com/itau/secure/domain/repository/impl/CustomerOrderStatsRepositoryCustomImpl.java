@@ -0,0 +1,71 @@
+package br.com.itau.secure.domain.repository.impl;
+
+import br.com.itau.secure.domain.model.CustomerOrderStats;
+import br.com.itau.secure.domain.model.SecureOrder;
+import br.com.itau.secure.domain.repository.CustomerOrderStatsRepositoryCustom;
+import br.com.itau.secure.domain.service.status.InsuranceCategory;
+import br.com.itau.secure.domain.service.status.SecureOrderStatus;
+import org.bson.types.Decimal128;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.util.Pair;
+
+import java.util.List;
+
+public class CustomerOrderStatsRepositoryCustomImpl implements CustomerOrderStatsRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    public CustomerOrderStatsRepositoryCustomImpl(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public void recordCreated(List<SecureOrder> secureOrders) {
+        if (secureOrders.isEmpty()) {
+            return;
+        }
+
+        List<Pair<Query, Update>> upserts = secureOrders.stream()
+                .map(secureOrder -> Pair.of(byCustomer(secureOrder.getCustomerId()), createdUpdate(secureOrder)))
+                .toList();
+        mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, CustomerOrderStats.class)
+                .upsert(upserts)
+                .execute();
+    }
+
+    @Override
+    public void recordTransition(String customerId, SecureOrderStatus from, SecureOrderStatus to) {
+        if (from == to) {
+            return;
+        }
+        mongoTemplate.upsert(byCustomer(customerId), transitionUpdate(from, to), CustomerOrderStats.class);
+    }
+
+    static Update createdUpdate(SecureOrder secureOrder) {
+        Update update = new Update()
+                .inc("statusCounts." + secureOrder.getStatus().name(), 1L)
+                .max("lastOrderAt", secureOrder.getCreatedAt());
+        if (secureOrder.getInsuredAmount() != null) {
+            // Decimal128 explícito: o $inc não opera sobre o BigDecimal gravado como string
+            InsuranceCategory category = InsuranceCategory.fromString(secureOrder.getCategory());
+            update.inc("insuredAmountByCategory." + category.name(), new Decimal128(secureOrder.getInsuredAmount()));
+        }
+        return update;
+    }
+
+    static Update transitionUpdate(SecureOrderStatus from, SecureOrderStatus to) {
+        Update update = new Update().inc("statusCounts." + to.name(), 1L);
+        if (from != null) {
+            update.inc("statusCounts." + from.name(), -1L);
+        }
+        return update;
+    }
+
+    private static Query byCustomer(String customerId) {
+        return Query.query(Criteria.where("_id").is(customerId));
+    }
+}
@@ -0,0 +1,43 @@
+package br.com.itau.secure.domain.repository.impl;
+
+import br.com.itau.secure.domain.model.Lease;
+import br.com.itau.secure.domain.repository.LeaseRepositoryCustom;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Duration;
+import java.time.Instant;
+
+public class LeaseRepositoryCustomImpl implements LeaseRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    public LeaseRepositoryCustomImpl(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    // Se a trava é de outra instância e ainda vale, o filtro não casa e o upsert tenta inserir o mesmo _id:
+    // o índice único do _id rejeita e a aquisição falha.
+    @Override
+    public boolean acquire(String name, String owner, Duration ttl) {
+        Instant now = Instant.now();
+        Query available = Query.query(Criteria.where("_id").is(name).orOperator(
+                Criteria.where("owner").is(owner),
+                Criteria.where("expiresAt").lt(now)));
+        Update update = new Update().set("owner", owner).set("expiresAt", now.plus(ttl));
+        try {
+            mongoTemplate.upsert(available, update, Lease.class);
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public void release(String name, String owner) {
+        mongoTemplate.remove(Query.query(Criteria.where("_id").is(name).and("owner").is(owner)), Lease.class);
+    }
+}
@@ -0,0 +1,89 @@
+package br.com.itau.secure.domain.repository.impl;
+
+import br.com.itau.secure.domain.model.ApprovalFunnelBucket;
+import br.com.itau.secure.domain.model.FunnelDimension;
+import br.com.itau.secure.domain.model.SecureOrder;
+import br.com.itau.secure.domain.repository.SecureOrderAnalyticsRepository;
+import br.com.itau.secure.domain.service.status.SecureOrderStatus;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static br.com.itau.secure.commom.UUIDv7Utils.lowerBoundId;
+import static br.com.itau.secure.domain.repository.SecureOrderArchiveRepository.ARCHIVE_COLLECTION;
+
+// O intervalo de tempo vira um intervalo de _id (UUIDv7): a janela é lida pelo índice do _id (ou category_id com filtro)
+// e nenhum campo de data precisa ser indexado.
+@Repository
+public class SecureOrderAnalyticsRepositoryImpl implements SecureOrderAnalyticsRepository {
+
+    private final MongoTemplate mongoTemplate;
+    private final Duration maxTime;
+
+    public SecureOrderAnalyticsRepositoryImpl(MongoTemplate mongoTemplate,
+                                              @Value("${secure-order.analytics.max-time:5s}") Duration maxTime) {
+        this.mongoTemplate = mongoTemplate;
+        this.maxTime = maxTime;
+    }
+
+    @Override
+    public List<ApprovalFunnelBucket> approvalFunnel(Instant from, Instant to, FunnelDimension groupBy, String category) {
+        return mongoTemplate.aggregate(approvalFunnelAggregation(from, to, groupBy, category, maxTime),
+                mongoTemplate.getCollectionName(SecureOrder.class), ApprovalFunnelBucket.class).getMappedResults();
+    }
+
+    static Aggregation approvalFunnelAggregation(Instant from, Instant to, FunnelDimension groupBy, String category,
+                                                 Duration maxTime) {
+        Document match = new Document("_id", new Document("$gte", lowerBoundId(from)).append("$lt", lowerBoundId(to)));
+        if (category != null) {
+            match.append("category", category);
+        }
+        // só os campos usados seguem adiante; o history vira a lista de status pelos quais o pedido passou
+        Document project = new Document("_id", 0)
+                .append("key", new Document("$ifNull", List.of("$" + groupBy.getField(), "UNKNOWN")))
+                .append("status", 1)
+                .append("statuses", new Document("$ifNull", List.of("$history.status", List.of())));
+        Document archived = new Document("coll", ARCHIVE_COLLECTION)
+                .append("pipeline", List.of(new Document("$match", match), new Document("$project", project)));
+
+        Document group = new Document("_id", "$key")
+                .append("total", new Document("$sum", 1))
+                .append("validated", countIf(reached(SecureOrderStatus.VALIDATED)))
+                .append("pending", countIf(reached(SecureOrderStatus.PENDING)))
+                .append("approved", countIf(currentlyIn(SecureOrderStatus.APPROVED)))
+                .append("rejected", countIf(currentlyIn(SecureOrderStatus.REJECTED)))
+                .append("cancelled", countIf(currentlyIn(SecureOrderStatus.CANCELLED)));
+
+        return Aggregation.newAggregation(
+                Aggregation.stage(new Document("$match", match)),
+                Aggregation.stage(new Document("$project", project)),
+                Aggregation.stage(new Document("$unionWith", archived)),
+                Aggregation.stage(new Document("$group", group)),
+                Aggregation.stage(new Document("$project", new Document("_id", 0).append("key", "$_id")
+                        .append("total", 1).append("validated", 1).append("pending", 1)
+                        .append("approved", 1).append("rejected", 1).append("cancelled", 1))),
+                Aggregation.stage(new Document("$sort", new Document("key", 1)))
+        ).withOptions(AggregationOptions.builder().maxTime(maxTime).build());
+    }
+
+    private static Document countIf(Document condition) {
+        return new Document("$sum", new Document("$cond", List.of(condition, 1, 0)));
+    }
+
+    // o status pode estar gravado pelo nome ou pelo código (gravação compacta)
+    private static Document reached(SecureOrderStatus status) {
+        return new Document("$gt", List.of(new Document("$size",
+                new Document("$setIntersection", List.of("$statuses", List.of(status.name(), status.getCode())))), 0));
+    }
+
+    private static Document currentlyIn(SecureOrderStatus status) {
+        return new Document("$in", List.of("$status", List.of(status.name(), status.getCode())));
+    }
+}
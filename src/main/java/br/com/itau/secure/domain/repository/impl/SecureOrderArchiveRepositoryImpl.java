@@ -0,0 +1,121 @@
+package br.com.itau.secure.domain.repository.impl;
+
+import br.com.itau.secure.domain.model.SecureOrder;
+import br.com.itau.secure.domain.model.SecureOrderVersion;
+import br.com.itau.secure.domain.repository.SecureOrderArchiveRepository;
+import br.com.itau.secure.domain.service.status.SecureOrderStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+@Slf4j
+@Repository
+public class SecureOrderArchiveRepositoryImpl implements SecureOrderArchiveRepository {
+    private static final String SECURE_ORDERS_COLLECTION = "secure_orders";
+
+    private final MongoTemplate mongoTemplate;
+
+    public SecureOrderArchiveRepositoryImpl(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public Optional<SecureOrder> findById(String id) {
+        return Optional.ofNullable(mongoTemplate.findById(id, SecureOrder.class, ARCHIVE_COLLECTION));
+    }
+
+    @Override
+    public Optional<SecureOrderVersion> findVersionById(String id) {
+        return Optional.ofNullable(mongoTemplate.aggregate(SecureOrderRepositoryCustomImpl.versionAggregation(id),
+                ARCHIVE_COLLECTION, SecureOrderVersion.class).getUniqueMappedResult());
+    }
+
+    @Override
+    public <T> List<T> findByCustomerId(String customerId, String after, int limit, Class<T> type) {
+        Criteria criteria = Criteria.where("customerId").is(customerId);
+        if (after != null && !after.isBlank()) {
+            criteria = criteria.and("id").lt(after);
+        }
+        Query query = Query.query(criteria).with(Sort.by(Sort.Direction.DESC, "id")).limit(limit);
+
+        return mongoTemplate.query(SecureOrder.class)
+                .inCollection(ARCHIVE_COLLECTION)
+                .as(type)
+                .matching(query)
+                .all();
+    }
+
+    @Override
+    public Stream<SecureOrder> streamByCustomerId(String customerId) {
+        Query query = Query.query(Criteria.where("customerId").is(customerId))
+                .with(Sort.by(Sort.Direction.DESC, "id"))
+                .cursorBatchSize(200);
+        return mongoTemplate.stream(query, SecureOrder.class, ARCHIVE_COLLECTION);
+    }
+
+    @Override
+    public int archiveBatch(Instant createdBefore, int batchSize) {
+        // documentos lidos e gravados crus, sem passar pelo mapeamento da entidade
+        Query query = Query.query(Criteria.where("status").in(terminalStatusValues())
+                        .and("createdAt").lt(Date.from(createdBefore)))
+                .limit(batchSize);
+        List<Document> batch = mongoTemplate.find(query, Document.class, SECURE_ORDERS_COLLECTION);
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        // upsert torna a cópia idempotente se um lote anterior falhou entre a cópia e a remoção
+        BulkOperations copy = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ARCHIVE_COLLECTION);
+        List<Object> ids = new ArrayList<>(batch.size());
+        for (Document document : batch) {
+            Object id = document.get("_id");
+            ids.add(id);
+            copy.replaceOne(Query.query(Criteria.where("_id").is(id)), document, FindAndReplaceOptions.options().upsert());
+        }
+        copy.execute();
+
+        long removed = mongoTemplate.remove(Query.query(Criteria.where("_id").in(ids)
+                        .and("status").in(terminalStatusValues())), SECURE_ORDERS_COLLECTION)
+                .getDeletedCount();
+        log.debug("Archived {} secure orders, removed {} from {}", batch.size(), removed, SECURE_ORDERS_COLLECTION);
+        return batch.size();
+    }
+
+    @Override
+    public void ensureIndexes() {
+        mongoTemplate.indexOps(ARCHIVE_COLLECTION).createIndex(new Index()
+                .on("customerId", Sort.Direction.ASC)
+                .on("_id", Sort.Direction.DESC)
+                .named("customerId_id"));
+        mongoTemplate.indexOps(ARCHIVE_COLLECTION).createIndex(new Index()
+                .on("category", Sort.Direction.ASC)
+                .on("_id", Sort.Direction.ASC)
+                .named("category_id"));
+    }
+
+    // status pelo nome (documentos antigos) e pelo código (gravação compacta)
+    private static List<Object> terminalStatusValues() {
+        List<Object> values = new ArrayList<>();
+        for (SecureOrderStatus status : SecureOrderStatus.values()) {
+            if (status.isTerminal()) {
+                values.add(status.name());
+                values.add(status.getCode());
+            }
+        }
+        return values;
+    }
+}
@@ -0,0 +1,128 @@
+package br.com.itau.secure.domain.repository.impl;
+
+import br.com.itau.secure.domain.model.PendingOrder;
+import br.com.itau.secure.domain.model.SecureOrder;
+import br.com.itau.secure.domain.model.SecureOrderVersion;
+import br.com.itau.secure.domain.repository.SecureOrderRepositoryCustom;
+import br.com.itau.secure.domain.service.status.SecureOrderStatus;
+import br.com.itau.secure.infraestructure.config.mongo.SecureOrderWriteConcernPolicy;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.WriteConcern;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.model.InsertManyOptions;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.ArrayOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+@Slf4j
+public class SecureOrderRepositoryCustomImpl implements SecureOrderRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+    private final WriteConcern createWriteConcern;
+
+    public SecureOrderRepositoryCustomImpl(MongoTemplate mongoTemplate, SecureOrderWriteConcernPolicy writeConcernPolicy) {
+        this.mongoTemplate = mongoTemplate;
+        this.createWriteConcern = writeConcernPolicy.forCreate().getWriteConcern();
+    }
+
+    @Override
+    public Map<Integer, String> insertAll(List<SecureOrder> secureOrders) {
+        if (secureOrders.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        // bulkOps usa o write concern do template, compartilhado com as outras coleções: o da criação vale só aqui
+        List<Document> documents = secureOrders.stream().map(this::toDocument).toList();
+        return mongoTemplate.execute(SecureOrder.class, collection -> {
+            try {
+                collection.withWriteConcern(createWriteConcern)
+                        .insertMany(documents, new InsertManyOptions().ordered(false));
+                return Collections.<Integer, String>emptyMap();
+            } catch (MongoBulkWriteException e) {
+                if (e.getWriteErrors().isEmpty()) {
+                    // só o write concern falhou: não dá para saber quais pedidos foram gravados
+                    throw e;
+                }
+                log.warn("Bulk insert of {} secure orders finished with {} errors", secureOrders.size(), e.getWriteErrors().size());
+
+                Map<Integer, String> failures = new HashMap<>();
+                for (BulkWriteError error : e.getWriteErrors()) {
+                    failures.put(error.getIndex(), error.getMessage());
+                }
+                return failures;
+            }
+        });
+    }
+
+    private Document toDocument(SecureOrder secureOrder) {
+        Document document = new Document();
+        mongoTemplate.getConverter().write(secureOrder, document);
+        return document;
+    }
+
+    @Override
+    public Optional<SecureOrderVersion> findVersionById(String id) {
+        return Optional.ofNullable(mongoTemplate.aggregate(versionAggregation(id), SecureOrder.class, SecureOrderVersion.class)
+                .getUniqueMappedResult());
+    }
+
+    static Aggregation versionAggregation(String id) {
+        return Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("_id").is(id)),
+                Aggregation.project()
+                        .and(ArrayOperators.Size.lengthOfArray("history")).as("historySize")
+                        .and(ArrayOperators.ArrayElemAt.arrayOf("history.timestamp").elementAt(-1)).as("lastTransitionAt"));
+    }
+
+    @Override
+    public boolean appendTransitions(SecureOrder secureOrder) {
+        List<SecureOrder.History> pending = secureOrder.pendingTransitions();
+        if (pending.isEmpty()) {
+            return true;
+        }
+
+        Update update = new Update()
+                .set("status", secureOrder.getStatus())
+                .push("history").each(pending.toArray());
+        if (secureOrder.getFinishedAt() != null) {
+            update.set("finishedAt", secureOrder.getFinishedAt());
+        }
+        if (secureOrder.getRiskClassification() != null) {
+            update.set("riskClassification", secureOrder.getRiskClassification());
+        }
+
+        Query expectedVersion = Query.query(Criteria.where("id").is(secureOrder.getId())
+                .and("status").in(statusValues(secureOrder.getPersistedStatus()))
+                .and("history").size(secureOrder.getPersistedHistorySize()));
+        return mongoTemplate.updateFirst(expectedVersion, update, SecureOrder.class).getMatchedCount() > 0;
+    }
+
+    @Override
+    public Stream<PendingOrder> streamPendingOrders() {
+        return mongoTemplate.aggregateStream(pendingOrdersAggregation(), SecureOrder.class, PendingOrder.class);
+    }
+
+    static Aggregation pendingOrdersAggregation() {
+        return Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("status").in(statusValues(SecureOrderStatus.PENDING))),
+                Aggregation.project()
+                        .and(ArrayOperators.ArrayElemAt.arrayOf("history.timestamp").elementAt(-1)).as("pendingSince"));
+    }
+
+    // com a gravação compacta o status pode estar como código (documentos novos) ou nome (documentos antigos)
+    private static List<Object> statusValues(SecureOrderStatus status) {
+        return List.of(status, status.name());
+    }
+}
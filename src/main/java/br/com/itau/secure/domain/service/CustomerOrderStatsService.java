@@ -0,0 +1,60 @@
+package br.com.itau.secure.domain.service;
+
+import br.com.itau.secure.domain.exception.ResourceNotFoundException;
+import br.com.itau.secure.domain.model.CustomerOrderStats;
+import br.com.itau.secure.domain.model.SecureOrder;
+import br.com.itau.secure.domain.repository.CustomerOrderStatsRepository;
+import br.com.itau.secure.domain.service.status.SecureOrderStatus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+@Slf4j
+@Service
+public class CustomerOrderStatsService {
+    static final String FAILED_COUNTER = "secure_order.customer_stats.failed";
+
+    private final CustomerOrderStatsRepository customerOrderStatsRepository;
+    private final Counter failedUpdates;
+
+    public CustomerOrderStatsService(CustomerOrderStatsRepository customerOrderStatsRepository, MeterRegistry meterRegistry) {
+        this.customerOrderStatsRepository = customerOrderStatsRepository;
+        this.failedUpdates = meterRegistry.counter(FAILED_COUNTER);
+    }
+
+    public CustomerOrderStats findByCustomerId(String customerId) {
+        return customerOrderStatsRepository.findById(customerId)
+                .orElseThrow(() -> new ResourceNotFoundException("Order stats not found for customer: " + customerId));
+    }
+
+    public void recordCreated(List<SecureOrder> secureOrders) {
+        customerOrderStatsRepository.recordCreated(secureOrders);
+    }
+
+    public void recordTransition(SecureOrder secureOrder, SecureOrderStatus previousStatus) {
+        customerOrderStatsRepository.recordTransition(secureOrder.getCustomerId(), previousStatus, secureOrder.getStatus());
+    }
+
+    // Fora de transação as estatísticas são atualizadas depois da publicação e sem interromper o fluxo do pedido:
+    // uma falha só é registrada em log e em secure_order.customer_stats.failed.
+    public void tryRecordCreated(List<SecureOrder> secureOrders) {
+        try {
+            recordCreated(secureOrders);
+        } catch (RuntimeException e) {
+            failedUpdates.increment();
+            log.error("Could not record {} created secure orders in customer stats", secureOrders.size(), e);
+        }
+    }
+
+    public void tryRecordTransition(SecureOrder secureOrder, SecureOrderStatus previousStatus) {
+        try {
+            recordTransition(secureOrder, previousStatus);
+        } catch (RuntimeException e) {
+            failedUpdates.increment();
+            log.error("Could not record transition of secure order {} in customer stats", secureOrder.getId(), e);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package br.com.itau.secure.domain.service;
+
+import br.com.itau.secure.domain.exception.IdempotencyKeyInProgressException;
+import br.com.itau.secure.domain.model.IdempotencyKey;
+import br.com.itau.secure.domain.repository.IdempotencyKeyRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+
+@Slf4j
+@Service
+public class IdempotencyKeyService {
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    // retentativas costumam chegar em segundos: o cache local evita a ida ao Mongo na maioria delas.
+    // Só guarda chaves de pedidos já gravados, que nenhum pod libera mais; a chave de um pedido em andamento
+    // pode ser liberada por outro pod, e o cache deste não saberia.
+    private final Cache<String, String> recentKeys;
+
+    public IdempotencyKeyService(IdempotencyKeyRepository idempotencyKeyRepository,
+                                 @Value("${secure-order.idempotency.cache.maximum-size:10000}") long maximumSize,
+                                 @Value("${secure-order.idempotency.cache.ttl:10m}") Duration ttl) {
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.recentKeys = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    // Registra a chave para o pedido informado. Retorna null quando a chave é nova ou o id do pedido que já a registrou.
+    public String claim(String idempotencyKey, String orderId) {
+        String originalOrderId = recentKeys.getIfPresent(idempotencyKey);
+        if (originalOrderId != null) {
+            return originalOrderId;
+        }
+
+        try {
+            idempotencyKeyRepository.insert(new IdempotencyKey(idempotencyKey, orderId, Instant.now()));
+            return null;
+        } catch (DuplicateKeyException e) {
+            originalOrderId = idempotencyKeyRepository.findById(idempotencyKey)
+                    .map(IdempotencyKey::orderId)
+                    .orElseThrow(() -> new IdempotencyKeyInProgressException(idempotencyKey));
+            log.info("Idempotency-Key {} already used by order {}", idempotencyKey, originalOrderId);
+            return originalOrderId;
+        }
+    }
+
+    // Chamado depois que o pedido da chave foi gravado: a partir daí a chave não é mais liberada.
+    public void markPersisted(String idempotencyKey, String orderId) {
+        recentKeys.put(idempotencyKey, orderId);
+    }
+
+    // Libera a chave quando a criação falha, para que a retentativa do cliente possa criar o pedido.
+    public void release(String idempotencyKey) {
+        recentKeys.invalidate(idempotencyKey);
+        idempotencyKeyRepository.deleteById(idempotencyKey);
+    }
+}
@@ -0,0 +1,39 @@
+package br.com.itau.secure.domain.service;
+
+import br.com.itau.secure.domain.repository.LeaseRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.UUID;
+
+// Travas com prazo na coleção leases para tarefas que rodam em uma única instância por vez
+// (change stream, arquivamento, relay do outbox). O dono é esta instância da aplicação.
+@Slf4j
+@Service
+public class LeaseService {
+    private final LeaseRepository leaseRepository;
+    private final String owner = UUID.randomUUID().toString();
+
+    public LeaseService(LeaseRepository leaseRepository) {
+        this.leaseRepository = leaseRepository;
+    }
+
+    // Adquire ou renova; em caso de erro no Mongo responde que não tem a trava.
+    public boolean tryAcquire(String name, Duration ttl) {
+        try {
+            return leaseRepository.acquire(name, owner, ttl);
+        } catch (RuntimeException e) {
+            log.warn("Could not acquire lease {}: {}", name, e.getMessage());
+            return false;
+        }
+    }
+
+    public void release(String name) {
+        try {
+            leaseRepository.release(name, owner);
+        } catch (RuntimeException e) {
+            log.warn("Could not release lease {}: {}", name, e.getMessage());
+        }
+    }
+}
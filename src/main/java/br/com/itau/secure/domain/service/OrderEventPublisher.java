@@ -0,0 +1,13 @@
+package br.com.itau.secure.domain.service;
+
+import br.com.itau.secure.api.model.OrderServiceStatusData;
+
+import java.util.List;
+
+// Publica os eventos de status na exchange de pedidos: direto no RabbitMQ ou via outbox no MongoDB.
+public interface OrderEventPublisher {
+
+    void publish(String routingKey, OrderServiceStatusData statusData);
+
+    void publishAll(String routingKey, List<OrderServiceStatusData> statusData);
+}
@@ -0,0 +1,200 @@
+package br.com.itau.secure.domain.service;
+
+import br.com.itau.secure.api.model.OrderServiceStatusData;
+import br.com.itau.secure.commom.HashedTimingWheel;
+import br.com.itau.secure.domain.exception.ConcurrentTransitionException;
+import br.com.itau.secure.domain.model.PendingOrder;
+import br.com.itau.secure.domain.model.SecureOrder;
+import br.com.itau.secure.domain.repository.SecureOrderRepository;
+import br.com.itau.secure.domain.service.status.SecureOrderEvent;
+import br.com.itau.secure.domain.service.status.SecureOrderStatus;
+import br.com.itau.secure.domain.service.status.SecureOrderStatusService;
+import br.com.itau.secure.domain.service.status.SecureOrderTransitionTable;
+import br.com.itau.secure.domain.service.status.TransitionInput;
+import br.com.itau.secure.domain.service.status.TransitionOutcome;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// Prazo de resposta de pagamento e subscrição para pedidos em PENDING. Os prazos ficam numa HashedTimingWheel em
+// memória; o prazo persistido é o timestamp da entrada em PENDING no history (+ sla), recuperado do Mongo na subida
+// e de novo a cada rescan-interval, para pegar pedidos gravados por outra instância (ou por uma que caiu).
+// Cada pedido entra na roda uma única vez, mesmo que apareça em vários rescans.
+// No vencimento o pedido é relido, fora da thread de agendamento, por um executor próprio: se ainda estiver em
+// PENDING é rejeitado (reject) ou tem a solicitação de pagamento e subscrição reenviada (repoll) até max-repolls,
+// e depois rejeitado. Com várias instâncias todas recuperam os mesmos prazos; a gravação condicional deixa só a
+// primeira rejeitar.
+@Slf4j
+@Component
+public class PendingOrderDeadlineScheduler {
+    static final String PENDING_DEADLINES_GAUGE = "secure_order.pending_deadlines";
+
+    public enum Action {
+        REJECT,
+        REPOLL
+    }
+
+    // repolls já feitos para o pedido; recomeça do zero após reiniciar a aplicação
+    record PendingDeadline(String orderId, int repolls) {
+    }
+
+    private final SecureOrderRepository secureOrderRepository;
+    private final SecureOrderService secureOrderService;
+    private final OrderEventPublisher orderEventPublisher;
+    private final HashedTimingWheel<PendingDeadline> wheel;
+    // pedidos com prazo na roda ou em tratamento; evita agendar de novo o que o rescan encontrar
+    private final Set<String> trackedOrderIds = ConcurrentHashMap.newKeySet();
+    private final ExecutorService expirationExecutor;
+    private final boolean enabled;
+    private final Duration sla;
+    private final Action action;
+    private final int maxRepolls;
+
+    public PendingOrderDeadlineScheduler(SecureOrderRepository secureOrderRepository,
+                                         @Lazy SecureOrderService secureOrderService,
+                                         OrderEventPublisher orderEventPublisher,
+                                         MeterRegistry meterRegistry,
+                                         @Value("${secure-order.pending-deadline.enabled:false}") boolean enabled,
+                                         @Value("${secure-order.pending-deadline.sla:PT15M}") Duration sla,
+                                         @Value("${secure-order.pending-deadline.tick:PT1S}") Duration tick,
+                                         @Value("${secure-order.pending-deadline.wheel-size:4096}") int wheelSize,
+                                         @Value("${secure-order.pending-deadline.action:reject}") String action,
+                                         @Value("${secure-order.pending-deadline.max-repolls:2}") int maxRepolls,
+                                         @Value("${secure-order.pending-deadline.expiration-threads:2}") int expirationThreads) {
+        this.secureOrderRepository = secureOrderRepository;
+        this.secureOrderService = secureOrderService;
+        this.orderEventPublisher = orderEventPublisher;
+        this.enabled = enabled;
+        this.sla = sla;
+        this.action = Action.valueOf(action.trim().toUpperCase(Locale.ROOT));
+        this.maxRepolls = maxRepolls;
+        this.wheel = new HashedTimingWheel<>(tick.toMillis(), wheelSize, System.currentTimeMillis());
+        this.expirationExecutor = Executors.newFixedThreadPool(expirationThreads,
+                Thread.ofPlatform().name("pending-deadline-", 0).daemon().factory());
+        meterRegistry.gauge(PENDING_DEADLINES_GAUGE, wheel, HashedTimingWheel::size);
+    }
+
+    // chamado quando um pedido é gravado em PENDING
+    public void schedule(String orderId, Instant pendingSince) {
+        track(orderId, pendingSince);
+    }
+
+    private boolean track(String orderId, Instant pendingSince) {
+        if (!enabled || !trackedOrderIds.add(orderId)) {
+            return false;
+        }
+        wheel.schedule(new PendingDeadline(orderId, 0), pendingSince.plus(sla).toEpochMilli());
+        return true;
+    }
+
+    // na subida e a cada rescan-interval (por padrão metade do sla)
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${secure-order.pending-deadline.rescan-interval:PT7M30S}",
+            initialDelayString = "${secure-order.pending-deadline.rescan-interval:PT7M30S}")
+    public void recoverPendingDeadlines() {
+        if (!enabled) {
+            return;
+        }
+        long scanned = 0;
+        long recovered = 0;
+        try (Stream<PendingOrder> pendingOrders = secureOrderRepository.streamPendingOrders()) {
+            for (PendingOrder pendingOrder : (Iterable<PendingOrder>) pendingOrders::iterator) {
+                Instant pendingSince = pendingOrder.pendingSince() != null ? pendingOrder.pendingSince() : Instant.now();
+                if (track(pendingOrder.id(), pendingSince)) {
+                    recovered++;
+                }
+                scanned++;
+            }
+        } catch (RuntimeException e) {
+            log.error("Could not recover deadlines of pending secure orders after {} orders", scanned, e);
+        }
+        log.info("Recovered {} new pending secure order deadlines out of {} pending orders (sla {})", recovered, scanned, sla);
+    }
+
+    @Scheduled(fixedDelayString = "${secure-order.pending-deadline.tick:PT1S}")
+    public void expireDeadlines() {
+        if (!enabled) {
+            return;
+        }
+        // a thread de agendamento só avança a roda; leitura e gravação no Mongo ficam no executor dos vencimentos
+        int expired = wheel.advance(System.currentTimeMillis(),
+                deadline -> expirationExecutor.execute(() -> onDeadline(deadline)));
+        if (expired > 0) {
+            log.info("Handed off {} expired pending secure order deadlines", expired);
+        }
+    }
+
+    void onDeadline(PendingDeadline deadline) {
+        boolean rescheduled = false;
+        try {
+            SecureOrder secureOrder = secureOrderService.findById(deadline.orderId());
+            if (secureOrder.getStatus() != SecureOrderStatus.PENDING) {
+                // a resposta chegou antes do prazo
+                return;
+            }
+            if (action == Action.REPOLL && deadline.repolls() < maxRepolls) {
+                repoll(deadline);
+                rescheduled = true;
+            } else {
+                reject(secureOrder);
+            }
+        } catch (ConcurrentTransitionException e) {
+            log.info("Order {} left PENDING while its deadline expired", deadline.orderId());
+        } catch (RuntimeException e) {
+            // banco ou broker indisponível: tenta de novo no próximo prazo
+            log.error("Could not handle expired deadline of order {}, rescheduling", deadline.orderId(), e);
+            wheel.schedule(deadline, Instant.now().plus(sla).toEpochMilli());
+            rescheduled = true;
+        } finally {
+            if (!rescheduled) {
+                trackedOrderIds.remove(deadline.orderId());
+            }
+        }
+    }
+
+    // espera os vencimentos já entregues ao executor terminarem
+    @PreDestroy
+    void shutdown() {
+        expirationExecutor.shutdown();
+        try {
+            if (!expirationExecutor.awaitTermination(10, TimeUnit.SECONDS)) {
+                expirationExecutor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            expirationExecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void repoll(PendingDeadline deadline) {
+        log.info("Order {} has no payment/subscription response after {}, requesting again (repoll {} of {})",
+                deadline.orderId(), sla, deadline.repolls() + 1, maxRepolls);
+        orderEventPublisher.publish(SecureOrderStatusService.ORDER_SECURE_STATUS_PENDING_PAYMENT_SUBSCRIPTION_KEY,
+                new OrderServiceStatusData(deadline.orderId(), SecureOrderStatus.PENDING.toString(), null));
+        wheel.schedule(new PendingDeadline(deadline.orderId(), deadline.repolls() + 1), Instant.now().plus(sla).toEpochMilli());
+    }
+
+    private void reject(SecureOrder secureOrder) {
+        if (SecureOrderTransitionTable.apply(secureOrder, SecureOrderEvent.REJECT, TransitionInput.none()) != TransitionOutcome.APPLIED) {
+            return;
+        }
+        log.info("Order {} rejected: no payment/subscription response within {}", secureOrder.getId(), sla);
+        secureOrderService.createUpdateSecureOrder(secureOrder);
+    }
+}
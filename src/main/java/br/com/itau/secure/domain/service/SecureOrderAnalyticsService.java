@@ -0,0 +1,62 @@
+package br.com.itau.secure.domain.service;
+
+import br.com.itau.secure.api.model.ApprovalFunnelResponse;
+import br.com.itau.secure.domain.exception.InvalidAnalyticsQueryException;
+import br.com.itau.secure.domain.model.FunnelDimension;
+import br.com.itau.secure.domain.repository.SecureOrderAnalyticsRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+@Service
+public class SecureOrderAnalyticsService {
+    public static final String CACHE_NAME = "approvalFunnel";
+
+    private final SecureOrderAnalyticsRepository secureOrderAnalyticsRepository;
+    private final Duration defaultWindow;
+    private final Duration maxWindow;
+    private final Cache<FunnelQuery, ApprovalFunnelResponse> cache;
+
+    public SecureOrderAnalyticsService(SecureOrderAnalyticsRepository secureOrderAnalyticsRepository, MeterRegistry meterRegistry,
+                                       @Value("${secure-order.analytics.default-window:24h}") Duration defaultWindow,
+                                       @Value("${secure-order.analytics.max-window:31d}") Duration maxWindow,
+                                       @Value("${secure-order.analytics.cache.ttl:30s}") Duration cacheTtl,
+                                       @Value("${secure-order.analytics.cache.maximum-size:1000}") long cacheMaximumSize) {
+        this.secureOrderAnalyticsRepository = secureOrderAnalyticsRepository;
+        this.defaultWindow = defaultWindow;
+        this.maxWindow = maxWindow;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(cacheMaximumSize)
+                .expireAfterWrite(cacheTtl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    // As janelas são alinhadas ao minuto para que painéis consultando "agora" reaproveitem o resultado em cache.
+    public ApprovalFunnelResponse approvalFunnel(Instant from, Instant to, FunnelDimension groupBy, String category) {
+        Instant end = (to != null ? to : Instant.now()).truncatedTo(ChronoUnit.MINUTES);
+        Instant start = (from != null ? from : end.minus(defaultWindow)).truncatedTo(ChronoUnit.MINUTES);
+        if (!start.isBefore(end)) {
+            throw new InvalidAnalyticsQueryException("Time window must start before it ends: " + start + " - " + end);
+        }
+        if (Duration.between(start, end).compareTo(maxWindow) > 0) {
+            throw new InvalidAnalyticsQueryException("Time window exceeds the limit of " + maxWindow.toDays() + " days.");
+        }
+
+        return cache.get(new FunnelQuery(start, end, groupBy, category), query -> new ApprovalFunnelResponse(start, end, groupBy,
+                secureOrderAnalyticsRepository.approvalFunnel(start, end, groupBy, category).stream()
+                        .map(ApprovalFunnelResponse.Bucket::fromBucket)
+                        .toList()));
+    }
+
+    private record FunnelQuery(Instant from, Instant to, FunnelDimension groupBy, String category) {
+    }
+}
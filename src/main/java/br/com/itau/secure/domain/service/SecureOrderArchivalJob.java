@@ -0,0 +1,96 @@
+package br.com.itau.secure.domain.service;
+
+import br.com.itau.secure.domain.repository.SecureOrderArchiveRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+
+// Move pedidos em estado terminal para secure_orders_archive, mantendo a coleção principal e seus índices enxutos.
+// Lotes pequenos, pausa entre lotes e limite de lotes por execução evitam competir com o tráfego.
+// Com várias instâncias só roda na que adquirir a trava "secure-orders-archival"; lease-ttl deve cobrir uma execução.
+@Slf4j
+@Component
+public class SecureOrderArchivalJob {
+    static final String LEASE_NAME = "secure-orders-archival";
+
+    private final SecureOrderArchiveRepository secureOrderArchiveRepository;
+    private final LeaseService leaseService;
+    private final boolean enabled;
+    private final Duration minAge;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+    private final Duration pauseBetweenBatches;
+    private final Duration leaseTtl;
+
+    public SecureOrderArchivalJob(SecureOrderArchiveRepository secureOrderArchiveRepository,
+                                  LeaseService leaseService,
+                                  @Value("${secure-order.archive.enabled:false}") boolean enabled,
+                                  @Value("${secure-order.archive.min-age:30d}") Duration minAge,
+                                  @Value("${secure-order.archive.batch-size:200}") int batchSize,
+                                  @Value("${secure-order.archive.max-batches-per-run:50}") int maxBatchesPerRun,
+                                  @Value("${secure-order.archive.pause-between-batches:1s}") Duration pauseBetweenBatches,
+                                  @Value("${secure-order.archive.lease-ttl:PT15M}") Duration leaseTtl) {
+        this.secureOrderArchiveRepository = secureOrderArchiveRepository;
+        this.leaseService = leaseService;
+        this.enabled = enabled;
+        this.minAge = minAge;
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+        this.pauseBetweenBatches = pauseBetweenBatches;
+        this.leaseTtl = leaseTtl;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureArchiveIndexes() {
+        try {
+            secureOrderArchiveRepository.ensureIndexes();
+        } catch (RuntimeException e) {
+            log.warn("Could not create indexes on {}: {}", SecureOrderArchiveRepository.ARCHIVE_COLLECTION, e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${secure-order.archive.interval:PT10M}", initialDelayString = "${secure-order.archive.initial-delay:PT1M}")
+    public void archiveTerminalOrders() {
+        if (!enabled) {
+            return;
+        }
+        if (!leaseService.tryAcquire(LEASE_NAME, leaseTtl)) {
+            log.debug("Archival of terminal secure orders is running on another instance");
+            return;
+        }
+        try {
+            archive();
+        } finally {
+            leaseService.release(LEASE_NAME);
+        }
+    }
+
+    private void archive() {
+        Instant createdBefore = Instant.now().minus(minAge);
+        int archived = 0;
+        try {
+            for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+                int found = secureOrderArchiveRepository.archiveBatch(createdBefore, batchSize);
+                archived += found;
+                if (found < batchSize) {
+                    break;
+                }
+                Thread.sleep(pauseBetweenBatches.toMillis());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            log.error("Archival of terminal secure orders failed after {} orders", archived, e);
+        }
+
+        if (archived > 0) {
+            log.info("Archived {} terminal secure orders created before {}", archived, createdBefore);
+        }
+    }
+}
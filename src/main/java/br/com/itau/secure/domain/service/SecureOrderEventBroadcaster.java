@@ -0,0 +1,144 @@
+package br.com.itau.secure.domain.service;
+
+import br.com.itau.secure.api.model.SecureOrderStatusEvent;
+import br.com.itau.secure.domain.model.SecureOrder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+// Fan-out em memória das transições de status para os clientes SSE.
+// Cada pedido observado tem uma única assinatura interna, compartilhada por todos os seus emitters.
+@Slf4j
+@Component
+public class SecureOrderEventBroadcaster {
+    public static final String STATUS_EVENT_NAME = "status";
+
+    private final Map<String, OrderSubscription> subscriptions = new ConcurrentHashMap<>();
+    private final Executor executor;
+    private final long emitterTimeoutMillis;
+
+    public SecureOrderEventBroadcaster(@Qualifier("applicationTaskExecutor") Executor executor,
+                                       @Value("${secure-order.events.timeout:30m}") Duration emitterTimeout) {
+        this.executor = executor;
+        this.emitterTimeoutMillis = emitterTimeout.toMillis();
+    }
+
+    // A assinatura é registrada antes de ler o pedido: uma transição gravada depois da leitura chega pelo publish,
+    // e a leitura (direto do banco, não do cache) já enxerga as gravadas antes do registro. Assim nenhuma transição
+    // cai no intervalo entre ler e assinar; no pior caso o estado atual é enviado duas vezes.
+    public SseEmitter subscribe(String orderId, Supplier<SecureOrder> currentOrder) {
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMillis);
+        subscriptions.compute(orderId, (id, subscription) -> {
+            OrderSubscription target = subscription != null ? subscription : new OrderSubscription(id);
+            target.emitters.add(emitter);
+            return target;
+        });
+
+        SecureOrder secureOrder;
+        try {
+            secureOrder = currentOrder.get();
+        } catch (RuntimeException e) {
+            unsubscribe(orderId, emitter);
+            throw e;
+        }
+
+        SecureOrderStatusEvent current = SecureOrderStatusEvent.lastTransitionOf(secureOrder);
+        if (secureOrder.getStatus().isTerminal()) {
+            unsubscribe(orderId, emitter);
+            send(emitter, current);
+            emitter.complete();
+            return emitter;
+        }
+
+        emitter.onCompletion(() -> unsubscribe(orderId, emitter));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(error -> unsubscribe(orderId, emitter));
+
+        send(emitter, current);
+        return emitter;
+    }
+
+    // Chamado após a gravação do pedido com as transições gravadas nela: uma gravação pode levar várias
+    // (RECEIVED→VALIDATED→PENDING→final), e cada uma vira um evento, na ordem do history.
+    // Sem assinantes para o pedido, o custo é uma consulta ao mapa.
+    public void publish(String orderId, List<SecureOrder.History> transitions) {
+        OrderSubscription subscription = subscriptions.get(orderId);
+        if (subscription == null || transitions.isEmpty()) {
+            return;
+        }
+
+        for (SecureOrder.History transition : transitions) {
+            subscription.pending.add(SecureOrderStatusEvent.of(orderId, transition));
+        }
+        // um único drain por pedido de cada vez mantém a ordem das transições
+        if (subscription.draining.compareAndSet(false, true)) {
+            executor.execute(() -> drain(subscription));
+        }
+    }
+
+    boolean hasSubscribers(String orderId) {
+        return subscriptions.containsKey(orderId);
+    }
+
+    private void drain(OrderSubscription subscription) {
+        do {
+            SecureOrderStatusEvent event;
+            while ((event = subscription.pending.poll()) != null) {
+                for (SseEmitter emitter : subscription.emitters) {
+                    send(emitter, event);
+                }
+                if (event.status().isTerminal()) {
+                    subscriptions.remove(subscription.orderId, subscription);
+                    subscription.emitters.forEach(SseEmitter::complete);
+                    subscription.pending.clear();
+                    return;
+                }
+            }
+            subscription.draining.set(false);
+        } while (!subscription.pending.isEmpty() && subscription.draining.compareAndSet(false, true));
+    }
+
+    private void unsubscribe(String orderId, SseEmitter emitter) {
+        subscriptions.computeIfPresent(orderId, (id, subscription) -> {
+            subscription.emitters.remove(emitter);
+            return subscription.emitters.isEmpty() ? null : subscription;
+        });
+    }
+
+    private void send(SseEmitter emitter, SecureOrderStatusEvent event) {
+        try {
+            emitter.send(SseEmitter.event().name(STATUS_EVENT_NAME).data(event));
+        } catch (IOException | IllegalStateException e) {
+            // cliente desconectado
+            log.debug("Failed to send status event for order {}: {}", event.orderId(), e.getMessage());
+            unsubscribe(event.orderId(), emitter);
+            emitter.completeWithError(e);
+        }
+    }
+
+    private static final class OrderSubscription {
+        private final String orderId;
+        private final Set<SseEmitter> emitters = new CopyOnWriteArraySet<>();
+        private final Queue<SecureOrderStatusEvent> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+        private OrderSubscription(String orderId) {
+            this.orderId = orderId;
+        }
+    }
+}
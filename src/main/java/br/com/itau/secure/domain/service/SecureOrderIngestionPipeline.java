@@ -0,0 +1,241 @@
+package br.com.itau.secure.domain.service;
+
+import br.com.itau.secure.domain.exception.IngestionOverloadedException;
+import br.com.itau.secure.domain.model.SecureOrder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// Modo de aceite assíncrono: o pedido entra num buffer limitado e um worker grava e publica em lotes.
+// Pedidos aceitos e ainda não gravados se perdem se a instância cair antes do flush.
+// Falhas de gravação são retentadas até flush-attempts vezes; o que sobra é descartado, contado em
+// secure_order.ingestion.dropped e tem a Idempotency-Key liberada. Só a gravação é retentada: um pedido gravado
+// nunca é descartado. Se a publicação falhar ela é retentada à parte e, esgotadas as tentativas, os pedidos
+// ficam gravados em RECEIVED, contados em secure_order.ingestion.unpublished, com a chave mantida.
+@Slf4j
+@Service
+@ConditionalOnProperty(prefix = "secure-order.ingestion.async", name = "enabled", havingValue = "true")
+public class SecureOrderIngestionPipeline implements SmartLifecycle {
+    private static final long POLL_TIMEOUT_MILLIS = 100;
+    static final String DROPPED_COUNTER = "secure_order.ingestion.dropped";
+    static final String UNPUBLISHED_COUNTER = "secure_order.ingestion.unpublished";
+
+    private final SecureOrderService secureOrderService;
+    private final IdempotencyKeyService idempotencyKeyService;
+    private final BlockingQueue<AcceptedOrder> buffer;
+    private final int capacity;
+    private final int batchSize;
+    private final long retryAfterSeconds;
+    private final long shutdownTimeoutMillis;
+    private final int flushAttempts;
+    private final Duration flushRetryBackoff;
+    private final Counter droppedOrders;
+    private final Counter unpublishedOrders;
+    private volatile boolean running;
+    private Thread worker;
+
+    // a Idempotency-Key reservada no aceite acompanha o pedido: se a gravação falhar ela é liberada
+    // para que a retentativa do cliente crie o pedido de novo em vez de receber um Location que nunca existirá
+    record AcceptedOrder(SecureOrder secureOrder, String idempotencyKey) {
+    }
+
+    public SecureOrderIngestionPipeline(SecureOrderService secureOrderService, IdempotencyKeyService idempotencyKeyService,
+                                        MeterRegistry meterRegistry,
+                                        @Value("${secure-order.ingestion.async.capacity:10000}") int capacity,
+                                        @Value("${secure-order.ingestion.async.batch-size:200}") int batchSize,
+                                        @Value("${secure-order.ingestion.async.retry-after-seconds:1}") long retryAfterSeconds,
+                                        @Value("${secure-order.ingestion.async.shutdown-timeout-millis:10000}") long shutdownTimeoutMillis,
+                                        @Value("${secure-order.ingestion.async.flush-attempts:3}") int flushAttempts,
+                                        @Value("${secure-order.ingestion.async.flush-retry-backoff:500ms}") Duration flushRetryBackoff) {
+        this.secureOrderService = secureOrderService;
+        this.idempotencyKeyService = idempotencyKeyService;
+        this.buffer = new ArrayBlockingQueue<>(capacity);
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.shutdownTimeoutMillis = shutdownTimeoutMillis;
+        this.flushAttempts = flushAttempts;
+        this.flushRetryBackoff = flushRetryBackoff;
+        this.droppedOrders = meterRegistry.counter(DROPPED_COUNTER);
+        this.unpublishedOrders = meterRegistry.counter(UNPUBLISHED_COUNTER);
+        meterRegistry.gauge("secure_order.ingestion.buffer.size", buffer, BlockingQueue::size);
+    }
+
+    // Retorna o id do pedido aceito: o do pedido informado ou, numa retentativa com Idempotency-Key, o do original.
+    public String submit(SecureOrder secureOrder, String idempotencyKey) {
+        boolean idempotent = idempotencyKey != null && !idempotencyKey.isBlank();
+        if (idempotent) {
+            String originalOrderId = idempotencyKeyService.claim(idempotencyKey, secureOrder.getId());
+            if (originalOrderId != null) {
+                return originalOrderId;
+            }
+        }
+
+        if (!running || !buffer.offer(new AcceptedOrder(secureOrder, idempotent ? idempotencyKey : null))) {
+            if (idempotent) {
+                idempotencyKeyService.release(idempotencyKey);
+            }
+            throw new IngestionOverloadedException(capacity, retryAfterSeconds);
+        }
+        return secureOrder.getId();
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        worker = new Thread(this::drainLoop, "secure-order-ingestion");
+        worker.start();
+    }
+
+    @Override
+    public void stop() {
+        // para de aceitar e deixa o worker esvaziar o buffer antes de encerrar
+        running = false;
+        try {
+            worker.join(shutdownTimeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!buffer.isEmpty()) {
+            log.error("{} accepted secure orders were not persisted before shutdown", buffer.size());
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void drainLoop() {
+        List<AcceptedOrder> batch = new ArrayList<>(batchSize);
+        while (running || !buffer.isEmpty()) {
+            try {
+                AcceptedOrder first = buffer.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                buffer.drainTo(batch, batchSize - 1);
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    // o cliente já recebeu 202 com o Location: as falhas são retentadas com pausa crescente antes do descarte
+    private void flush(List<AcceptedOrder> batch) {
+        List<SecureOrder> inserted = new ArrayList<>(batch.size());
+        List<AcceptedOrder> failed = insert(batch, false, inserted);
+        for (int attempt = 1; !failed.isEmpty() && attempt < flushAttempts; attempt++) {
+            log.warn("Retrying {} accepted secure orders that could not be persisted (attempt {} of {})",
+                    failed.size(), attempt + 1, flushAttempts);
+            if (!pause(attempt)) {
+                break;
+            }
+            failed = insert(failed, true, inserted);
+        }
+
+        for (AcceptedOrder acceptedOrder : failed) {
+            log.error("Dropping accepted secure order {} after {} attempts", acceptedOrder.secureOrder().getId(), flushAttempts);
+            droppedOrders.increment();
+            releaseIdempotencyKey(acceptedOrder);
+        }
+
+        if (!inserted.isEmpty()) {
+            publish(inserted);
+        }
+    }
+
+    // grava o lote e devolve os pedidos que não foram gravados; os gravados vão para inserted
+    private List<AcceptedOrder> insert(List<AcceptedOrder> batch, boolean retry, List<SecureOrder> inserted) {
+        Map<Integer, String> failures;
+        try {
+            failures = secureOrderService.insertSecureOrders(batch.stream().map(AcceptedOrder::secureOrder).toList());
+        } catch (RuntimeException e) {
+            log.error("Failed to persist batch of {} accepted secure orders", batch.size(), e);
+            return List.copyOf(batch);
+        }
+
+        List<AcceptedOrder> failed = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+            SecureOrder secureOrder = batch.get(i).secureOrder();
+            String error = failures.get(i);
+            if (error == null) {
+                inserted.add(secureOrder);
+                markIdempotencyKeyPersisted(batch.get(i));
+            } else if (retry && SecureOrderService.isDuplicateIdError(error)) {
+                // a tentativa anterior gravou o pedido antes de falhar
+                log.info("Accepted secure order {} was already persisted by a previous attempt", secureOrder.getId());
+                secureOrder.markTransitionsPersisted();
+                inserted.add(secureOrder);
+                markIdempotencyKeyPersisted(batch.get(i));
+            } else {
+                log.error("Accepted secure order {} could not be persisted: {}", secureOrder.getId(), error);
+                failed.add(batch.get(i));
+            }
+        }
+        return failed;
+    }
+
+    // os pedidos já estão gravados: a falha na publicação não os descarta nem libera as chaves
+    private void publish(List<SecureOrder> inserted) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                secureOrderService.publishCreatedSecureOrders(inserted);
+                return;
+            } catch (RuntimeException e) {
+                if (attempt >= flushAttempts || !pause(attempt)) {
+                    log.error("Could not publish {} persisted secure orders after {} attempts, they stay in RECEIVED",
+                            inserted.size(), attempt, e);
+                    unpublishedOrders.increment(inserted.size());
+                    return;
+                }
+                log.warn("Retrying publication of {} persisted secure orders (attempt {} of {}): {}",
+                        inserted.size(), attempt + 1, flushAttempts, e.getMessage());
+            }
+        }
+    }
+
+    private boolean pause(int attempt) {
+        try {
+            Thread.sleep(flushRetryBackoff.toMillis() * attempt);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void markIdempotencyKeyPersisted(AcceptedOrder acceptedOrder) {
+        if (acceptedOrder.idempotencyKey() != null) {
+            idempotencyKeyService.markPersisted(acceptedOrder.idempotencyKey(), acceptedOrder.secureOrder().getId());
+        }
+    }
+
+    private void releaseIdempotencyKey(AcceptedOrder acceptedOrder) {
+        if (acceptedOrder.idempotencyKey() == null) {
+            return;
+        }
+        try {
+            idempotencyKeyService.release(acceptedOrder.idempotencyKey());
+        } catch (RuntimeException e) {
+            log.error("Could not release Idempotency-Key of order {}", acceptedOrder.secureOrder().getId(), e);
+        }
+    }
+}
@@ -1,49 +1,339 @@
 package br.com.itau.secure.domain.service;
 
+import br.com.itau.secure.api.model.CursorPage;
+import br.com.itau.secure.api.model.SecureOrderBatchItemResponse;
 import br.com.itau.secure.api.model.SecureOrderResponse;
+import br.com.itau.secure.api.model.SecureOrderSummaryResponse;
+import br.com.itau.secure.domain.exception.ConcurrentTransitionException;
+import br.com.itau.secure.domain.exception.IdempotencyKeyInProgressException;
+import br.com.itau.secure.domain.exception.IllegalTransitionException;
 import br.com.itau.secure.domain.exception.ResourceNotFoundException;
 import br.com.itau.secure.domain.model.SecureOrder;
+import br.com.itau.secure.domain.model.SecureOrderSummary;
+import br.com.itau.secure.domain.model.SecureOrderVersion;
+import br.com.itau.secure.domain.repository.SecureOrderArchiveRepository;
 import br.com.itau.secure.domain.repository.SecureOrderRepository;
+import br.com.itau.secure.domain.service.status.SecureOrderEvent;
+import br.com.itau.secure.domain.service.status.SecureOrderStatus;
 import br.com.itau.secure.domain.service.status.SecureOrderStatusService;
+import br.com.itau.secure.domain.service.status.SecureOrderTransitionTable;
+import br.com.itau.secure.domain.service.status.TransitionInput;
+import br.com.itau.secure.domain.service.status.TransitionOutcome;
+import br.com.itau.secure.infraestructure.cache.SecureOrderCache;
+import br.com.itau.secure.infraestructure.config.mongo.SecureOrderWriteConcernPolicy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionOperations;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 @Slf4j
 @Service
 public class SecureOrderService {
+    private static final int MAX_PAGE_SIZE = 200;
+    public static final int MAX_TRANSITION_ATTEMPTS = 3;
     private final SecureOrderRepository secureOrderRepository;
     private final SecureOrderStatusService secureOrderStatusService;
+    private final SecureOrderCache secureOrderCache;
+    private final IdempotencyKeyService idempotencyKeyService;
+    private final SecureOrderEventBroadcaster secureOrderEventBroadcaster;
+    private final SecureOrderArchiveRepository secureOrderArchiveRepository;
+    private final TransactionOperations transactionOperations;
+    private final CustomerOrderStatsService customerOrderStatsService;
+    private final SecureOrderWriteConcernPolicy writeConcernPolicy;
 
-    public SecureOrderService(SecureOrderRepository secureOrderRepository,SecureOrderStatusService secureOrderStatusService) {
+    public SecureOrderService(SecureOrderRepository secureOrderRepository, SecureOrderStatusService secureOrderStatusService,
+                              SecureOrderCache secureOrderCache, IdempotencyKeyService idempotencyKeyService,
+                              SecureOrderEventBroadcaster secureOrderEventBroadcaster,
+                              SecureOrderArchiveRepository secureOrderArchiveRepository,
+                              TransactionOperations transactionOperations,
+                              CustomerOrderStatsService customerOrderStatsService,
+                              SecureOrderWriteConcernPolicy writeConcernPolicy) {
         this.secureOrderRepository = secureOrderRepository;
+        this.secureOrderArchiveRepository = secureOrderArchiveRepository;
         this.secureOrderStatusService = secureOrderStatusService;
+        this.secureOrderCache = secureOrderCache;
+        this.idempotencyKeyService = idempotencyKeyService;
+        this.secureOrderEventBroadcaster = secureOrderEventBroadcaster;
+        this.transactionOperations = transactionOperations;
+        this.customerOrderStatsService = customerOrderStatsService;
+        this.writeConcernPolicy = writeConcernPolicy;
     }
 
     public SecureOrder findById(String id) {
+        SecureOrder cached = secureOrderCache.get(id);
+        if (cached != null) {
+            return cached;
+        }
+
+        SecureOrder secureOrder = findByIdUncached(id);
+        secureOrderCache.put(secureOrder);
+        return secureOrder;
+    }
+
+    // leitura direta do banco, sem a cópia do cache (que pode estar alguns segundos atrás)
+    public SecureOrder findByIdUncached(String id) {
+        // pedidos terminais antigos podem já ter sido movidos para o arquivo
         return secureOrderRepository.findById(id)
+                .or(() -> secureOrderArchiveRepository.findById(id))
+                .orElseThrow(() -> new ResourceNotFoundException("SecureOrder not found with id: " + id));
+    }
+
+    public SecureOrderVersion findVersionById(String id) {
+        return secureOrderRepository.findVersionById(id)
+                .or(() -> secureOrderArchiveRepository.findVersionById(id))
                 .orElseThrow(() -> new ResourceNotFoundException("SecureOrder not found with id: " + id));
     }
 
-    
     public List<SecureOrderResponse> findByCustomerId(String customerId) {
-        return secureOrderRepository.findByCustomerId(customerId)
-                .stream()
+        return Stream.concat(secureOrderRepository.findByCustomerId(customerId).stream(),
+                        secureOrderArchiveRepository.findByCustomerId(customerId, null, 0, SecureOrder.class).stream())
                 .map(SecureOrderResponse::fromEntity)
                 .toList();
     }
 
+    // Paginação por cursor sobre o _id (UUIDv7, ordenado pelo tempo de criação), do mais recente para o mais antigo.
+    // O cursor é o último id retornado e a página seguinte busca somente ids menores que ele.
+    public CursorPage<SecureOrderResponse> findByCustomerId(String customerId, String after, int limit) {
+        return findPage(customerId, after, limit, SecureOrder.class, SecureOrder::getId, SecureOrderResponse::fromEntity);
+    }
+
+    public CursorPage<SecureOrderSummaryResponse> findSummariesByCustomerId(String customerId, String after, int limit) {
+        return findPage(customerId, after, limit, SecureOrderSummary.class, SecureOrderSummary::id, SecureOrderSummaryResponse::fromSummary);
+    }
+
+    private <T, R> CursorPage<R> findPage(String customerId, String after, int limit, Class<T> type,
+                                          Function<T, String> idExtractor, Function<T, R> mapper) {
+        int pageSize = Math.min(Math.max(limit, 1), MAX_PAGE_SIZE);
+        Limit fetchLimit = Limit.of(pageSize + 1);
+
+        List<T> results = new ArrayList<>(after == null || after.isBlank()
+                ? secureOrderRepository.findByCustomerIdOrderByIdDesc(customerId, fetchLimit, type)
+                : secureOrderRepository.findByCustomerIdAndIdLessThanOrderByIdDesc(customerId, after, fetchLimit, type));
+        // o arquivo usa o mesmo cursor: as duas fontes são intercaladas pelo _id
+        List<T> archived = secureOrderArchiveRepository.findByCustomerId(customerId, after, pageSize + 1, type);
+        if (!archived.isEmpty()) {
+            results.addAll(archived);
+            results.sort(Comparator.comparing(idExtractor).reversed());
+        }
+
+        String nextCursor = null;
+        if (results.size() > pageSize) {
+            results = results.subList(0, pageSize);
+            nextCursor = idExtractor.apply(results.get(pageSize - 1));
+        }
+
+        return new CursorPage<>(results.stream().map(mapper).toList(), nextCursor);
+    }
+
+    // O stream mantém um cursor aberto no MongoDB: quem chama deve fechá-lo (try-with-resources).
+    public Stream<SecureOrderResponse> streamByCustomerId(String customerId) {
+        return mergeByIdDesc(secureOrderRepository.streamByCustomerIdOrderByIdDesc(customerId),
+                secureOrderArchiveRepository.streamByCustomerId(customerId))
+                .map(SecureOrderResponse::fromEntity);
+    }
+
+    // intercala dois cursores já ordenados por _id desc sem carregar nenhum deles em memória
+    private static Stream<SecureOrder> mergeByIdDesc(Stream<SecureOrder> first, Stream<SecureOrder> second) {
+        Iterator<SecureOrder> left = first.iterator();
+        Iterator<SecureOrder> right = second.iterator();
+        Iterator<SecureOrder> merged = new Iterator<>() {
+            private SecureOrder nextLeft = left.hasNext() ? left.next() : null;
+            private SecureOrder nextRight = right.hasNext() ? right.next() : null;
+
+            @Override
+            public boolean hasNext() {
+                return nextLeft != null || nextRight != null;
+            }
+
+            @Override
+            public SecureOrder next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                SecureOrder result;
+                if (nextRight == null || (nextLeft != null && nextLeft.getId().compareTo(nextRight.getId()) > 0)) {
+                    result = nextLeft;
+                    nextLeft = left.hasNext() ? left.next() : null;
+                } else {
+                    result = nextRight;
+                    nextRight = right.hasNext() ? right.next() : null;
+                }
+                return result;
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(merged, Spliterator.ORDERED), false)
+                .onClose(first::close)
+                .onClose(second::close);
+    }
 
     public SecureOrder createUpdateSecureOrder(SecureOrder secureOrder) {
-        SecureOrder secureOrderSaved = secureOrderRepository.save(secureOrder);
-        secureOrderStatusService.sendStatusUpdateToQueueProcessing(secureOrder, null);
+        // cópia das transições desta gravação: markTransitionsPersisted esvazia a lista pendente
+        List<SecureOrder.History> transitions = List.copyOf(secureOrder.pendingTransitions());
+        SecureOrder secureOrderSaved;
+        try {
+            // com o outbox ativo, o pedido e o evento são gravados na mesma transação
+            secureOrderSaved = transactionOperations.execute(status -> {
+                boolean isNew = secureOrder.isNew();
+                SecureOrderStatus previousStatus = secureOrder.getPersistedStatus();
+                SecureOrder saved = isNew
+                        ? writeConcernPolicy.recordCreate(() -> secureOrderRepository.save(secureOrder))
+                        : writeConcernPolicy.recordTransition(secureOrder.getStatus(), () -> appendTransitions(secureOrder));
+                // numa transação (outbox) as estatísticas entram no mesmo commit; sem ela vêm depois da publicação
+                // e uma falha não deixa o pedido gravado sem mensagem de processamento
+                boolean transactional = status.isNewTransaction();
+                if (transactional) {
+                    recordStats(saved, isNew, previousStatus);
+                }
+                saved.markTransitionsPersisted();
+                secureOrderCache.put(saved);
+                secureOrderStatusService.sendStatusUpdateToQueueProcessing(secureOrder, null);
+                if (!transactional) {
+                    tryRecordStats(saved, isNew, previousStatus);
+                }
+                return saved;
+            });
+        } catch (RuntimeException e) {
+            // o estado gravado é incerto: a próxima leitura vai ao banco
+            secureOrderCache.invalidate(secureOrder.getId());
+            throw e;
+        }
+        secureOrderEventBroadcaster.publish(secureOrderSaved.getId(), transitions);
         return secureOrderSaved;
     }
 
+    private void recordStats(SecureOrder saved, boolean isNew, SecureOrderStatus previousStatus) {
+        if (isNew) {
+            customerOrderStatsService.recordCreated(List.of(saved));
+        } else {
+            customerOrderStatsService.recordTransition(saved, previousStatus);
+        }
+    }
+
+    private void tryRecordStats(SecureOrder saved, boolean isNew, SecureOrderStatus previousStatus) {
+        if (isNew) {
+            customerOrderStatsService.tryRecordCreated(List.of(saved));
+        } else {
+            customerOrderStatsService.tryRecordTransition(saved, previousStatus);
+        }
+    }
+
+    // Com Idempotency-Key, uma retentativa devolve o pedido criado na primeira requisição sem gravar nem publicar de novo.
+    public SecureOrder createSecureOrder(SecureOrder secureOrder, String idempotencyKey) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return createUpdateSecureOrder(secureOrder);
+        }
+
+        String originalOrderId = idempotencyKeyService.claim(idempotencyKey, secureOrder.getId());
+        if (originalOrderId != null) {
+            return findOriginalOrder(originalOrderId, idempotencyKey);
+        }
+
+        SecureOrder created;
+        try {
+            created = createUpdateSecureOrder(secureOrder);
+        } catch (RuntimeException e) {
+            idempotencyKeyService.release(idempotencyKey);
+            throw e;
+        }
+        idempotencyKeyService.markPersisted(idempotencyKey, created.getId());
+        return created;
+    }
+
+    private SecureOrder findOriginalOrder(String originalOrderId, String idempotencyKey) {
+        try {
+            return findById(originalOrderId);
+        } catch (ResourceNotFoundException e) {
+            // a primeira requisição registrou a chave mas ainda não gravou o pedido
+            throw new IdempotencyKeyInProgressException(idempotencyKey);
+        }
+    }
+
+    private SecureOrder appendTransitions(SecureOrder secureOrder) {
+        if (!secureOrderRepository.appendTransitions(secureOrder)) {
+            if (secureOrderRepository.existsById(secureOrder.getId())) {
+                throw new ConcurrentTransitionException(secureOrder.getId());
+            }
+            throw new ResourceNotFoundException("SecureOrder not found with id: " + secureOrder.getId());
+        }
+        return secureOrder;
+    }
+
+    public List<SecureOrderBatchItemResponse> createSecureOrders(List<SecureOrder> secureOrders) {
+        Map<Integer, String> failures = insertSecureOrders(secureOrders);
+
+        List<SecureOrderBatchItemResponse> results = new ArrayList<>(secureOrders.size());
+        List<SecureOrder> inserted = new ArrayList<>(secureOrders.size() - failures.size());
+        for (int i = 0; i < secureOrders.size(); i++) {
+            SecureOrder secureOrder = secureOrders.get(i);
+            String error = failures.get(i);
+            if (error == null) {
+                inserted.add(secureOrder);
+                results.add(SecureOrderBatchItemResponse.accepted(i, secureOrder));
+            } else {
+                results.add(SecureOrderBatchItemResponse.failed(i, secureOrder, error));
+            }
+        }
+
+        log.info("Batch of {} secure orders persisted, {} failed", inserted.size(), failures.size());
+        publishCreatedSecureOrders(inserted);
+        return results;
+    }
+
+    // Só a gravação do lote: devolve o erro de cada pedido não gravado, pelo índice; os gravados ficam marcados.
+    public Map<Integer, String> insertSecureOrders(List<SecureOrder> secureOrders) {
+        Map<Integer, String> failures = writeConcernPolicy.recordBatchCreate(() -> secureOrderRepository.insertAll(secureOrders));
+        for (int i = 0; i < secureOrders.size(); i++) {
+            if (!failures.containsKey(i)) {
+                secureOrders.get(i).markTransitionsPersisted();
+            }
+        }
+        return failures;
+    }
+
+    // Passos seguintes à gravação de pedidos novos em lote: mensagens de processamento e, sem impedir a publicação,
+    // estatísticas (o lote não é gravado em transação).
+    public void publishCreatedSecureOrders(List<SecureOrder> inserted) {
+        secureOrderStatusService.sendStatusUpdatesToQueueProcessing(inserted);
+        customerOrderStatsService.tryRecordCreated(inserted);
+    }
+
+    // E11000 no índice de _id: o pedido (id gerado na aplicação) já está gravado
+    public static boolean isDuplicateIdError(String error) {
+        return error != null && error.contains("E11000") && error.contains("index: _id_");
+    }
+
 
     public SecureOrder cancelOrder(String id) {
-        SecureOrder securerOrder = this.findById(id);
-        securerOrder.getStatus().moveToCancel(securerOrder);
-        return this.createUpdateSecureOrder(securerOrder);
+        for (int attempt = 1; ; attempt++) {
+            SecureOrder securerOrder = this.findById(id);
+            TransitionOutcome outcome = SecureOrderTransitionTable.apply(securerOrder, SecureOrderEvent.CANCEL, TransitionInput.none());
+            if (outcome == TransitionOutcome.ILLEGAL) {
+                throw new IllegalTransitionException(id, securerOrder.getStatus(), SecureOrderEvent.CANCEL);
+            }
+            if (outcome == TransitionOutcome.IGNORED) {
+                // já cancelado: a repetição devolve o pedido sem gravar de novo
+                return securerOrder;
+            }
+            try {
+                return this.createUpdateSecureOrder(securerOrder);
+            } catch (ConcurrentTransitionException e) {
+                // outra transição foi gravada antes: relê o pedido e reavalia o cancelamento
+                if (attempt >= MAX_TRANSITION_ATTEMPTS) {
+                    throw e;
+                }
+                log.info("Concurrent transition on order {} while cancelling, retrying (attempt {})", id, attempt);
+            }
+        }
     }
 }
@@ -0,0 +1,27 @@
+package br.com.itau.secure.domain.service.status;
+
+import br.com.itau.secure.domain.model.SecureOrder;
+
+// Eventos que movem um pedido: cada um aciona o método correspondente da estratégia do status atual.
+public enum SecureOrderEvent {
+    VALIDATE((status, secureOrder, input) -> status.moveToValidate(secureOrder, input.fraudCheckResult())),
+    PEND((status, secureOrder, input) -> status.moveToPending(input.fraudCheckResult(), secureOrder)),
+    APPROVE((status, secureOrder, input) -> status.moveToApprove(secureOrder, input.payment(), input.subscription())),
+    REJECT((status, secureOrder, input) -> status.moveToReject(secureOrder)),
+    CANCEL((status, secureOrder, input) -> status.moveToCancel(secureOrder));
+
+    private final Action action;
+
+    SecureOrderEvent(Action action) {
+        this.action = action;
+    }
+
+    void fire(SecureOrder secureOrder, TransitionInput input) {
+        action.apply(secureOrder.getStatus(), secureOrder, input);
+    }
+
+    @FunctionalInterface
+    private interface Action {
+        void apply(SecureOrderStatus status, SecureOrder secureOrder, TransitionInput input);
+    }
+}
@@ -10,24 +10,44 @@ import br.com.itau.secure.domain.service.status.impl.TerminalStateStrategy;
 import br.com.itau.secure.domain.service.status.impl.ValidatedStateStrategy;
 
 public enum SecureOrderStatus {
-    RECEIVED(new ReceivedStateStrategy()),
-    VALIDATED(new ValidatedStateStrategy()),
-    PENDING(new PendingStateStrategy()),
-    REJECTED(new TerminalStateStrategy("REJECTED")), // Example of a generic terminal strategy
-    APPROVED(new TerminalStateStrategy("APPROVED") {
+    RECEIVED(1, new ReceivedStateStrategy()),
+    VALIDATED(2, new ValidatedStateStrategy()),
+    PENDING(3, new PendingStateStrategy()),
+    REJECTED(4, new TerminalStateStrategy("REJECTED")), // Example of a generic terminal strategy
+    APPROVED(5, new TerminalStateStrategy("APPROVED") {
         @Override
         public void moveToCancel(SecureOrder secureOrder) {
             throw new UnsupportedOperationException("PolicyRequest is APPROVED and cannot be cancelled.");
         }
     }),
-    CANCELLED(new TerminalStateStrategy("CANCELLED"));
+    CANCELLED(6, new TerminalStateStrategy("CANCELLED"));
 
+    // código fixo usado na gravação compacta no MongoDB: não reaproveitar nem reordenar
+    private final int code;
     private final SecureOrderStateStrategy strategy;
 
-    SecureOrderStatus(SecureOrderStateStrategy strategy) {
+    SecureOrderStatus(int code, SecureOrderStateStrategy strategy) {
+        this.code = code;
         this.strategy = strategy;
     }
 
+    public int getCode() {
+        return code;
+    }
+
+    public static SecureOrderStatus fromCode(int code) {
+        for (SecureOrderStatus status : values()) {
+            if (status.code == code) {
+                return status;
+            }
+        }
+        throw new IllegalArgumentException("Unknown SecureOrderStatus code: " + code);
+    }
+
+    public boolean isTerminal() {
+        return this.strategy instanceof TerminalStateStrategy;
+    }
+
     public void moveToValidate(SecureOrder secureOrder, FraudCheckResult fraudCheckResult) {
         this.strategy.moveToValidate(secureOrder, fraudCheckResult);
     }
@@ -2,75 +2,161 @@ package br.com.itau.secure.domain.service.status;
 
 import br.com.itau.secure.api.client.RiskClient;
 import br.com.itau.secure.api.model.*;
+import br.com.itau.secure.domain.exception.ConcurrentTransitionException;
 import br.com.itau.secure.domain.model.SecureOrder;
+import br.com.itau.secure.domain.service.OrderEventPublisher;
+import br.com.itau.secure.domain.service.PendingOrderDeadlineScheduler;
 import br.com.itau.secure.domain.service.SecureOrderService;
 import br.com.itau.secure.infraestructure.rbbitmq.consumer.fake.PaymentSubscriptionFakeConsumer;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
 
 @Service
 @Slf4j
 public class SecureOrderStatusService {
     public static final String ORDER_SECURE_STATUS_PROCESSING_KEY = "order.secure.status.processing";
     public static final String ORDER_SECURE_STATUS_PENDING_PAYMENT_SUBSCRIPTION_KEY = "order.secure.status.pending-payment-subscription";
-    @Value("${rabbitmq.exchange}")
-    private String exchangeName;
+    public static final String PROCESSING_MODE_CHANGE_STREAM = "change-stream";
+    // no modo change-stream as transições são disparadas pelo change stream de secure_orders, sem a volta pelo broker
+    @Value("${secure-order.processing.mode:rabbitmq}")
+    private String processingMode;
     @Value("${mock.fraud.id}")
     private String idOrderMockFraud;
     @Value("${mock.fraud.customer}")
     private String idCustomerMockFraud;
     private final SecureOrderService secureOrderService;
-    private final RabbitTemplate rabbitTemplate;
+    private final OrderEventPublisher orderEventPublisher;
     private final RiskClient riskClient;
+    private final PendingOrderDeadlineScheduler pendingOrderDeadlineScheduler;
 
 
 
-    public SecureOrderStatusService(@Lazy SecureOrderService secureOrderService, RabbitTemplate rabbitTemplate, RiskClient riskClient) {
+    public SecureOrderStatusService(@Lazy SecureOrderService secureOrderService, OrderEventPublisher orderEventPublisher, RiskClient riskClient,
+                                    PendingOrderDeadlineScheduler pendingOrderDeadlineScheduler) {
         this.secureOrderService = secureOrderService;
-        this.rabbitTemplate = rabbitTemplate;
+        this.orderEventPublisher = orderEventPublisher;
         this.riskClient = riskClient;
+        this.pendingOrderDeadlineScheduler = pendingOrderDeadlineScheduler;
     }
 
-    @Transactional
     public void processSecureOrder(OrderServiceStatusData orderServiceStatusData) {
         log.info("Processing secure order with orderId: {}, queue status: {}",orderServiceStatusData.orderId(), orderServiceStatusData.status());
 
-        SecureOrder secureOrder = secureOrderService.findById(orderServiceStatusData.orderId());
+        SecureOrderStatus messageStatus = parseStatus(orderServiceStatusData.status());
+        if (messageStatus == null || SecureOrderTransitionTable.inProcessStep(messageStatus) == null) {
+            // status final ou desconhecido: não há passo a executar e o pedido nem precisa ser lido
+            log.debug("Order {} has no in-process step for status {}, skipping", orderServiceStatusData.orderId(), orderServiceStatusData.status());
+            return;
+        }
 
-        String eventType = orderServiceStatusData.status().toUpperCase();
-        SecureOrderStatus currentStatus = secureOrder.getStatus();
+        SecureOrderStatus startingStatus = null;
+        for (int attempt = 1; ; attempt++) {
+            SecureOrder secureOrder = secureOrderService.findById(orderServiceStatusData.orderId());
+            if (startingStatus != null && secureOrder.getStatus() != startingStatus) {
+                // outro consumidor já avançou o pedido: esta mensagem ficou obsoleta
+                log.info("Order {} moved from {} to {} concurrently, skipping event {}", secureOrder.getId(),
+                        startingStatus, secureOrder.getStatus(), messageStatus);
+                return;
+            }
+            startingStatus = secureOrder.getStatus();
+
+            try {
+                applyEvent(secureOrder, messageStatus, orderServiceStatusData.fraudCheckResult());
+                return;
+            } catch (ConcurrentTransitionException e) {
+                if (attempt >= SecureOrderService.MAX_TRANSITION_ATTEMPTS) {
+                    throw e;
+                }
+                log.info("Concurrent transition on order {}, reloading (attempt {})", secureOrder.getId(), attempt);
+            }
+        }
+    }
 
-        log.debug("Order {} is in state {}. Processing event type: {}", secureOrder.getId(), currentStatus, eventType);
+    private static SecureOrderStatus parseStatus(String status) {
+        try {
+            return status == null ? null : SecureOrderStatus.valueOf(status.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            log.warn("Unknown status '{}' in processing message", status);
+            return null;
+        }
+    }
 
-        switch (currentStatus) {
-            case RECEIVED:
-                handleReceivedStateEvent(secureOrder, eventType, orderServiceStatusData);
-                break;
-            case VALIDATED:
-                handleValidatedStateEvent(secureOrder, eventType, orderServiceStatusData);
-                break;
-            // somente pois nãao existe o serviço
-            case PENDING:
-                handlePendingStateEvent(secureOrder, eventType);
-                break;
-            case APPROVED:
-            case REJECTED:
-            case CANCELLED:
-                handleTerminalStateEvent(secureOrder, eventType, orderServiceStatusData);
+    // Evento vindo do change stream: o documento já é o estado gravado, não há releitura.
+    // Uma transição concorrente gera o seu próprio evento, então um conflito apenas encerra este.
+    public void processSecureOrderChange(SecureOrder secureOrder) {
+        log.info("Processing change on secure order {}, status: {}", secureOrder.getId(), secureOrder.getStatus());
+        try {
+            applyEvent(secureOrder, secureOrder.getStatus(), null);
+        } catch (ConcurrentTransitionException e) {
+            log.info("Order {} changed concurrently, its own change event will drive it", secureOrder.getId());
+        }
+    }
+
+    private boolean isChangeStreamMode() {
+        return PROCESSING_MODE_CHANGE_STREAM.equals(processingMode);
+    }
+
+    // Carrega uma vez, aplica em memória todas as transições que rodam no processo (RECEIVED→VALIDATED→PENDING→final)
+    // e grava uma única vez no final: o history recebe todas as transições num só update.
+    // O passo de cada status vem da SecureOrderTransitionTable.
+    private void applyEvent(SecureOrder secureOrder, SecureOrderStatus messageStatus, FraudCheckResult messageFraudCheckResult) {
+        log.debug("Order {} is in state {}. Processing event for status: {}", secureOrder.getId(), secureOrder.getStatus(), messageStatus);
+
+        FraudCheckResult fraudCheckResult = messageFraudCheckResult;
+        boolean paymentSubscriptionRequested = false;
+        SecureOrderEvent event;
+        while ((event = SecureOrderTransitionTable.inProcessStep(secureOrder.getStatus())) != null) {
+            TransitionInput input;
+            switch (event) {
+                case VALIDATE:
+                    fraudCheckResult = checkFraud(secureOrder);
+                    input = TransitionInput.fraudCheck(fraudCheckResult);
+                    break;
+                case PEND:
+                    input = validationInput(secureOrder, fraudCheckResult);
+                    break;
+                // somente pois nãao existe o serviço
+                case APPROVE:
+                    input = simulatePaymentSubscription(secureOrder);
+                    break;
+                default:
+                    input = null;
+                    break;
+            }
+            if (input == null) {
                 break;
-            default:
-                log.warn("Order {} is in an unhandled status {} for event processing.", secureOrder.getId(), currentStatus);
+            }
+
+            TransitionOutcome outcome = SecureOrderTransitionTable.apply(secureOrder, event, input);
+            if (outcome != TransitionOutcome.APPLIED) {
+                log.warn("Order {} in state {} did not apply {}: {}", secureOrder.getId(), secureOrder.getStatus(), event, outcome);
                 break;
+            }
+            if (event == SecureOrderEvent.PEND) {
+                paymentSubscriptionRequested = secureOrder.getStatus() == SecureOrderStatus.PENDING;
+            }
         }
 
+        if (secureOrder.pendingTransitions().isEmpty()) {
+            return;
+        }
+        SecureOrder secureOrderSaved = secureOrderService.createUpdateSecureOrder(secureOrder);
+        if (secureOrderSaved.getStatus() == SecureOrderStatus.PENDING) {
+            // gravado aguardando pagamento e subscrição: a resposta tem prazo
+            List<SecureOrder.History> history = secureOrderSaved.getHistory();
+            pendingOrderDeadlineScheduler.schedule(secureOrderSaved.getId(), history.get(history.size() - 1).getTimestamp());
+        }
+        if (paymentSubscriptionRequested) {
+            sendStatusUpdateToQueuePaymentSubscription(secureOrderSaved);
+        }
     }
 
-    private void handleReceivedStateEvent(SecureOrder secureOrder, String eventType, OrderServiceStatusData data) {
-        log.debug("Handling event '{}' for order {} in RECEIVED state.", eventType, secureOrder.getId());
+    private FraudCheckResult checkFraud(SecureOrder secureOrder) {
+        log.debug("Checking fraud for order {} in RECEIVED state.", secureOrder.getId());
         //Preciso editar pois os dados da api de fraude são provenientes de um mock então não uso os verdadeiros
         FraudCheckInput fraud;
         fraud = FraudCheckInput.builder()
@@ -79,62 +165,54 @@ public class SecureOrderStatusService {
                 .build();
 
         FraudCheckResult fraudCheckResult = riskClient.checkFraud(fraud);
-
-        secureOrder.getStatus().moveToValidate(secureOrder, fraudCheckResult);
-        SecureOrder secureOrderSaved = secureOrderService.createUpdateSecureOrder(secureOrder);
-        sendStatusUpdateToQueueProcessing(secureOrderSaved,fraudCheckResult);
-
-    }
-
-    private void handleValidatedStateEvent(SecureOrder secureOrder, String eventType, OrderServiceStatusData data) {
-        log.debug("Handling event '{}' for order {} in VALIDATED state.", eventType, secureOrder.getId());
-
-        secureOrder.getStatus().moveToPending(data.fraudCheckResult(),secureOrder);
-        SecureOrder secureOrderSaved = secureOrderService.createUpdateSecureOrder(secureOrder);
-        sendStatusUpdateToQueuePaymentSubscription(secureOrderSaved);
-        // como não temos os outros serviços, vamos simular o processamento externo e recebimento de outra fila aqui (: rs
-
-        OrderServiceStatusData dataPending = OrderServiceStatusData.builder()
-                .orderId(secureOrderSaved.getId())
-                .status(secureOrderSaved.getStatus().toString())
-                .build();
-        processSecureOrder(dataPending);
+        secureOrder.setRiskClassification(fraudCheckResult.classification());
+        return fraudCheckResult;
     }
 
-    private void handlePendingStateEvent(SecureOrder secureOrder, String eventType) {
-        log.debug("Handling event '{}' for order {} in PENDING state.", eventType, secureOrder.getId());
-        tryToApprovePendingOrder(secureOrder);
+    private TransitionInput validationInput(SecureOrder secureOrder, FraudCheckResult result) {
+        if (result == null && secureOrder.getRiskClassification() == null) {
+            // pedido validado antes da classificação ser gravada: o resultado chega na mensagem seguinte
+            log.warn("Order {} has no fraud check result yet, skipping validation rules", secureOrder.getId());
+            return null;
+        }
+        return TransitionInput.fraudCheck(result != null ? result
+                : new FraudCheckResult(secureOrder.getId(), secureOrder.getCustomerId(), null, secureOrder.getRiskClassification(), List.of()));
     }
 
-    private void tryToApprovePendingOrder(SecureOrder secureOrder) {
+    // como não temos os outros serviços, simulamos aqui o retorno de pagamento e subscrição
+    private TransitionInput simulatePaymentSubscription(SecureOrder secureOrder) {
         PaymentSubscriptionFakeConsumer.SimulatedProcessingOutput retornoFilasFake = PaymentSubscriptionFakeConsumer.simulateExternalProcessing(secureOrder.getId(), secureOrder.getStatus().toString());
-        PaymentConfirmation payment = retornoFilasFake.paymentConfirmation();
-        SubscriptionAuthorization subscription = retornoFilasFake.subscriptionAuthorization();
-
-        log.info("All conditions met for order {}. Moving to approve.", secureOrder.getId());
-        secureOrder.getStatus().moveToApprove(secureOrder, payment, subscription);
-        secureOrderService.createUpdateSecureOrder(secureOrder);
-
-        sendStatusUpdateToQueueProcessing(secureOrder, null);
-    }
-
-    private void handleTerminalStateEvent(SecureOrder secureOrder, String eventType, OrderServiceStatusData data) {
-        log.debug("Handling event '{}' for order {} in TERMINAL state ({}).", eventType, secureOrder.getId(), secureOrder.getStatus());
-        return;
+        return TransitionInput.paymentSubscription(retornoFilasFake.paymentConfirmation(), retornoFilasFake.subscriptionAuthorization());
     }
 
+    // pedido finalizado não tem mais transição a processar: a mensagem só faria o consumidor reler o documento
     public void sendStatusUpdateToQueueProcessing(SecureOrder secureOrder, FraudCheckResult fraudCheckResult) {
+        if (isChangeStreamMode() || secureOrder.getStatus().isTerminal()) {
+            return;
+        }
         log.info("Sending status update for order {} to queue with status {}", secureOrder.getId(), secureOrder.getStatus());
 
         OrderServiceStatusData statusData = new OrderServiceStatusData(secureOrder.getId(),secureOrder.getStatus().toString(),fraudCheckResult);
-        rabbitTemplate.convertAndSend(exchangeName, ORDER_SECURE_STATUS_PROCESSING_KEY, statusData);
+        orderEventPublisher.publish(ORDER_SECURE_STATUS_PROCESSING_KEY, statusData);
+    }
+
+    public void sendStatusUpdatesToQueueProcessing(List<SecureOrder> secureOrders) {
+        if (secureOrders.isEmpty() || isChangeStreamMode()) {
+            return;
+        }
+        log.info("Sending status update for {} orders to queue in a single call", secureOrders.size());
+
+        orderEventPublisher.publishAll(ORDER_SECURE_STATUS_PROCESSING_KEY, secureOrders.stream()
+                .map(secureOrder -> new OrderServiceStatusData(secureOrder.getId(), secureOrder.getStatus().toString(), null))
+                .toList());
     }
 
+    // o pedido pode já ter avançado no mesmo processamento: a mensagem sempre representa a entrada em PENDING
     public void sendStatusUpdateToQueuePaymentSubscription(SecureOrder secureOrder) {
-        log.info("Sending status update for order {} to queue payment and subsccription  with status {}", secureOrder.getId(), secureOrder.getStatus());
+        log.info("Sending status update for order {} to queue payment and subsccription  with status {}", secureOrder.getId(), SecureOrderStatus.PENDING);
 
-        OrderServiceStatusData statusData = new OrderServiceStatusData(secureOrder.getId(),secureOrder.getStatus().toString(), null);
-        rabbitTemplate.convertAndSend(exchangeName, ORDER_SECURE_STATUS_PENDING_PAYMENT_SUBSCRIPTION_KEY, statusData);
+        OrderServiceStatusData statusData = new OrderServiceStatusData(secureOrder.getId(), SecureOrderStatus.PENDING.toString(), null);
+        orderEventPublisher.publish(ORDER_SECURE_STATUS_PENDING_PAYMENT_SUBSCRIPTION_KEY, statusData);
     }
 
 }
@@ -0,0 +1,69 @@
+package br.com.itau.secure.domain.service.status;
+
+import br.com.itau.secure.domain.model.SecureOrder;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+// Tabela pré-calculada de status x evento. A estratégia só é chamada quando a transição é permitida,
+// então eventos repetidos ou inválidos não chegam às exceções das estratégias.
+public final class SecureOrderTransitionTable {
+    private static final Map<SecureOrderStatus, Map<SecureOrderEvent, TransitionOutcome>> OUTCOMES = new EnumMap<>(SecureOrderStatus.class);
+    // passo que o próprio serviço executa a partir de cada status (sem entrada para os finais)
+    private static final Map<SecureOrderStatus, SecureOrderEvent> IN_PROCESS_STEPS = new EnumMap<>(SecureOrderStatus.class);
+
+    static {
+        for (SecureOrderStatus status : SecureOrderStatus.values()) {
+            Map<SecureOrderEvent, TransitionOutcome> outcomes = new EnumMap<>(SecureOrderEvent.class);
+            for (SecureOrderEvent event : SecureOrderEvent.values()) {
+                outcomes.put(event, TransitionOutcome.ILLEGAL);
+            }
+            OUTCOMES.put(status, outcomes);
+        }
+
+        set(SecureOrderStatus.RECEIVED, TransitionOutcome.APPLIED, SecureOrderEvent.VALIDATE, SecureOrderEvent.REJECT, SecureOrderEvent.CANCEL);
+        set(SecureOrderStatus.VALIDATED, TransitionOutcome.APPLIED, SecureOrderEvent.PEND, SecureOrderEvent.REJECT, SecureOrderEvent.CANCEL);
+        set(SecureOrderStatus.PENDING, TransitionOutcome.APPLIED, SecureOrderEvent.APPROVE, SecureOrderEvent.REJECT, SecureOrderEvent.CANCEL);
+
+        // o pedido já passou desse passo: mensagem repetida ou atrasada
+        set(SecureOrderStatus.VALIDATED, TransitionOutcome.IGNORED, SecureOrderEvent.VALIDATE);
+        set(SecureOrderStatus.PENDING, TransitionOutcome.IGNORED, SecureOrderEvent.VALIDATE, SecureOrderEvent.PEND);
+        for (SecureOrderStatus status : SecureOrderStatus.values()) {
+            if (status.isTerminal()) {
+                set(status, TransitionOutcome.IGNORED, SecureOrderEvent.VALIDATE, SecureOrderEvent.PEND,
+                        SecureOrderEvent.APPROVE, SecureOrderEvent.REJECT);
+            }
+        }
+        // cancelar de novo um pedido cancelado não muda nada; cancelar um aprovado ou rejeitado continua ILLEGAL
+        set(SecureOrderStatus.CANCELLED, TransitionOutcome.IGNORED, SecureOrderEvent.CANCEL);
+
+        IN_PROCESS_STEPS.put(SecureOrderStatus.RECEIVED, SecureOrderEvent.VALIDATE);
+        IN_PROCESS_STEPS.put(SecureOrderStatus.VALIDATED, SecureOrderEvent.PEND);
+        IN_PROCESS_STEPS.put(SecureOrderStatus.PENDING, SecureOrderEvent.APPROVE);
+    }
+
+    private SecureOrderTransitionTable() {
+    }
+
+    private static void set(SecureOrderStatus status, TransitionOutcome outcome, SecureOrderEvent... events) {
+        for (SecureOrderEvent event : events) {
+            OUTCOMES.get(status).put(event, outcome);
+        }
+    }
+
+    public static TransitionOutcome outcome(SecureOrderStatus status, SecureOrderEvent event) {
+        return OUTCOMES.get(status).get(event);
+    }
+
+    public static SecureOrderEvent inProcessStep(SecureOrderStatus status) {
+        return IN_PROCESS_STEPS.get(status);
+    }
+
+    public static TransitionOutcome apply(SecureOrder secureOrder, SecureOrderEvent event, TransitionInput input) {
+        TransitionOutcome outcome = outcome(secureOrder.getStatus(), event);
+        if (outcome == TransitionOutcome.APPLIED) {
+            event.fire(secureOrder, input);
+        }
+        return outcome;
+    }
+}
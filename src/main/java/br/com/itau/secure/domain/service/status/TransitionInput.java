@@ -0,0 +1,23 @@
+package br.com.itau.secure.domain.service.status;
+
+import br.com.itau.secure.api.model.FraudCheckResult;
+import br.com.itau.secure.api.model.PaymentConfirmation;
+import br.com.itau.secure.api.model.SubscriptionAuthorization;
+
+// Dados que acompanham um evento: cada evento usa somente os campos da sua transição.
+public record TransitionInput(FraudCheckResult fraudCheckResult, PaymentConfirmation payment,
+                              SubscriptionAuthorization subscription) {
+    private static final TransitionInput NONE = new TransitionInput(null, null, null);
+
+    public static TransitionInput none() {
+        return NONE;
+    }
+
+    public static TransitionInput fraudCheck(FraudCheckResult fraudCheckResult) {
+        return new TransitionInput(fraudCheckResult, null, null);
+    }
+
+    public static TransitionInput paymentSubscription(PaymentConfirmation payment, SubscriptionAuthorization subscription) {
+        return new TransitionInput(null, payment, subscription);
+    }
+}
@@ -0,0 +1,10 @@
+package br.com.itau.secure.domain.service.status;
+
+public enum TransitionOutcome {
+    // a estratégia do status atual foi executada
+    APPLIED,
+    // mensagem repetida ou atrasada: o pedido já passou desse passo e nada muda
+    IGNORED,
+    // o status atual não aceita o evento
+    ILLEGAL
+}
@@ -0,0 +1,47 @@
+package br.com.itau.secure.infraestructure.cache;
+
+import br.com.itau.secure.domain.model.SecureOrder;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+public class SecureOrderCache {
+    public static final String CACHE_NAME = "secureOrders";
+
+    private final Cache<String, SecureOrder> cache;
+
+    public SecureOrderCache(MeterRegistry meterRegistry,
+                            @Value("${secure-order.cache.maximum-size:10000}") long maximumSize,
+                            @Value("${secure-order.cache.ttl:5s}") Duration ttl,
+                            @Value("${secure-order.cache.terminal-ttl:10m}") Duration terminalTtl) {
+        // pedidos em estado terminal não mudam mais e podem ficar mais tempo em memória
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(Expiry.writing((String id, SecureOrder order) ->
+                        order.getStatus() != null && order.getStatus().isTerminal() ? terminalTtl : ttl))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    // as instâncias são copiadas na entrada e na saída: quem lê pode alterar o pedido sem afetar o cache
+    public SecureOrder get(String id) {
+        SecureOrder cached = cache.getIfPresent(id);
+        return cached == null ? null : cached.copy();
+    }
+
+    public void put(SecureOrder secureOrder) {
+        cache.put(secureOrder.getId(), secureOrder.copy());
+    }
+
+    public void invalidate(String id) {
+        cache.invalidate(id);
+    }
+}
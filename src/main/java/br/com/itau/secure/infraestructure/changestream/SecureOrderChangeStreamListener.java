@@ -0,0 +1,337 @@
+package br.com.itau.secure.infraestructure.changestream;
+
+import br.com.itau.secure.domain.model.ChangeStreamCheckpoint;
+import br.com.itau.secure.domain.model.ChangeStreamFailure;
+import br.com.itau.secure.domain.model.SecureOrder;
+import br.com.itau.secure.domain.repository.ChangeStreamCheckpointRepository;
+import br.com.itau.secure.domain.repository.ChangeStreamFailureRepository;
+import br.com.itau.secure.domain.service.LeaseService;
+import br.com.itau.secure.domain.service.status.SecureOrderStatusService;
+import com.mongodb.MongoServerException;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.messaging.ChangeStreamRequest;
+import org.springframework.data.mongodb.core.messaging.DefaultMessageListenerContainer;
+import org.springframework.data.mongodb.core.messaging.Message;
+import org.springframework.data.mongodb.core.messaging.MessageListenerContainer;
+import org.springframework.data.mongodb.core.messaging.Subscription;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.match;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.newAggregation;
+
+// Modo change-stream: cada inserção ou mudança de status em secure_orders dispara a próxima transição,
+// com o documento entregue pelo próprio evento. O resume token é gravado para retomar do ponto em que parou.
+// Change streams exigem MongoDB em replica set.
+// Só a instância que detém a trava (lease) abre o stream: cada transição e cada chamada à API de risco
+// acontecem uma vez por pedido, não uma vez por pod.
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "secure-order.processing.mode", havingValue = SecureOrderStatusService.PROCESSING_MODE_CHANGE_STREAM)
+public class SecureOrderChangeStreamListener implements SmartLifecycle {
+
+    static final String COLLECTION = "secure_orders";
+    static final String LEASE_NAME = "secure-orders-change-stream";
+    // ChangeStreamHistoryLost e ChangeStreamFatalError (token que não está mais no oplog)
+    private static final Set<Integer> HISTORY_LOST_CODES = Set.of(286, 280);
+
+    private final MongoTemplate mongoTemplate;
+    private final ChangeStreamCheckpointRepository checkpointRepository;
+    private final ChangeStreamFailureRepository failureRepository;
+    private final LeaseService leaseService;
+    private final SecureOrderStatusService secureOrderStatusService;
+    private final Duration checkpointInterval;
+    private final Duration startTimeout;
+    private final Duration leaseTtl;
+    private final int processAttempts;
+    private final Duration retryBackoff;
+    private final int redriveAttempts;
+
+    // o redrive chama a API de risco e pode levar minutos: roda fora do pool de @Scheduled, que renova a trava
+    private final ExecutorService redriveExecutor = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().name("change-stream-redrive").daemon().factory());
+    private final AtomicBoolean redriving = new AtomicBoolean();
+
+    private volatile MessageListenerContainer container;
+    private Subscription subscription;
+    private volatile boolean running;
+    private volatile boolean reopenRequested;
+    private volatile boolean historyLost;
+    private volatile BsonDocument lastResumeToken;
+    private volatile BsonDocument savedResumeToken;
+    private volatile Instant lastCheckpointAt = Instant.EPOCH;
+
+    public SecureOrderChangeStreamListener(MongoTemplate mongoTemplate, ChangeStreamCheckpointRepository checkpointRepository,
+                                           ChangeStreamFailureRepository failureRepository, LeaseService leaseService,
+                                           SecureOrderStatusService secureOrderStatusService,
+                                           @Value("${secure-order.change-stream.checkpoint-interval:1s}") Duration checkpointInterval,
+                                           @Value("${secure-order.change-stream.start-timeout:10s}") Duration startTimeout,
+                                           @Value("${secure-order.change-stream.lease-ttl:30s}") Duration leaseTtl,
+                                           @Value("${secure-order.change-stream.process-attempts:3}") int processAttempts,
+                                           @Value("${secure-order.change-stream.retry-backoff:1s}") Duration retryBackoff,
+                                           @Value("${secure-order.change-stream.redrive-attempts:5}") int redriveAttempts) {
+        this.mongoTemplate = mongoTemplate;
+        this.checkpointRepository = checkpointRepository;
+        this.failureRepository = failureRepository;
+        this.leaseService = leaseService;
+        this.secureOrderStatusService = secureOrderStatusService;
+        this.checkpointInterval = checkpointInterval;
+        this.startTimeout = startTimeout;
+        this.leaseTtl = leaseTtl;
+        this.processAttempts = processAttempts;
+        this.retryBackoff = retryBackoff;
+        this.redriveAttempts = redriveAttempts;
+    }
+
+    @Override
+    public synchronized void start() {
+        running = true;
+        maintainStream();
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        closeStream();
+        leaseService.release(LEASE_NAME);
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Renova a trava e mantém o stream aberto só enquanto ela for desta instância. Um stream que falhou
+    // (onError) ou parou num evento não tratado é reaberto a partir do último checkpoint.
+    @Scheduled(fixedDelayString = "${secure-order.change-stream.lease-renew-interval:PT10S}")
+    public synchronized void maintainStream() {
+        if (!running) {
+            return;
+        }
+        if (!leaseService.tryAcquire(LEASE_NAME, leaseTtl)) {
+            if (container != null) {
+                log.warn("Lost the change stream lease on {}, closing the stream", COLLECTION);
+                closeStream();
+            }
+            return;
+        }
+        if (container != null && (reopenRequested || !subscription.isActive())) {
+            log.warn("Change stream on {} is not active, reopening it", COLLECTION);
+            closeStream();
+        }
+        if (container == null) {
+            openStream();
+        }
+    }
+
+    private void openStream() {
+        if (historyLost) {
+            // o token saiu do oplog: recomeça do momento atual
+            log.warn("Resume token of {} is no longer in the oplog, restarting the change stream from now", COLLECTION);
+            checkpointRepository.deleteById(COLLECTION);
+            historyLost = false;
+        }
+        reopenRequested = false;
+
+        BsonDocument resumeToken = checkpointRepository.findById(COLLECTION)
+                .map(checkpoint -> BsonDocument.parse(checkpoint.resumeToken()))
+                .orElse(null);
+        lastResumeToken = resumeToken;
+        savedResumeToken = resumeToken;
+
+        ChangeStreamRequest.ChangeStreamRequestBuilder<SecureOrder> request = ChangeStreamRequest.builder(this::onChange)
+                .collection(COLLECTION)
+                // inserções e atualizações que gravam o status; as demais atualizações não mudam o fluxo
+                .filter(newAggregation(match(new Criteria().orOperator(
+                        Criteria.where("operationType").is("insert"),
+                        Criteria.where("updateDescription.updatedFields.status").exists(true)))))
+                .fullDocumentLookup(FullDocument.UPDATE_LOOKUP);
+        if (resumeToken != null) {
+            request.resumeToken(resumeToken);
+        }
+
+        container = new DefaultMessageListenerContainer(mongoTemplate);
+        subscription = container.register(request.build(), SecureOrder.class, this::onError);
+        container.start();
+        try {
+            subscription.await(startTimeout);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.info("Change stream on {} started {}", COLLECTION, resumeToken == null ? "from now" : "from the saved resume token");
+    }
+
+    private void closeStream() {
+        if (container != null) {
+            container.stop();
+            container = null;
+            subscription = null;
+        }
+        saveCheckpoint();
+    }
+
+    void onChange(Message<ChangeStreamDocument<Document>, SecureOrder> message) {
+        if (reopenRequested) {
+            // um evento anterior não foi tratado: nada avança até o stream ser reaberto a partir dele
+            return;
+        }
+        SecureOrder secureOrder = message.getBody();
+        if (secureOrder != null && secureOrder.getStatus() != null && !process(secureOrder)) {
+            reopenRequested = true;
+            return;
+        }
+
+        lastResumeToken = message.getRaw().getResumeToken();
+        if (Duration.between(lastCheckpointAt, Instant.now()).compareTo(checkpointInterval) >= 0) {
+            saveCheckpoint();
+        }
+    }
+
+    // Retenta com pausa crescente; esgotadas as tentativas o pedido vai para change_stream_failures e o stream segue.
+    // Retorna false só se nem o registro da falha for gravado: o evento não pode ficar para trás do token.
+    private boolean process(SecureOrder secureOrder) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                secureOrderStatusService.processSecureOrderChange(secureOrder);
+                return true;
+            } catch (RuntimeException e) {
+                if (attempt >= processAttempts || !pause(attempt)) {
+                    return recordFailure(secureOrder.getId(), e);
+                }
+                log.warn("Failed to process change on secure order {} (attempt {} of {}): {}", secureOrder.getId(),
+                        attempt, processAttempts, e.getMessage());
+            }
+        }
+    }
+
+    private boolean pause(int attempt) {
+        try {
+            Thread.sleep(retryBackoff.toMillis() * attempt);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private boolean recordFailure(String orderId, RuntimeException cause) {
+        log.error("Failed to process change on secure order {}, recording it for redrive", orderId, cause);
+        try {
+            failureRepository.save(new ChangeStreamFailure(orderId, String.valueOf(cause.getMessage()), 0, Instant.now()));
+            return true;
+        } catch (RuntimeException e) {
+            log.error("Could not record failed change on secure order {}, the stream will be reopened before it", orderId, e);
+            return false;
+        }
+    }
+
+    // Reprocessa os pedidos que falharam a partir do documento atual; só roda na instância que tem o stream.
+    // Entrega o lote ao executor do redrive e não inicia outro enquanto o anterior não terminar.
+    @Scheduled(fixedDelayString = "${secure-order.change-stream.redrive-interval:PT1M}")
+    public void redriveFailedChanges() {
+        if (!running || container == null || !redriving.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            redriveExecutor.execute(() -> {
+                try {
+                    redriveBatch();
+                } finally {
+                    redriving.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            redriving.set(false);
+        }
+    }
+
+    void redriveBatch() {
+        try {
+            for (ChangeStreamFailure failure : failureRepository.findTop100ByAttemptsLessThanOrderByFailedAtAsc(redriveAttempts)) {
+                // a trava pode ter sido perdida durante o lote: o redrive segue na instância que assumiu o stream
+                if (!running || container == null) {
+                    log.info("Change stream on {} is no longer owned by this instance, stopping the redrive", COLLECTION);
+                    return;
+                }
+                redrive(failure);
+            }
+        } catch (RuntimeException e) {
+            log.error("Redrive of failed change stream events on {} failed", COLLECTION, e);
+        }
+    }
+
+    private void redrive(ChangeStreamFailure failure) {
+        try {
+            SecureOrder secureOrder = mongoTemplate.findById(failure.id(), SecureOrder.class);
+            if (secureOrder != null) {
+                secureOrderStatusService.processSecureOrderChange(secureOrder);
+            }
+            failureRepository.deleteById(failure.id());
+            log.info("Redrove failed change on secure order {}", failure.id());
+        } catch (RuntimeException e) {
+            int attempts = failure.attempts() + 1;
+            log.warn("Redrive {} of {} failed for secure order {}: {}", attempts, redriveAttempts, failure.id(), e.getMessage());
+            failureRepository.save(new ChangeStreamFailure(failure.id(), String.valueOf(e.getMessage()), attempts, Instant.now()));
+        }
+    }
+
+    // espera o lote de redrive em andamento terminar
+    @PreDestroy
+    void shutdown() {
+        redriveExecutor.shutdown();
+        try {
+            if (!redriveExecutor.awaitTermination(10, TimeUnit.SECONDS)) {
+                redriveExecutor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            redriveExecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void saveCheckpoint() {
+        BsonDocument resumeToken = lastResumeToken;
+        if (resumeToken == null || resumeToken.equals(savedResumeToken)) {
+            return;
+        }
+        checkpointRepository.save(new ChangeStreamCheckpoint(COLLECTION, resumeToken.toJson(), Instant.now()));
+        savedResumeToken = resumeToken;
+        lastCheckpointAt = Instant.now();
+    }
+
+    // o container encerra a assinatura; maintainStream a reabre na próxima verificação da trava
+    void onError(Throwable e) {
+        if (isHistoryLost(e)) {
+            historyLost = true;
+        }
+        log.error("Change stream on {} failed, it will be reopened{}", COLLECTION, historyLost ? " from now" : "", e);
+    }
+
+    private static boolean isHistoryLost(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof MongoServerException serverException && HISTORY_LOST_CODES.contains(serverException.getCode())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,47 @@
+package br.com.itau.secure.infraestructure.config.mongo;
+
+import br.com.itau.secure.domain.service.status.SecureOrderStatus;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.data.convert.ReadingConverter;
+import org.springframework.data.convert.WritingConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions.BigDecimalRepresentation;
+
+import java.util.List;
+
+// Gravação compacta (opt-in): valores monetários como Decimal128 e status como código inteiro.
+// A leitura continua aceitando o formato antigo (BigDecimal em string e status pelo nome) durante a migração.
+@Configuration
+@ConditionalOnProperty(prefix = "secure-order.mongo.compact-codec", name = "enabled", havingValue = "true")
+public class CompactCodecConfig {
+
+    @Bean
+    public MongoCustomConversions mongoCustomConversions() {
+        return MongoCustomConversions.create(adapter -> adapter
+                .bigDecimal(BigDecimalRepresentation.DECIMAL128)
+                .registerConverters(List.of(StatusToCodeConverter.INSTANCE, CodeToStatusConverter.INSTANCE)));
+    }
+
+    @WritingConverter
+    enum StatusToCodeConverter implements Converter<SecureOrderStatus, Integer> {
+        INSTANCE;
+
+        @Override
+        public Integer convert(SecureOrderStatus source) {
+            return source.getCode();
+        }
+    }
+
+    @ReadingConverter
+    enum CodeToStatusConverter implements Converter<Integer, SecureOrderStatus> {
+        INSTANCE;
+
+        @Override
+        public SecureOrderStatus convert(Integer source) {
+            return SecureOrderStatus.fromCode(source);
+        }
+    }
+}
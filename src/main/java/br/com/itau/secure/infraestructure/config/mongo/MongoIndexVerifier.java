@@ -0,0 +1,83 @@
+package br.com.itau.secure.infraestructure.config.mongo;
+
+import com.mongodb.client.MongoCollection;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+// Na subida compara os índices declarados nas entidades com os existentes no banco
+// e aponta os que faltam e os que nunca foram usados desde o último restart do mongod ($indexStats).
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "secure-order.index-verification", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class MongoIndexVerifier {
+    private static final String ID_INDEX = "_id_";
+
+    private final MongoTemplate mongoTemplate;
+
+    public MongoIndexVerifier(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void verifyIndexes() {
+        IndexResolver indexResolver = IndexResolver.create(mongoTemplate.getConverter().getMappingContext());
+
+        for (MongoPersistentEntity<?> entity : mongoTemplate.getConverter().getMappingContext().getPersistentEntities()) {
+            if (!entity.isAnnotationPresent(org.springframework.data.mongodb.core.mapping.Document.class)) {
+                continue;
+            }
+            try {
+                verifyCollection(entity, indexResolver);
+            } catch (RuntimeException e) {
+                log.warn("Could not verify indexes of collection {}: {}", entity.getCollection(), e.getMessage());
+            }
+        }
+    }
+
+    private void verifyCollection(MongoPersistentEntity<?> entity, IndexResolver indexResolver) {
+        MongoCollection<Document> collection = mongoTemplate.getCollection(entity.getCollection());
+        List<String> existingKeys = new ArrayList<>();
+        collection.listIndexes().forEach(index -> existingKeys.add(keySignature(index.get("key", Document.class))));
+
+        for (IndexDefinition definition : indexResolver.resolveIndexFor(entity.getTypeInformation())) {
+            String expectedKey = keySignature(definition.getIndexKeys());
+            if (!existingKeys.contains(expectedKey)) {
+                log.warn("Missing index {} on collection {}", expectedKey, entity.getCollection());
+            }
+        }
+
+        collection.aggregate(List.of(new Document("$indexStats", new Document()))).forEach(stats -> {
+            String name = stats.getString("name");
+            Document accesses = stats.get("accesses", Document.class);
+            Number ops = accesses == null ? null : accesses.get("ops", Number.class);
+            if (!ID_INDEX.equals(name) && ops != null && ops.longValue() == 0) {
+                log.info("Index {} on collection {} has not been used since {}", name, entity.getCollection(), accesses.get("since"));
+            }
+        });
+    }
+
+    private static String keySignature(Document keys) {
+        return keys.entrySet().stream()
+                .map(MongoIndexVerifier::keyPart)
+                .collect(Collectors.joining(", ", "{", "}"));
+    }
+
+    private static String keyPart(Map.Entry<String, Object> entry) {
+        Object value = entry.getValue();
+        // o servidor pode devolver a direção como int, long ou double
+        return entry.getKey() + ": " + (value instanceof Number number ? String.valueOf(number.intValue()) : value);
+    }
+}
@@ -0,0 +1,36 @@
+package br.com.itau.secure.infraestructure.config.mongo;
+
+import com.mongodb.TransactionOptions;
+import com.mongodb.WriteConcern;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.MongoTransactionManager;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// Transações só existem com o outbox ativo: exigem MongoDB em replica set (o compose.yaml sobe um nó standalone).
+@Configuration
+public class MongoTransactionConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "secure-order.outbox.enabled", havingValue = "true")
+    public MongoTransactionManager mongoTransactionManager(MongoDatabaseFactory mongoDatabaseFactory) {
+        // o commit grava pedido e evento juntos: vale majority independente da política por status
+        return new MongoTransactionManager(mongoDatabaseFactory,
+                TransactionOptions.builder().writeConcern(WriteConcern.MAJORITY).build());
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "secure-order.outbox.enabled", havingValue = "true")
+    public TransactionOperations mongoTransactionOperations(MongoTransactionManager mongoTransactionManager) {
+        return new TransactionTemplate(mongoTransactionManager);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "secure-order.outbox.enabled", havingValue = "false", matchIfMissing = true)
+    public TransactionOperations noTransactionOperations() {
+        return TransactionOperations.withoutTransaction();
+    }
+}
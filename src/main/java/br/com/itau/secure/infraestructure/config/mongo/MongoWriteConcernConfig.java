@@ -0,0 +1,20 @@
+package br.com.itau.secure.infraestructure.config.mongo;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+@Configuration
+@RequiredArgsConstructor
+public class MongoWriteConcernConfig {
+
+    private final MongoTemplate mongoTemplate;
+    private final SecureOrderWriteConcernPolicy secureOrderWriteConcernPolicy;
+
+    // bulkOps não consulta o resolver: o insert em lote de secure_orders aplica o da criação na própria coleção
+    @PostConstruct
+    public void init() {
+        mongoTemplate.setWriteConcernResolver(secureOrderWriteConcernPolicy);
+    }
+}
@@ -0,0 +1,117 @@
+package br.com.itau.secure.infraestructure.config.mongo;
+
+import br.com.itau.secure.domain.model.SecureOrder;
+import br.com.itau.secure.domain.service.status.SecureOrderStatus;
+import com.mongodb.WriteConcern;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.bson.Document;
+import org.springframework.core.env.Environment;
+import org.springframework.data.mongodb.core.MongoAction;
+import org.springframework.data.mongodb.core.WriteConcernResolver;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Supplier;
+
+// Write concern das gravações em secure_orders: a criação e os status terminais não podem se perder, já as
+// transições intermediárias (RECEIVED, VALIDATED, PENDING) são reprocessadas a partir da fila e aceitam menos.
+// Dentro de uma transação (outbox ativo) o driver ignora o write concern da operação e vale o do commit.
+@Component
+public class SecureOrderWriteConcernPolicy implements WriteConcernResolver {
+    private static final String PROPERTY_PREFIX = "secure-order.write-concern.";
+    static final String WRITE_TIMER = "secure_order.write";
+
+    public enum Level {
+        W1(WriteConcern.W1),
+        JOURNALED(WriteConcern.JOURNALED),
+        MAJORITY(WriteConcern.MAJORITY);
+
+        private final WriteConcern writeConcern;
+
+        Level(WriteConcern writeConcern) {
+            this.writeConcern = writeConcern;
+        }
+
+        public WriteConcern getWriteConcern() {
+            return writeConcern;
+        }
+    }
+
+    private final MeterRegistry meterRegistry;
+    private final Level createLevel;
+    private final Map<SecureOrderStatus, Level> transitionLevels = new EnumMap<>(SecureOrderStatus.class);
+
+    public SecureOrderWriteConcernPolicy(Environment environment, MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.createLevel = level(environment, PROPERTY_PREFIX + "create", Level.MAJORITY);
+        for (SecureOrderStatus status : SecureOrderStatus.values()) {
+            Level fallback = status.isTerminal() ? Level.MAJORITY : Level.JOURNALED;
+            transitionLevels.put(status, level(environment, PROPERTY_PREFIX + "transitions." + status.name(), fallback));
+        }
+    }
+
+    private static Level level(Environment environment, String property, Level fallback) {
+        String value = environment.getProperty(property);
+        return value == null || value.isBlank() ? fallback : Level.valueOf(value.trim().toUpperCase(Locale.ROOT));
+    }
+
+    public Level forCreate() {
+        return createLevel;
+    }
+
+    public Level forTransition(SecureOrderStatus status) {
+        return transitionLevels.get(status);
+    }
+
+    // null mantém o write concern padrão do cliente: só as gravações de pedidos seguem a política
+    @Override
+    public WriteConcern resolve(MongoAction action) {
+        if (action.getEntityType() != SecureOrder.class) {
+            return null;
+        }
+        return switch (action.getMongoActionOperation()) {
+            case INSERT, SAVE -> createLevel.getWriteConcern();
+            case UPDATE -> {
+                SecureOrderStatus status = updatedStatus(action.getDocument());
+                yield status == null ? null : forTransition(status).getWriteConcern();
+            }
+            default -> null;
+        };
+    }
+
+    // com a gravação compacta o status chega como código; sem ela, como enum ou nome
+    private static SecureOrderStatus updatedStatus(Document update) {
+        if (update == null || !(update.get("$set") instanceof Document set)) {
+            return null;
+        }
+        return switch (set.get("status")) {
+            case SecureOrderStatus status -> status;
+            case String name -> SecureOrderStatus.valueOf(name);
+            case Integer code -> SecureOrderStatus.fromCode(code);
+            case null, default -> null;
+        };
+    }
+
+    public <T> T recordCreate(Supplier<T> write) {
+        return record("create", createLevel, write);
+    }
+
+    public <T> T recordBatchCreate(Supplier<T> write) {
+        return record("batch_create", createLevel, write);
+    }
+
+    public <T> T recordTransition(SecureOrderStatus status, Supplier<T> write) {
+        return record("transition", forTransition(status), write);
+    }
+
+    private <T> T record(String operation, Level level, Supplier<T> write) {
+        return Timer.builder(WRITE_TIMER)
+                .tag("operation", operation)
+                .tag("write_concern", level.name().toLowerCase(Locale.ROOT))
+                .register(meterRegistry)
+                .record(write);
+    }
+}
@@ -1,9 +1,17 @@
 package br.com.itau.secure.infraestructure.config.web;
 
+import br.com.itau.secure.api.exception.BatchSizeExceededException;
 import br.com.itau.secure.api.exception.RiskClientBadGatewayException;
+import br.com.itau.secure.domain.exception.ConcurrentTransitionException;
+import br.com.itau.secure.domain.exception.IdempotencyKeyInProgressException;
+import br.com.itau.secure.domain.exception.IllegalTransitionException;
+import br.com.itau.secure.domain.exception.IngestionOverloadedException;
+import br.com.itau.secure.domain.exception.InvalidAnalyticsQueryException;
 import br.com.itau.secure.domain.exception.ResourceNotFoundException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ProblemDetail;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExceptionHandler;
@@ -54,5 +62,71 @@ public class ApiExceptionHandler extends ResponseEntityExceptionHandler {
         return problemDetail;
     }
 
+    @ExceptionHandler(BatchSizeExceededException.class)
+    public ProblemDetail handle(BatchSizeExceededException e) {
+        ProblemDetail problemDetail = ProblemDetail.forStatus(HttpStatus.BAD_REQUEST);
 
+        problemDetail.setTitle("Batch size exceeded");
+        problemDetail.setDetail(e.getMessage());
+        problemDetail.setType(URI.create("/errors/batch-size-exceeded"));
+
+        return problemDetail;
+    }
+
+    @ExceptionHandler(IngestionOverloadedException.class)
+    public ResponseEntity<ProblemDetail> handle(IngestionOverloadedException e) {
+        ProblemDetail problemDetail = ProblemDetail.forStatus(HttpStatus.SERVICE_UNAVAILABLE);
+
+        problemDetail.setTitle("Service unavailable");
+        problemDetail.setDetail(e.getMessage());
+        problemDetail.setType(URI.create("/errors/ingestion-overloaded"));
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(problemDetail);
+    }
+
+    @ExceptionHandler(IdempotencyKeyInProgressException.class)
+    public ProblemDetail handle(IdempotencyKeyInProgressException e) {
+        ProblemDetail problemDetail = ProblemDetail.forStatus(HttpStatus.CONFLICT);
+
+        problemDetail.setTitle("Request in progress");
+        problemDetail.setDetail(e.getMessage());
+        problemDetail.setType(URI.create("/errors/idempotency-key-in-progress"));
+
+        return problemDetail;
+    }
+
+    @ExceptionHandler(ConcurrentTransitionException.class)
+    public ProblemDetail handle(ConcurrentTransitionException e) {
+        ProblemDetail problemDetail = ProblemDetail.forStatus(HttpStatus.CONFLICT);
+
+        problemDetail.setTitle("Concurrent update");
+        problemDetail.setDetail(e.getMessage());
+        problemDetail.setType(URI.create("/errors/concurrent-transition"));
+
+        return problemDetail;
+    }
+
+    @ExceptionHandler(IllegalTransitionException.class)
+    public ProblemDetail handle(IllegalTransitionException e) {
+        ProblemDetail problemDetail = ProblemDetail.forStatus(HttpStatus.CONFLICT);
+
+        problemDetail.setTitle("Illegal transition");
+        problemDetail.setDetail(e.getMessage());
+        problemDetail.setType(URI.create("/errors/illegal-transition"));
+
+        return problemDetail;
+    }
+
+    @ExceptionHandler(InvalidAnalyticsQueryException.class)
+    public ProblemDetail handle(InvalidAnalyticsQueryException e) {
+        ProblemDetail problemDetail = ProblemDetail.forStatus(HttpStatus.BAD_REQUEST);
+
+        problemDetail.setTitle("Invalid analytics query");
+        problemDetail.setDetail(e.getMessage());
+        problemDetail.setType(URI.create("/errors/invalid-analytics-query"));
+
+        return problemDetail;
+    }
 }
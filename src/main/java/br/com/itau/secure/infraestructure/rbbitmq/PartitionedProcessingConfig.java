@@ -0,0 +1,84 @@
+package br.com.itau.secure.infraestructure.rbbitmq;
+
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.CustomExchange;
+import org.springframework.amqp.core.Declarable;
+import org.springframework.amqp.core.Declarables;
+import org.springframework.amqp.core.Exchange;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.QueueBuilder;
+import org.springframework.amqp.core.TopicExchange;
+import org.springframework.amqp.rabbit.config.DirectRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.amqp.DirectRabbitListenerContainerFactoryConfigurer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+// Processamento particionado por pedido: os eventos de processamento passam por uma exchange x-consistent-hash
+// (plugin rabbitmq_consistent_hash_exchange) que escolhe a fila pelo header order-id. Cada fila tem um único
+// consumidor ativo no cluster (x-single-active-consumer), então os eventos de um pedido rodam em série e
+// pedidos de filas diferentes rodam em paralelo entre threads e pods.
+@Configuration
+@ConditionalOnProperty(prefix = "secure-order.processing.partitions", name = "enabled", havingValue = "true")
+public class PartitionedProcessingConfig {
+
+    private final String partitionExchangeName;
+    private final String partitionQueuePrefix;
+    private final String deadLetterQueueProcessOrder;
+    private final int partitionCount;
+
+    public PartitionedProcessingConfig(@Value("${rabbitmq.process-order.partition-exchange}") String partitionExchangeName,
+                                       @Value("${rabbitmq.process-order.partition-queue-prefix}") String partitionQueuePrefix,
+                                       @Value("${rabbitmq.process-order.dlq}") String deadLetterQueueProcessOrder,
+                                       @Value("${secure-order.processing.partitions.count:16}") int partitionCount) {
+        this.partitionExchangeName = partitionExchangeName;
+        this.partitionQueuePrefix = partitionQueuePrefix;
+        this.deadLetterQueueProcessOrder = deadLetterQueueProcessOrder;
+        this.partitionCount = partitionCount;
+    }
+
+    public String[] queueNames() {
+        return IntStream.range(0, partitionCount).mapToObj(i -> partitionQueuePrefix + i).toArray(String[]::new);
+    }
+
+    @Bean
+    public Declarables partitionedProcessingDeclarables(TopicExchange exchange) {
+        Exchange partitionExchange = new CustomExchange(partitionExchangeName, "x-consistent-hash", true, false,
+                Map.of("hash-header", RabbitMQConfig.ORDER_ID_HEADER));
+
+        List<Declarable> declarables = new ArrayList<>();
+        declarables.add(partitionExchange);
+        // as mesmas chaves que antes iam para a fila de processamento única
+        declarables.add(BindingBuilder.bind(partitionExchange).to(exchange).with(RabbitMQConfig.ORDER_SECURE_STATUS_PROCESSING_KEY));
+        declarables.add(BindingBuilder.bind(partitionExchange).to(exchange).with(RabbitMQConfig.ORDER_SECURE_STATUS_PENDING_PAYMENT_SUBSCRIPTION_KEY));
+        for (String queueName : queueNames()) {
+            Queue queue = QueueBuilder.durable(queueName)
+                    .deadLetterExchange("")
+                    .deadLetterRoutingKey(deadLetterQueueProcessOrder)
+                    .singleActiveConsumer()
+                    .build();
+            declarables.add(queue);
+            // na exchange de hash a routing key do binding é o peso da fila no anel
+            declarables.add(new Binding(queueName, Binding.DestinationType.QUEUE, partitionExchangeName, "1", null));
+        }
+        return new Declarables(declarables);
+    }
+
+    // um consumidor por fila: as entregas de uma partição são processadas em série
+    @Bean
+    public DirectRabbitListenerContainerFactory partitionedListenerContainerFactory(DirectRabbitListenerContainerFactoryConfigurer configurer,
+                                                                                    ConnectionFactory connectionFactory) {
+        DirectRabbitListenerContainerFactory factory = new DirectRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setConsumersPerQueue(1);
+        return factory;
+    }
+}
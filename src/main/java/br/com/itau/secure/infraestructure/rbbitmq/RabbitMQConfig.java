@@ -4,11 +4,17 @@ import org.springframework.amqp.core.*;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitAdmin;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.boot.autoconfigure.amqp.RabbitTemplateCustomizer;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @Configuration
@@ -16,6 +22,13 @@ public class RabbitMQConfig {
 
     public static final String ORDER_SECURE_STATUS_PROCESSING_KEY = "order.secure.status.processing";
     public static final String ORDER_SECURE_STATUS_PENDING_PAYMENT_SUBSCRIPTION_KEY = "order.secure.status.pending-payment-subscription";
+    // usado pela exchange de hash no processamento particionado
+    public static final String ORDER_ID_HEADER = "order-id";
+    // tentativa atual da mensagem; escolhe a fila de espera na exchange de retry
+    public static final String RETRY_ATTEMPT_HEADER = "retry-attempt";
+    // só a republicação de retentativa (que leva o header da tentativa) é mandatory
+    static final Expression RETRY_MANDATORY_EXPRESSION = new SpelExpressionParser()
+            .parseExpression("messageProperties.headers['" + RETRY_ATTEMPT_HEADER + "'] != null");
     @Value("${rabbitmq.exchange}")
     private String exchangeName;
 
@@ -31,6 +44,15 @@ public class RabbitMQConfig {
     @Value("${rabbitmq.process-payment-subscription.dlq}")
     private String deadLetterQueueProcessPaymentSubscription;
 
+    @Value("${rabbitmq.retry.exchange}")
+    private String retryExchangeName;
+
+    @Value("${rabbitmq.retry.queue-prefix}")
+    private String retryQueuePrefix;
+
+    @Value("${secure-order.retry.max-attempts:3}")
+    private int retryMaxAttempts;
+
 
     @Bean
     public Jackson2JsonMessageConverter jackson2JsonMessageConverter(ObjectMapper objectMapper) {
@@ -61,6 +83,7 @@ public class RabbitMQConfig {
     }
 
     @Bean
+    @ConditionalOnProperty(prefix = "secure-order.processing.partitions", name = "enabled", havingValue = "false", matchIfMissing = true)
     public Binding bindingProcess() {
         return BindingBuilder.bind(queueProcessOrder()).to(exchange())
                 .with(ORDER_SECURE_STATUS_PROCESSING_KEY);
@@ -80,10 +103,43 @@ public class RabbitMQConfig {
     }
 
     @Bean
+    @ConditionalOnProperty(prefix = "secure-order.processing.partitions", name = "enabled", havingValue = "false", matchIfMissing = true)
     public Binding bindingProcessPendentePagamentoSubscricao() {
         return BindingBuilder.bind(queueProcessOrder()).to(exchange())
                 .with(ORDER_SECURE_STATUS_PENDING_PAYMENT_SUBSCRIPTION_KEY);
     }
 
+    // Retentativa no broker (DelayedRetryErrorHandler): uma fila de espera por tentativa, escolhida pelo header
+    // retry-attempt. A mensagem entra com TTL próprio (backoff com jitter) e, ao expirar, é devolvida pela exchange
+    // padrão para a fila de origem, que é a routing key usada na republicação.
+    @Bean
+    @ConditionalOnProperty(prefix = "secure-order.retry", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public HeadersExchange retryExchange() {
+        return ExchangeBuilder.headersExchange(retryExchangeName).durable(true).build();
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "secure-order.retry", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public Declarables retryQueues() {
+        List<Declarable> declarables = new ArrayList<>();
+        for (int attempt = 1; attempt < retryMaxAttempts; attempt++) {
+            Queue queue = QueueBuilder.durable(retryQueuePrefix + attempt)
+                    .deadLetterExchange("")
+                    .build();
+            declarables.add(queue);
+            declarables.add(BindingBuilder.bind(queue).to(retryExchange())
+                    .whereAll(Map.of(RETRY_ATTEMPT_HEADER, String.valueOf(attempt))).match());
+        }
+        return new Declarables(declarables);
+    }
+
+    // Com publisher-returns, uma retentativa sem fila de espera para a tentativa volta no CorrelationData e o
+    // DelayedRetryErrorHandler manda a mensagem para a DLQ em vez de confirmar a entrega. As demais publicações
+    // seguem sem mandatory, como antes.
+    @Bean
+    public RabbitTemplateCustomizer retryMandatoryCustomizer() {
+        return template -> template.setMandatoryExpression(RETRY_MANDATORY_EXPRESSION);
+    }
+
 
 }
@@ -0,0 +1,47 @@
+package br.com.itau.secure.infraestructure.rbbitmq;
+
+import br.com.itau.secure.api.model.OrderServiceStatusData;
+import br.com.itau.secure.domain.service.OrderEventPublisher;
+import org.springframework.amqp.core.MessagePostProcessor;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+@Component
+@ConditionalOnProperty(name = "secure-order.outbox.enabled", havingValue = "false", matchIfMissing = true)
+public class RabbitOrderEventPublisher implements OrderEventPublisher {
+
+    private final RabbitTemplate rabbitTemplate;
+    private final String exchangeName;
+
+    public RabbitOrderEventPublisher(RabbitTemplate rabbitTemplate, @Value("${rabbitmq.exchange}") String exchangeName) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.exchangeName = exchangeName;
+    }
+
+    @Override
+    public void publish(String routingKey, OrderServiceStatusData statusData) {
+        rabbitTemplate.convertAndSend(exchangeName, routingKey, statusData, withOrderId(statusData));
+    }
+
+    @Override
+    public void publishAll(String routingKey, List<OrderServiceStatusData> statusData) {
+        // invoke mantém o mesmo canal para todas as publicações do lote
+        rabbitTemplate.invoke(operations -> {
+            for (OrderServiceStatusData data : statusData) {
+                operations.convertAndSend(exchangeName, routingKey, data, withOrderId(data));
+            }
+            return null;
+        });
+    }
+
+    private static MessagePostProcessor withOrderId(OrderServiceStatusData statusData) {
+        return message -> {
+            message.getMessageProperties().setHeader(RabbitMQConfig.ORDER_ID_HEADER, statusData.orderId());
+            return message;
+        };
+    }
+}
@@ -0,0 +1,126 @@
+package br.com.itau.secure.infraestructure.rbbitmq.consumer;
+
+import br.com.itau.secure.infraestructure.rbbitmq.RabbitMQConfig;
+import com.rabbitmq.client.Channel;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpRejectAndDontRequeueException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageBuilder;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.listener.api.RabbitListenerErrorHandler;
+import org.springframework.amqp.rabbit.support.ListenerExecutionFailedException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Retentativa no broker em vez de backoff na thread do consumidor: a mensagem que falhou é republicada na fila
+// de espera da tentativa (TTL por mensagem) e a entrega atual é confirmada, liberando a thread na hora. Ao expirar,
+// a fila de espera devolve a mensagem pela exchange padrão para a fila de origem (routing key = nome da fila).
+// Esgotadas as tentativas, a mensagem é rejeitada sem requeue e vai para a DLQ da fila de origem.
+// A entrega original só é confirmada depois do publisher confirm da republicação: sem ele, ou se o broker devolver
+// a republicação (mandatory, ver RabbitMQConfig.retryMandatoryCustomizer), a mensagem vai para a DLQ em vez de se perder.
+// Nas filas particionadas a retentativa volta para o fim da fila: eventos do mesmo pedido que chegarem durante a
+// espera são processados antes dela. A tabela de transições descarta o evento atrasado que não se aplica mais.
+@Slf4j
+@Component
+public class DelayedRetryErrorHandler implements RabbitListenerErrorHandler {
+
+    private final RabbitTemplate rabbitTemplate;
+    private final String retryExchangeName;
+    private final boolean enabled;
+    private final int maxAttempts;
+    private final Duration initialInterval;
+    private final double multiplier;
+    private final Duration maxInterval;
+    private final double jitter;
+    private final Duration confirmTimeout;
+
+    public DelayedRetryErrorHandler(RabbitTemplate rabbitTemplate,
+                                    @Value("${rabbitmq.retry.exchange}") String retryExchangeName,
+                                    @Value("${secure-order.retry.enabled:true}") boolean enabled,
+                                    @Value("${secure-order.retry.max-attempts:3}") int maxAttempts,
+                                    @Value("${secure-order.retry.initial-interval:10s}") Duration initialInterval,
+                                    @Value("${secure-order.retry.multiplier:2}") double multiplier,
+                                    @Value("${secure-order.retry.max-interval:60s}") Duration maxInterval,
+                                    @Value("${secure-order.retry.jitter:0.2}") double jitter,
+                                    @Value("${secure-order.retry.confirm-timeout:5s}") Duration confirmTimeout) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.retryExchangeName = retryExchangeName;
+        this.enabled = enabled;
+        this.maxAttempts = maxAttempts;
+        this.initialInterval = initialInterval;
+        this.multiplier = multiplier;
+        this.maxInterval = maxInterval;
+        this.jitter = jitter;
+        this.confirmTimeout = confirmTimeout;
+    }
+
+    @Override
+    public Object handleError(Message amqpMessage, Channel channel, org.springframework.messaging.Message<?> message,
+                              ListenerExecutionFailedException exception) {
+        if (!enabled) {
+            // sem retentativa no broker vale o retry do listener (spring.rabbitmq.listener.*.retry)
+            throw exception;
+        }
+
+        String sourceQueue = amqpMessage.getMessageProperties().getConsumerQueue();
+        int attempt = attemptOf(amqpMessage) + 1;
+        if (attempt >= maxAttempts || sourceQueue == null) {
+            log.error("Message from {} failed after {} attempts, sending to DLQ", sourceQueue, attempt, exception.getCause());
+            throw new AmqpRejectAndDontRequeueException("Retries exhausted after " + attempt + " attempts", exception);
+        }
+
+        long delayMillis = delayMillis(attempt);
+        Message retry = MessageBuilder.fromClonedMessage(amqpMessage)
+                .setHeader(RabbitMQConfig.RETRY_ATTEMPT_HEADER, String.valueOf(attempt))
+                .setExpiration(String.valueOf(delayMillis))
+                .build();
+        try {
+            publishConfirmed(sourceQueue, retry);
+        } catch (RuntimeException | ExecutionException | TimeoutException e) {
+            // sem republicar, rejeitar com requeue viraria um loop imediato: a mensagem segue para a DLQ
+            log.error("Could not schedule retry {} for message from {}, sending to DLQ", attempt, sourceQueue, e);
+            throw new AmqpRejectAndDontRequeueException("Could not schedule retry", exception);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AmqpRejectAndDontRequeueException("Interrupted while scheduling retry", exception);
+        }
+        log.warn("Message from {} failed (attempt {} of {}), retrying in {} ms: {}", sourceQueue, attempt, maxAttempts,
+                delayMillis, exception.getCause() != null ? exception.getCause().getMessage() : exception.getMessage());
+        // retorno normal: a entrega original é confirmada
+        return null;
+    }
+
+    private void publishConfirmed(String sourceQueue, Message retry)
+            throws ExecutionException, TimeoutException, InterruptedException {
+        CorrelationData correlation = new CorrelationData();
+        rabbitTemplate.send(retryExchangeName, sourceQueue, retry, correlation);
+        CorrelationData.Confirm confirm = correlation.getFuture().get(confirmTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        if (!confirm.isAck()) {
+            throw new IllegalStateException("Broker rejected the retry: " + confirm.getReason());
+        }
+        if (correlation.getReturned() != null) {
+            throw new IllegalStateException("Retry was not routed to a wait queue: " + correlation.getReturned().getReplyText());
+        }
+    }
+
+    private static int attemptOf(Message amqpMessage) {
+        Object header = amqpMessage.getMessageProperties().getHeader(RabbitMQConfig.RETRY_ATTEMPT_HEADER);
+        return header == null ? 0 : Integer.parseInt(header.toString());
+    }
+
+    // exponencial limitada a max-interval, reduzida em até jitter (fração) para espalhar as retentativas.
+    // Todas as mensagens de uma fila de espera ficam entre (1 - jitter) e 1 vez o atraso da tentativa,
+    // então o TTL por mensagem não segura a fila por mais que essa faixa.
+    long delayMillis(int attempt) {
+        double backoff = initialInterval.toMillis() * Math.pow(multiplier, attempt - 1);
+        double capped = Math.min(backoff, maxInterval.toMillis());
+        return Math.max(1, Math.round(capped * (1 - jitter * ThreadLocalRandom.current().nextDouble())));
+    }
+}
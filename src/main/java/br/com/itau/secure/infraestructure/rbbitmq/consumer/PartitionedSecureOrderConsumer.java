@@ -0,0 +1,28 @@
+package br.com.itau.secure.infraestructure.rbbitmq.consumer;
+
+import br.com.itau.secure.api.model.OrderServiceStatusData;
+import br.com.itau.secure.domain.service.status.SecureOrderStatusService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.stereotype.Component;
+
+// Consome as filas particionadas por pedido; a fila única continua com o SecureOrderConsumer para escoar o que sobrou.
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "secure-order.processing.partitions", name = "enabled", havingValue = "true")
+public class PartitionedSecureOrderConsumer {
+
+    private final SecureOrderStatusService secureOrderStatusService;
+
+    public PartitionedSecureOrderConsumer(SecureOrderStatusService secureOrderStatusService) {
+        this.secureOrderStatusService = secureOrderStatusService;
+    }
+
+    @RabbitListener(queues = "#{@partitionedProcessingConfig.queueNames()}", containerFactory = "partitionedListenerContainerFactory",
+            errorHandler = "delayedRetryErrorHandler")
+    public void handleProcessingProcessOrder(@Payload OrderServiceStatusData orderServiceStatusData) {
+        secureOrderStatusService.processSecureOrder(orderServiceStatusData);
+    }
+}
@@ -21,7 +21,8 @@ public class SecureOrderConsumer {
         this.secureOrderStatusService = secureOrderStatusService;
     }
 
-    @RabbitListener(queues = "${rabbitmq.process-order.queue}", concurrency = "2-3")
+    @RabbitListener(queues = "${rabbitmq.process-order.queue}", concurrency = "${rabbitmq.process-order.concurrency:2-3}",
+            errorHandler = "delayedRetryErrorHandler")
     @SneakyThrows
     public void handleProcessingProcessOrder(@Payload OrderServiceStatusData orderServiceStatusData) {
         secureOrderStatusService.processSecureOrder(orderServiceStatusData);
@@ -0,0 +1,55 @@
+package br.com.itau.secure.infraestructure.rbbitmq.outbox;
+
+import br.com.itau.secure.api.model.OrderServiceStatusData;
+import br.com.itau.secure.domain.model.OutboxMessage;
+import br.com.itau.secure.domain.repository.OutboxMessageRepository;
+import br.com.itau.secure.domain.service.OrderEventPublisher;
+import br.com.itau.secure.infraestructure.rbbitmq.RabbitMQConfig;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+
+import static br.com.itau.secure.commom.IdGenerator.generateTimeBasedUUID;
+
+// Grava o evento na coleção de outbox. Dentro de uma transação do MongoDB a gravação entra na mesma transação do pedido.
+@Component
+@ConditionalOnProperty(name = "secure-order.outbox.enabled", havingValue = "true")
+public class OutboxOrderEventPublisher implements OrderEventPublisher {
+
+    private final OutboxMessageRepository outboxMessageRepository;
+    private final MessageConverter messageConverter;
+    private final String exchangeName;
+
+    public OutboxOrderEventPublisher(OutboxMessageRepository outboxMessageRepository, MessageConverter messageConverter,
+                                     @Value("${rabbitmq.exchange}") String exchangeName) {
+        this.outboxMessageRepository = outboxMessageRepository;
+        this.messageConverter = messageConverter;
+        this.exchangeName = exchangeName;
+    }
+
+    @Override
+    public void publish(String routingKey, OrderServiceStatusData statusData) {
+        outboxMessageRepository.insert(toOutboxMessage(routingKey, statusData));
+    }
+
+    @Override
+    public void publishAll(String routingKey, List<OrderServiceStatusData> statusData) {
+        outboxMessageRepository.insert(statusData.stream().map(data -> toOutboxMessage(routingKey, data)).toList());
+    }
+
+    private OutboxMessage toOutboxMessage(String routingKey, OrderServiceStatusData statusData) {
+        MessageProperties messageProperties = new MessageProperties();
+        messageProperties.setHeader(RabbitMQConfig.ORDER_ID_HEADER, statusData.orderId());
+        Message message = messageConverter.toMessage(statusData, messageProperties);
+        MessageProperties properties = message.getMessageProperties();
+        return new OutboxMessage(generateTimeBasedUUID().toString(), exchangeName, routingKey, properties.getContentType(),
+                properties.getHeaders(), new String(message.getBody(), StandardCharsets.UTF_8), Instant.now());
+    }
+}
@@ -0,0 +1,151 @@
+package br.com.itau.secure.infraestructure.rbbitmq.outbox;
+
+import br.com.itau.secure.domain.model.OutboxMessage;
+import br.com.itau.secure.domain.repository.OutboxMessageRepository;
+import br.com.itau.secure.domain.service.LeaseService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Publica as mensagens do outbox em lotes e só as remove depois do ack do broker (publisher confirms).
+// A entrega é at-least-once: uma falha entre o ack e a remoção republica a mensagem, e o consumidor descarta eventos obsoletos.
+// Só a instância com a trava "secure-order-outbox-relay" publica: com vários pods todos leriam o mesmo lote, publicariam
+// cada mensagem várias vezes e perderiam a ordem. A trava é renovada a cada terço de lease-ttl, antes de cada lote.
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "secure-order.outbox.enabled", havingValue = "true")
+public class OutboxRelay {
+    static final String LEASE_NAME = "secure-order-outbox-relay";
+
+    private final OutboxMessageRepository outboxMessageRepository;
+    private final RabbitTemplate rabbitTemplate;
+    private final LeaseService leaseService;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+    private final Duration confirmTimeout;
+    private final Duration leaseTtl;
+    private final Duration leaseRenewInterval;
+    private Instant leaseRenewedAt;
+
+    public OutboxRelay(OutboxMessageRepository outboxMessageRepository, RabbitTemplate rabbitTemplate, LeaseService leaseService,
+                       @Value("${secure-order.outbox.batch-size:100}") int batchSize,
+                       @Value("${secure-order.outbox.max-batches-per-run:20}") int maxBatchesPerRun,
+                       @Value("${secure-order.outbox.confirm-timeout:5s}") Duration confirmTimeout,
+                       @Value("${secure-order.outbox.lease-ttl:30s}") Duration leaseTtl) {
+        this.outboxMessageRepository = outboxMessageRepository;
+        this.rabbitTemplate = rabbitTemplate;
+        this.leaseService = leaseService;
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+        this.confirmTimeout = confirmTimeout;
+        this.leaseTtl = leaseTtl;
+        this.leaseRenewInterval = leaseTtl.dividedBy(3);
+    }
+
+    @Scheduled(fixedDelayString = "${secure-order.outbox.poll-interval:PT0.2S}")
+    public void relay() {
+        for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+            if (!holdsLease()) {
+                return;
+            }
+            List<OutboxMessage> messages = outboxMessageRepository.findAllByOrderByIdAsc(Limit.of(batchSize));
+            if (messages.isEmpty()) {
+                return;
+            }
+
+            List<String> confirmed;
+            try {
+                confirmed = publish(messages);
+            } catch (AmqpException e) {
+                log.warn("Outbox relay could not reach the broker, {} messages stay pending: {}", messages.size(), e.getMessage());
+                return;
+            }
+            if (!confirmed.isEmpty()) {
+                outboxMessageRepository.deleteAllById(confirmed);
+            }
+            log.debug("Outbox relay published {} of {} messages", confirmed.size(), messages.size());
+
+            if (confirmed.size() < messages.size() || messages.size() < batchSize) {
+                return;
+            }
+        }
+    }
+
+    // a chamada ao Mongo só acontece quando a trava está perto de vencer, não a cada poll-interval
+    private synchronized boolean holdsLease() {
+        Instant now = Instant.now();
+        if (leaseRenewedAt != null && Duration.between(leaseRenewedAt, now).compareTo(leaseRenewInterval) < 0) {
+            return true;
+        }
+        if (leaseService.tryAcquire(LEASE_NAME, leaseTtl)) {
+            leaseRenewedAt = now;
+            return true;
+        }
+        leaseRenewedAt = null;
+        return false;
+    }
+
+    @PreDestroy
+    void releaseLease() {
+        if (leaseRenewedAt != null) {
+            leaseService.release(LEASE_NAME);
+        }
+    }
+
+    // envia o lote inteiro antes de esperar pelas confirmações, que chegam de forma assíncrona
+    private List<String> publish(List<OutboxMessage> messages) {
+        List<CorrelationData> correlations = new ArrayList<>(messages.size());
+        for (OutboxMessage outboxMessage : messages) {
+            CorrelationData correlation = new CorrelationData(outboxMessage.id());
+            rabbitTemplate.send(outboxMessage.exchange(), outboxMessage.routingKey(), toMessage(outboxMessage), correlation);
+            correlations.add(correlation);
+        }
+
+        List<String> confirmed = new ArrayList<>(messages.size());
+        for (CorrelationData correlation : correlations) {
+            try {
+                CorrelationData.Confirm confirm = correlation.getFuture().get(confirmTimeout.toMillis(), TimeUnit.MILLISECONDS);
+                if (confirm.isAck()) {
+                    confirmed.add(correlation.getId());
+                } else {
+                    log.warn("Broker rejected outbox message {}: {}", correlation.getId(), confirm.getReason());
+                }
+            } catch (ExecutionException | TimeoutException e) {
+                log.warn("No confirm for outbox message {}, it will be published again", correlation.getId());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return confirmed;
+    }
+
+    private static Message toMessage(OutboxMessage outboxMessage) {
+        MessageProperties properties = new MessageProperties();
+        properties.setContentType(outboxMessage.contentType());
+        properties.setContentEncoding(StandardCharsets.UTF_8.name());
+        properties.setMessageId(outboxMessage.id());
+        if (outboxMessage.headers() != null) {
+            outboxMessage.headers().forEach(properties::setHeader);
+        }
+        return new Message(outboxMessage.body().getBytes(StandardCharsets.UTF_8), properties);
+    }
+}
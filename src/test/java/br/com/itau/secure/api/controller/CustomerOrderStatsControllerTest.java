@@ -0,0 +1,58 @@
+package br.com.itau.secure.api.controller;
+
+import br.com.itau.secure.domain.exception.ResourceNotFoundException;
+import br.com.itau.secure.domain.model.CustomerOrderStats;
+import br.com.itau.secure.domain.service.CustomerOrderStatsService;
+import br.com.itau.secure.domain.service.status.InsuranceCategory;
+import br.com.itau.secure.domain.service.status.SecureOrderStatus;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Map;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(CustomerOrderStatsController.class)
+class CustomerOrderStatsControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private CustomerOrderStatsService customerOrderStatsService;
+
+    @Test
+    void getOrderStats_shouldReturnAllStatusesAndCategories() throws Exception {
+        CustomerOrderStats stats = new CustomerOrderStats("customer-1",
+                Map.of(SecureOrderStatus.APPROVED, 2L, SecureOrderStatus.PENDING, 1L),
+                Map.of(InsuranceCategory.AUTO, new BigDecimal("1500.75")),
+                Instant.parse("2025-01-01T10:00:00Z"));
+        when(customerOrderStatsService.findByCustomerId("customer-1")).thenReturn(stats);
+
+        mockMvc.perform(get("/customers/{customerId}/order-stats", "customer-1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.customerId").value("customer-1"))
+                .andExpect(jsonPath("$.totalOrders").value(3))
+                .andExpect(jsonPath("$.statusCounts.APPROVED").value(2))
+                .andExpect(jsonPath("$.statusCounts.CANCELLED").value(0))
+                .andExpect(jsonPath("$.insuredAmountByCategory.AUTO").value(1500.75))
+                .andExpect(jsonPath("$.insuredAmountByCategory.LIFE").value(0))
+                .andExpect(jsonPath("$.lastOrderAt").value("2025-01-01T10:00:00Z"));
+    }
+
+    @Test
+    void getOrderStats_whenCustomerHasNoOrders_shouldReturnNotFound() throws Exception {
+        when(customerOrderStatsService.findByCustomerId("unknown"))
+                .thenThrow(new ResourceNotFoundException("Order stats not found for customer: unknown"));
+
+        mockMvc.perform(get("/customers/{customerId}/order-stats", "unknown"))
+                .andExpect(status().isNotFound());
+    }
+}
@@ -0,0 +1,57 @@
+package br.com.itau.secure.api.controller;
+
+import br.com.itau.secure.api.model.ApprovalFunnelResponse;
+import br.com.itau.secure.domain.model.ApprovalFunnelBucket;
+import br.com.itau.secure.domain.model.FunnelDimension;
+import br.com.itau.secure.domain.service.SecureOrderAnalyticsService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(SecureOrderAnalyticsController.class)
+class SecureOrderAnalyticsControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private SecureOrderAnalyticsService secureOrderAnalyticsService;
+
+    @Test
+    void getApprovalFunnel_shouldReturnBucketsForTheRequestedDimension() throws Exception {
+        Instant from = Instant.parse("2025-01-01T00:00:00Z");
+        Instant to = Instant.parse("2025-01-02T00:00:00Z");
+        ApprovalFunnelResponse response = new ApprovalFunnelResponse(from, to, FunnelDimension.SALES_CHANNEL,
+                List.of(ApprovalFunnelResponse.Bucket.fromBucket(new ApprovalFunnelBucket("MOBILE", 4, 4, 2, 1, 2, 1))));
+        when(secureOrderAnalyticsService.approvalFunnel(from, to, FunnelDimension.SALES_CHANNEL, null)).thenReturn(response);
+
+        mockMvc.perform(get("/analytics/approval-funnel")
+                        .param("from", "2025-01-01T00:00:00Z")
+                        .param("to", "2025-01-02T00:00:00Z")
+                        .param("groupBy", "salesChannel"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.groupBy").value("SALES_CHANNEL"))
+                .andExpect(jsonPath("$.buckets[0].key").value("MOBILE"))
+                .andExpect(jsonPath("$.buckets[0].approved").value(1))
+                .andExpect(jsonPath("$.buckets[0].approvalRate").value(0.25));
+    }
+
+    @Test
+    void getApprovalFunnel_whenDimensionIsUnknown_shouldReturnBadRequest() throws Exception {
+        mockMvc.perform(get("/analytics/approval-funnel").param("groupBy", "region"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.type").value("/errors/invalid-analytics-query"));
+
+        verifyNoInteractions(secureOrderAnalyticsService);
+    }
+}
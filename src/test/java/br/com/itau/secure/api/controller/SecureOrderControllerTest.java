@@ -1,9 +1,15 @@
 package br.com.itau.secure.api.controller;
 
+import br.com.itau.secure.api.model.CursorPage;
+import br.com.itau.secure.api.model.SecureOrderBatchItemResponse;
 import br.com.itau.secure.api.model.SecureOrderInput;
 import br.com.itau.secure.api.model.SecureOrderResponse;
+import br.com.itau.secure.api.model.SecureOrderStatusEvent;
+import br.com.itau.secure.api.model.SecureOrderSummaryResponse;
 
 import br.com.itau.secure.domain.model.SecureOrder;
+import br.com.itau.secure.domain.model.SecureOrderVersion;
+import br.com.itau.secure.domain.service.SecureOrderEventBroadcaster;
 import br.com.itau.secure.domain.service.SecureOrderService;
 import br.com.itau.secure.domain.service.status.InsuranceCategory;
 import br.com.itau.secure.domain.service.status.SecureOrderStatus;
@@ -15,14 +21,23 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.math.BigDecimal;
 
 import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
+import java.util.stream.Stream;
 
+import static org.hamcrest.Matchers.containsString;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -36,6 +51,9 @@ class SecureOrderControllerTest {
     @MockitoBean
     private SecureOrderService secureOrderService;
 
+    @MockitoBean
+    private SecureOrderEventBroadcaster secureOrderEventBroadcaster;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -74,7 +92,7 @@ class SecureOrderControllerTest {
 
     @Test
     void createOrder_shouldReturnCreatedOrder() throws Exception {
-        when(secureOrderService.createUpdateSecureOrder(any(SecureOrder.class))).thenReturn(sampleOrder);
+        when(secureOrderService.createSecureOrder(any(SecureOrder.class), isNull())).thenReturn(sampleOrder);
 
         mockMvc.perform(post("/secure-orders")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -85,6 +103,49 @@ class SecureOrderControllerTest {
                 .andExpect(jsonPath("$.category").value(InsuranceCategory.AUTO.name()));
     }
 
+    @Test
+    void createOrder_shouldForwardIdempotencyKey() throws Exception {
+        when(secureOrderService.createSecureOrder(any(SecureOrder.class), eq("retry-key"))).thenReturn(sampleOrder);
+
+        mockMvc.perform(post("/secure-orders")
+                        .header("Idempotency-Key", "retry-key")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(sampleOrderInput)))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.id").value(sampleOrder.getId()));
+    }
+
+    @Test
+    void createOrders_shouldReturnPerItemResults() throws Exception {
+        SecureOrder otherOrder = SecureOrder.builder()
+                .customerId(customerId)
+                .category(InsuranceCategory.HOME.toString())
+                .build();
+        when(secureOrderService.createSecureOrders(anyList())).thenReturn(List.of(
+                SecureOrderBatchItemResponse.accepted(0, sampleOrder),
+                SecureOrderBatchItemResponse.failed(1, otherOrder, "E11000 duplicate key error")));
+
+        mockMvc.perform(post("/secure-orders/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(sampleOrderInput, sampleOrderInput))))
+                .andExpect(status().isMultiStatus())
+                .andExpect(jsonPath("$[0].index").value(0))
+                .andExpect(jsonPath("$[0].id").value(sampleOrder.getId()))
+                .andExpect(jsonPath("$[0].status").value(SecureOrderStatus.RECEIVED.name()))
+                .andExpect(jsonPath("$[1].index").value(1))
+                .andExpect(jsonPath("$[1].error").value("E11000 duplicate key error"));
+    }
+
+    @Test
+    void createOrders_shouldReturnBadRequest_whenBatchExceedsLimit() throws Exception {
+        List<SecureOrderInput> inputs = Collections.nCopies(501, sampleOrderInput);
+
+        mockMvc.perform(post("/secure-orders/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(inputs)))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void getOrderById_shouldReturnOrder_whenOrderExists() throws Exception {
         when(secureOrderService.findById(orderId)).thenReturn(sampleOrder);
@@ -93,7 +154,51 @@ class SecureOrderControllerTest {
                         .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
-                .andExpect(jsonPath("$.customerId").value(customerId));
+                .andExpect(jsonPath("$.customerId").value(customerId))
+                .andExpect(header().string("ETag", "\"" + SecureOrderVersion.of(sampleOrder).toETag() + "\""));
+    }
+
+    @Test
+    void getOrderById_shouldReturnNotModified_whenETagMatchesCurrentVersion() throws Exception {
+        SecureOrderVersion version = SecureOrderVersion.of(sampleOrder);
+        when(secureOrderService.findVersionById(orderId)).thenReturn(version);
+
+        mockMvc.perform(get("/secure-orders/{id}", orderId)
+                        .header("If-None-Match", "\"" + version.toETag() + "\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        verify(secureOrderService, never()).findById(orderId);
+    }
+
+    @Test
+    void getOrderById_shouldReturnOrder_whenETagIsStale() throws Exception {
+        when(secureOrderService.findVersionById(orderId)).thenReturn(SecureOrderVersion.of(sampleOrder));
+        when(secureOrderService.findById(orderId)).thenReturn(sampleOrder);
+
+        mockMvc.perform(get("/secure-orders/{id}", orderId)
+                        .header("If-None-Match", "\"0-0\""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(sampleOrder.getId()));
+    }
+
+    @Test
+    void streamOrderEvents_shouldStreamStatusEventsForOrder() throws Exception {
+        SseEmitter emitter = new SseEmitter();
+        emitter.send(SseEmitter.event().name("status").data(SecureOrderStatusEvent.lastTransitionOf(sampleOrder)));
+        emitter.complete();
+        when(secureOrderEventBroadcaster.subscribe(eq(orderId), any())).thenReturn(emitter);
+
+        MvcResult result = mockMvc.perform(get("/secure-orders/{id}/events", orderId)
+                        .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(content().string(containsString("event:status")))
+                .andExpect(content().string(containsString("\"status\":\"RECEIVED\"")));
     }
 
     @Test
@@ -101,19 +206,36 @@ class SecureOrderControllerTest {
         List<SecureOrderResponse> ordersFromService;
         ordersFromService =  Collections.singletonList(sampleOrder).stream().map(SecureOrderResponse::fromEntity)
                 .toList();
-        when(secureOrderService.findByCustomerId(customerId)).thenReturn(ordersFromService);
+        when(secureOrderService.findByCustomerId(customerId, null, 50)).thenReturn(new CursorPage<>(ordersFromService, null));
 
         mockMvc.perform(get("/secure-orders")
                         .param("customerId", customerId)
                         .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
-                .andExpect(jsonPath("$[0].customerId").value(customerId));
+                .andExpect(jsonPath("$[0].customerId").value(customerId))
+                .andExpect(header().doesNotExist(SecureOrderController.NEXT_CURSOR_HEADER));
+    }
+
+    @Test
+    void findOrders_shouldReturnNextCursorHeader_whenMoreOrdersAreAvailable() throws Exception {
+        String after = UUID.randomUUID().toString();
+        when(secureOrderService.findByCustomerId(customerId, after, 1))
+                .thenReturn(new CursorPage<>(List.of(sampleOrderResponse), sampleOrder.getId()));
+
+        mockMvc.perform(get("/secure-orders")
+                        .param("customerId", customerId)
+                        .param("after", after)
+                        .param("limit", "1")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string(SecureOrderController.NEXT_CURSOR_HEADER, sampleOrder.getId()))
+                .andExpect(jsonPath("$[0].id").value(sampleOrder.getId()));
     }
 
     @Test
     void findOrders_shouldReturnEmptyList_whenNoOrdersForCustomerId() throws Exception {
-        when(secureOrderService.findByCustomerId(customerId)).thenReturn(Collections.emptyList());
+        when(secureOrderService.findByCustomerId(customerId, null, 50)).thenReturn(new CursorPage<>(Collections.emptyList(), null));
 
         mockMvc.perform(get("/secure-orders")
                         .param("customerId", customerId)
@@ -123,6 +245,46 @@ class SecureOrderControllerTest {
                 .andExpect(jsonPath("$").isEmpty());
     }
 
+    @Test
+    void findOrders_withSummaryView_shouldReturnSummaries() throws Exception {
+        SecureOrderSummaryResponse summary = new SecureOrderSummaryResponse(sampleOrder.getId(), SecureOrderStatus.RECEIVED,
+                InsuranceCategory.AUTO.name(), null, new BigDecimal("50000.00"), sampleOrder.getCreatedAt(), null);
+        when(secureOrderService.findSummariesByCustomerId(customerId, null, 50))
+                .thenReturn(new CursorPage<>(List.of(summary), null));
+
+        mockMvc.perform(get("/secure-orders")
+                        .param("customerId", customerId)
+                        .param("view", "summary")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(sampleOrder.getId()))
+                .andExpect(jsonPath("$[0].status").value(SecureOrderStatus.RECEIVED.name()))
+                .andExpect(jsonPath("$[0].history").doesNotExist())
+                .andExpect(jsonPath("$[0].coverages").doesNotExist());
+    }
+
+    @Test
+    void streamOrders_shouldWriteOneJsonDocumentPerLine() throws Exception {
+        SecureOrder otherOrder = SecureOrder.builder()
+                .customerId(customerId)
+                .category(InsuranceCategory.LIFE.toString())
+                .build();
+        when(secureOrderService.streamByCustomerId(customerId))
+                .thenReturn(Stream.of(sampleOrderResponse, SecureOrderResponse.fromEntity(otherOrder)));
+
+        MvcResult result = mockMvc.perform(get("/secure-orders")
+                        .param("customerId", customerId)
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string(
+                        objectMapper.writeValueAsString(sampleOrderResponse) + "\n"
+                                + objectMapper.writeValueAsString(SecureOrderResponse.fromEntity(otherOrder)) + "\n"));
+    }
 
     @Test
     void cancelOrder_shouldReturnCancelledOrder() throws Exception {
@@ -0,0 +1,154 @@
+package br.com.itau.secure.benchmark;
+
+import br.com.itau.secure.api.client.RiskClient;
+import br.com.itau.secure.api.model.FraudCheckResult;
+import br.com.itau.secure.api.model.OrderServiceStatusData;
+import br.com.itau.secure.domain.model.SecureOrder;
+import br.com.itau.secure.domain.repository.SecureOrderArchiveRepository;
+import br.com.itau.secure.domain.repository.SecureOrderRepository;
+import br.com.itau.secure.domain.service.CustomerOrderStatsService;
+import br.com.itau.secure.domain.service.IdempotencyKeyService;
+import br.com.itau.secure.domain.service.OrderEventPublisher;
+import br.com.itau.secure.domain.service.PendingOrderDeadlineScheduler;
+import br.com.itau.secure.domain.service.SecureOrderEventBroadcaster;
+import br.com.itau.secure.domain.service.SecureOrderService;
+import br.com.itau.secure.domain.service.status.SecureOrderStatusService;
+import br.com.itau.secure.infraestructure.cache.SecureOrderCache;
+import br.com.itau.secure.infraestructure.config.mongo.SecureOrderWriteConcernPolicy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Processa um pedido do POST até o status final com os serviços reais e Mongo/RabbitMQ em memória:
+// cada leitura, gravação e publicação custa networkMicros. Os contadores são totais da iteração: dividir
+// mongoRoundTrips e brokerMessages por orders dá o custo por pedido. O cache fica sempre vazio, como num
+// consumidor de outra instância.
+// Executar com: mvn test-compile e java -cp <classpath de teste> br.com.itau.secure.benchmark.SecureOrderProcessingBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class SecureOrderProcessingBenchmark {
+
+    @Param({"200"})
+    private long networkMicros;
+
+    private final Map<String, SecureOrder> collection = new HashMap<>();
+    private final Deque<OrderServiceStatusData> processingQueue = new ArrayDeque<>();
+    private Counters counters;
+    private SecureOrderService secureOrderService;
+    private SecureOrderStatusService secureOrderStatusService;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Counters {
+        public long orders;
+        public long mongoRoundTrips;
+        public long brokerMessages;
+    }
+
+    @Setup
+    public void setUp() {
+        SecureOrderRepository repository = mock(SecureOrderRepository.class);
+        when(repository.findById(anyString())).thenAnswer(invocation -> {
+            roundTrip();
+            return Optional.ofNullable(collection.get(invocation.<String>getArgument(0))).map(SecureOrder::copy);
+        });
+        when(repository.save(any(SecureOrder.class))).thenAnswer(invocation -> store(invocation.getArgument(0)));
+        when(repository.appendTransitions(any(SecureOrder.class))).thenAnswer(invocation -> {
+            store(invocation.getArgument(0));
+            return true;
+        });
+
+        OrderEventPublisher publisher = new OrderEventPublisher() {
+            @Override
+            public void publish(String routingKey, OrderServiceStatusData statusData) {
+                counters.brokerMessages++;
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(networkMicros));
+                if (SecureOrderStatusService.ORDER_SECURE_STATUS_PROCESSING_KEY.equals(routingKey)) {
+                    processingQueue.add(statusData);
+                }
+            }
+
+            @Override
+            public void publishAll(String routingKey, List<OrderServiceStatusData> statusData) {
+                statusData.forEach(item -> publish(routingKey, item));
+            }
+        };
+        RiskClient riskClient = input -> new FraudCheckResult(input.orderId(), input.customerId(), null, "REGULAR", List.of());
+
+        secureOrderService = new SecureOrderService(repository, null, mock(SecureOrderCache.class),
+                mock(IdempotencyKeyService.class), mock(SecureOrderEventBroadcaster.class),
+                mock(SecureOrderArchiveRepository.class), TransactionOperations.withoutTransaction(),
+                mock(CustomerOrderStatsService.class),
+                new SecureOrderWriteConcernPolicy(new MockEnvironment(), new SimpleMeterRegistry()));
+        secureOrderStatusService = new SecureOrderStatusService(secureOrderService, publisher, riskClient,
+                mock(PendingOrderDeadlineScheduler.class));
+        ReflectionTestUtils.setField(secureOrderService, "secureOrderStatusService", secureOrderStatusService);
+        ReflectionTestUtils.setField(secureOrderStatusService, "processingMode", "rabbitmq");
+    }
+
+    @Setup(Level.Iteration)
+    public void resetCollection() {
+        collection.clear();
+    }
+
+    @Benchmark
+    public int processOrderToFinalStatus(Counters counters) {
+        this.counters = counters;
+        counters.orders++;
+        SecureOrder secureOrder = SecureOrder.builder()
+                .customerId("benchmark-customer")
+                .category("AUTO")
+                .insuredAmount(new BigDecimal("100000.00"))
+                .build();
+        secureOrderService.createUpdateSecureOrder(secureOrder);
+
+        // o consumidor da fila de processamento, na ordem de publicação
+        while (!processingQueue.isEmpty()) {
+            secureOrderStatusService.processSecureOrder(processingQueue.poll());
+        }
+        return collection.get(secureOrder.getId()).getHistory().size();
+    }
+
+    private SecureOrder store(SecureOrder secureOrder) {
+        roundTrip();
+        SecureOrder stored = secureOrder.copy();
+        stored.markTransitionsPersisted();
+        collection.put(stored.getId(), stored);
+        return secureOrder;
+    }
+
+    private void roundTrip() {
+        counters.mongoRoundTrips++;
+        LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(networkMicros));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(SecureOrderProcessingBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,87 @@
+package br.com.itau.secure.benchmark;
+
+import br.com.itau.secure.api.model.FraudCheckResult;
+import br.com.itau.secure.domain.model.SecureOrder;
+import br.com.itau.secure.domain.service.status.SecureOrderEvent;
+import br.com.itau.secure.domain.service.status.SecureOrderStatus;
+import br.com.itau.secure.domain.service.status.SecureOrderTransitionTable;
+import br.com.itau.secure.domain.service.status.TransitionInput;
+import br.com.itau.secure.domain.service.status.TransitionOutcome;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Custo de despachar uma mensagem repetida para um pedido já finalizado: chamando a estratégia direto
+// (UnsupportedOperationException com stack trace) e consultando a SecureOrderTransitionTable.
+// Também compara o despacho pelo texto do status da mensagem com a consulta tipada do passo do status.
+// Executar com: mvn test-compile e java -cp <classpath de teste> br.com.itau.secure.benchmark.SecureOrderTransitionBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class SecureOrderTransitionBenchmark {
+
+    private SecureOrder approvedOrder;
+    private TransitionInput input;
+    private String messageStatus;
+    private SecureOrderStatus typedStatus;
+
+    @Setup
+    public void setUp() {
+        approvedOrder = SecureOrder.builder()
+                .customerId("benchmark-customer")
+                .history(new ArrayList<>(List.of(SecureOrder.History.builder()
+                        .status(SecureOrderStatus.APPROVED)
+                        .timestamp(Instant.now())
+                        .build())))
+                .build();
+        ReflectionTestUtils.setField(approvedOrder, "status", SecureOrderStatus.APPROVED);
+        FraudCheckResult fraudCheckResult = new FraudCheckResult(approvedOrder.getId(), "benchmark-customer", null, "REGULAR", List.of());
+        input = TransitionInput.fraudCheck(fraudCheckResult);
+        messageStatus = "validated";
+        typedStatus = SecureOrderStatus.VALIDATED;
+    }
+
+    @Benchmark
+    public Object duplicateThroughStrategyException() {
+        try {
+            approvedOrder.getStatus().moveToValidate(approvedOrder, input.fraudCheckResult());
+            return null;
+        } catch (UnsupportedOperationException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public TransitionOutcome duplicateThroughTable() {
+        return SecureOrderTransitionTable.apply(approvedOrder, SecureOrderEvent.VALIDATE, input);
+    }
+
+    @Benchmark
+    public SecureOrderStatus dispatchByStatusString() {
+        return switch (SecureOrderStatus.valueOf(messageStatus.toUpperCase())) {
+            case RECEIVED, VALIDATED, PENDING -> typedStatus;
+            default -> null;
+        };
+    }
+
+    @Benchmark
+    public SecureOrderEvent dispatchByTypedStatus() {
+        return SecureOrderTransitionTable.inProcessStep(typedStatus);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(SecureOrderTransitionBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,209 @@
+package br.com.itau.secure.benchmark;
+
+import br.com.itau.secure.api.client.RiskClient;
+import br.com.itau.secure.api.model.FraudCheckResult;
+import br.com.itau.secure.api.model.OrderServiceStatusData;
+import br.com.itau.secure.domain.model.SecureOrder;
+import br.com.itau.secure.domain.repository.SecureOrderArchiveRepository;
+import br.com.itau.secure.domain.repository.SecureOrderRepository;
+import br.com.itau.secure.domain.service.CustomerOrderStatsService;
+import br.com.itau.secure.domain.service.IdempotencyKeyService;
+import br.com.itau.secure.domain.service.OrderEventPublisher;
+import br.com.itau.secure.domain.service.PendingOrderDeadlineScheduler;
+import br.com.itau.secure.domain.service.SecureOrderEventBroadcaster;
+import br.com.itau.secure.domain.service.SecureOrderService;
+import br.com.itau.secure.domain.service.status.SecureOrderStatusService;
+import br.com.itau.secure.infraestructure.cache.SecureOrderCache;
+import br.com.itau.secure.infraestructure.config.mongo.SecureOrderWriteConcernPolicy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.LoggerFactory;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+// Vazão de pedidos processados do POST até o status final pelos serviços reais (como no
+// SecureOrderProcessingBenchmark), com inFlightOrders pedidos simultâneos no pool de plataforma do tamanho do
+// Tomcat (200 threads) e com uma thread virtual por pedido. Mongo e broker bloqueiam networkMicros por chamada e
+// a API de risco riskMillis, como as chamadas bloqueantes reais. O score é em lotes por segundo; o contador
+// orders dá pedidos por segundo.
+// Executar com: mvn test-compile e java -cp <classpath de teste> br.com.itau.secure.benchmark.VirtualThreadBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class VirtualThreadBenchmark {
+    private static final int PLATFORM_POOL_SIZE = 200;
+
+    @Param({"1000"})
+    private int inFlightOrders;
+
+    @Param({"500"})
+    private long networkMicros;
+
+    @Param({"20"})
+    private long riskMillis;
+
+    private final Map<String, SecureOrder> collection = new ConcurrentHashMap<>();
+    // mensagens de processamento publicadas pelo pedido em andamento na thread
+    private final ThreadLocal<Deque<OrderServiceStatusData>> processingQueue = ThreadLocal.withInitial(ArrayDeque::new);
+    private SecureOrderService secureOrderService;
+    private SecureOrderStatusService secureOrderStatusService;
+    private ExecutorService platformExecutor;
+    private ExecutorService virtualExecutor;
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Counters {
+        public long orders;
+    }
+
+    @Setup
+    public void setUp() {
+        // o log INFO por transição no console serializaria as threads no appender e dominaria a medição
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger("br.com.itau.secure"))
+                .setLevel(ch.qos.logback.classic.Level.WARN);
+
+        // stubOnly: sem registro das invocações, que cresceria sem limite com milhares de pedidos por segundo
+        SecureOrderRepository repository = stub(SecureOrderRepository.class);
+        when(repository.findById(anyString())).thenAnswer(invocation -> {
+            block();
+            return Optional.ofNullable(collection.get(invocation.<String>getArgument(0))).map(SecureOrder::copy);
+        });
+        when(repository.save(any(SecureOrder.class))).thenAnswer(invocation -> store(invocation.getArgument(0)));
+        when(repository.appendTransitions(any(SecureOrder.class))).thenAnswer(invocation -> {
+            store(invocation.getArgument(0));
+            return true;
+        });
+
+        OrderEventPublisher publisher = new OrderEventPublisher() {
+            @Override
+            public void publish(String routingKey, OrderServiceStatusData statusData) {
+                block();
+                if (SecureOrderStatusService.ORDER_SECURE_STATUS_PROCESSING_KEY.equals(routingKey)) {
+                    processingQueue.get().add(statusData);
+                }
+            }
+
+            @Override
+            public void publishAll(String routingKey, List<OrderServiceStatusData> statusData) {
+                statusData.forEach(item -> publish(routingKey, item));
+            }
+        };
+        RiskClient riskClient = input -> {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(riskMillis));
+            return new FraudCheckResult(input.orderId(), input.customerId(), null, "REGULAR", List.of());
+        };
+
+        secureOrderService = new SecureOrderService(repository, null, stub(SecureOrderCache.class),
+                stub(IdempotencyKeyService.class), stub(SecureOrderEventBroadcaster.class),
+                stub(SecureOrderArchiveRepository.class), TransactionOperations.withoutTransaction(),
+                stub(CustomerOrderStatsService.class),
+                new SecureOrderWriteConcernPolicy(new MockEnvironment(), new SimpleMeterRegistry()));
+        secureOrderStatusService = new SecureOrderStatusService(secureOrderService, publisher, riskClient,
+                stub(PendingOrderDeadlineScheduler.class));
+        ReflectionTestUtils.setField(secureOrderService, "secureOrderStatusService", secureOrderStatusService);
+        ReflectionTestUtils.setField(secureOrderStatusService, "processingMode", "rabbitmq");
+
+        platformExecutor = Executors.newFixedThreadPool(PLATFORM_POOL_SIZE);
+        virtualExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    @TearDown
+    public void tearDown() {
+        platformExecutor.shutdownNow();
+        virtualExecutor.shutdownNow();
+    }
+
+    @Setup(Level.Iteration)
+    public void resetCollection() {
+        collection.clear();
+    }
+
+    @Benchmark
+    public int platformThreads(Counters counters) throws Exception {
+        return processAll(platformExecutor, counters);
+    }
+
+    @Benchmark
+    public int virtualThreads(Counters counters) throws Exception {
+        return processAll(virtualExecutor, counters);
+    }
+
+    private int processAll(ExecutorService executor, Counters counters) throws InterruptedException, ExecutionException {
+        List<Future<Integer>> futures = new ArrayList<>(inFlightOrders);
+        for (int i = 0; i < inFlightOrders; i++) {
+            futures.add(executor.submit(this::processOrderToFinalStatus));
+        }
+        int transitions = 0;
+        for (Future<Integer> future : futures) {
+            transitions += future.get();
+        }
+        counters.orders += inFlightOrders;
+        return transitions;
+    }
+
+    private int processOrderToFinalStatus() {
+        SecureOrder secureOrder = SecureOrder.builder()
+                .customerId("benchmark-customer")
+                .category("AUTO")
+                .insuredAmount(new BigDecimal("100000.00"))
+                .build();
+        secureOrderService.createUpdateSecureOrder(secureOrder);
+
+        // o consumidor da fila de processamento, na ordem de publicação
+        Deque<OrderServiceStatusData> queue = processingQueue.get();
+        while (!queue.isEmpty()) {
+            secureOrderStatusService.processSecureOrder(queue.poll());
+        }
+        return collection.get(secureOrder.getId()).getHistory().size();
+    }
+
+    private SecureOrder store(SecureOrder secureOrder) {
+        block();
+        SecureOrder stored = secureOrder.copy();
+        stored.markTransitionsPersisted();
+        collection.put(stored.getId(), stored);
+        return secureOrder;
+    }
+
+    private void block() {
+        LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(networkMicros));
+    }
+
+    private static <T> T stub(Class<T> type) {
+        return mock(type, withSettings().stubOnly());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(VirtualThreadBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
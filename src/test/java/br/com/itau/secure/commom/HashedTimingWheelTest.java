@@ -0,0 +1,77 @@
+package br.com.itau.secure.commom;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashedTimingWheelTest {
+
+    private static final long START = 1_000_000L;
+
+    @Test
+    void advance_shouldExpireOnlyAfterTheDeadlineTickHasElapsed() {
+        HashedTimingWheel<String> wheel = new HashedTimingWheel<>(100, 8, START);
+        List<String> expired = new ArrayList<>();
+        wheel.schedule("a", START + 250);
+        wheel.schedule("b", START + 520);
+
+        wheel.advance(START + 299, expired::add);
+        assertEquals(List.of(), expired);
+
+        wheel.advance(START + 300, expired::add);
+        assertEquals(List.of("a"), expired);
+
+        wheel.advance(START + 600, expired::add);
+        assertEquals(List.of("a", "b"), expired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void advance_shouldKeepDeadlinesBeyondOneTurnForTheRightRound() {
+        HashedTimingWheel<String> wheel = new HashedTimingWheel<>(10, 4, START);
+        List<String> expired = new ArrayList<>();
+        // 4 slots de 10ms: 135ms são três voltas e um slot além do mesmo índice
+        wheel.schedule("far", START + 135);
+        wheel.schedule("near", START + 35);
+
+        wheel.advance(START + 130, expired::add);
+        assertEquals(List.of("near"), expired);
+        assertEquals(1, wheel.size());
+
+        wheel.advance(START + 140, expired::add);
+        assertEquals(List.of("near", "far"), expired);
+    }
+
+    @Test
+    void schedule_whenDeadlineAlreadyPassed_shouldExpireOnTheNextAdvance() {
+        HashedTimingWheel<String> wheel = new HashedTimingWheel<>(10, 16, START);
+        List<String> expired = new ArrayList<>();
+        wheel.advance(START + 500, expired::add);
+
+        wheel.schedule("late", START - 1_000);
+        wheel.advance(START + 510, expired::add);
+
+        assertEquals(List.of("late"), expired);
+    }
+
+    @Test
+    void advance_shouldHandleItemsRescheduledWhileExpiring() {
+        HashedTimingWheel<String> wheel = new HashedTimingWheel<>(10, 16, START);
+        List<String> expired = new ArrayList<>();
+        wheel.schedule("retry", START + 5);
+
+        wheel.advance(START + 10, item -> {
+            expired.add(item);
+            if (expired.size() == 1) {
+                wheel.schedule(item, START + 45);
+            }
+        });
+        assertEquals(1, wheel.size());
+
+        wheel.advance(START + 50, expired::add);
+        assertEquals(List.of("retry", "retry"), expired);
+    }
+}
@@ -0,0 +1,91 @@
+package br.com.itau.secure.domain.repository.impl;
+
+import br.com.itau.secure.domain.model.CustomerOrderStats;
+import br.com.itau.secure.domain.model.SecureOrder;
+import br.com.itau.secure.domain.service.status.InsuranceCategory;
+import br.com.itau.secure.domain.service.status.SecureOrderStatus;
+import org.bson.Document;
+import org.bson.types.Decimal128;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CustomerOrderStatsRepositoryCustomImplTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Test
+    void createdUpdate_shouldIncrementStatusAndInsuredAmountOfTheCategory() {
+        SecureOrder order = SecureOrder.builder()
+                .customerId("customer")
+                .category("VIDA")
+                .insuredAmount(new BigDecimal("250000.50"))
+                .build();
+
+        Document update = CustomerOrderStatsRepositoryCustomImpl.createdUpdate(order).getUpdateObject();
+
+        Document inc = update.get("$inc", Document.class);
+        assertEquals(1L, inc.get("statusCounts.RECEIVED"));
+        assertEquals(new Decimal128(new BigDecimal("250000.50")), inc.get("insuredAmountByCategory.LIFE"));
+        assertEquals(order.getCreatedAt(), update.get("$max", Document.class).get("lastOrderAt"));
+    }
+
+    @Test
+    void recordTransition_shouldMoveTheOrderBetweenStatusCounters() {
+        CustomerOrderStatsRepositoryCustomImpl repository = new CustomerOrderStatsRepositoryCustomImpl(mongoTemplate);
+
+        repository.recordTransition("customer", SecureOrderStatus.VALIDATED, SecureOrderStatus.PENDING);
+
+        Update expected = new Update().inc("statusCounts.PENDING", 1L).inc("statusCounts.VALIDATED", -1L);
+        verify(mongoTemplate).upsert(eq(Query.query(Criteria.where("_id").is("customer"))),
+                eq(expected), eq(CustomerOrderStats.class));
+    }
+
+    @Test
+    void recordTransition_whenStatusDidNotChange_shouldNotWrite() {
+        new CustomerOrderStatsRepositoryCustomImpl(mongoTemplate)
+                .recordTransition("customer", SecureOrderStatus.PENDING, SecureOrderStatus.PENDING);
+
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    @Test
+    void storedStats_shouldReadIncrementedDecimalsAndCounters() {
+        MongoCustomConversions conversions = new MongoCustomConversions(List.of());
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+        Instant lastOrderAt = Instant.parse("2025-01-01T10:00:00Z");
+
+        CustomerOrderStats stats = converter.read(CustomerOrderStats.class, new Document("_id", "customer")
+                .append("statusCounts", new Document("APPROVED", 2L).append("PENDING", 1L))
+                .append("insuredAmountByCategory", new Document("AUTO", new Decimal128(new BigDecimal("1500.75"))))
+                .append("lastOrderAt", Date.from(lastOrderAt)));
+
+        assertEquals(2L, stats.statusCounts().get(SecureOrderStatus.APPROVED));
+        assertEquals(new BigDecimal("1500.75"), stats.insuredAmountByCategory().get(InsuranceCategory.AUTO));
+        assertEquals(lastOrderAt, stats.lastOrderAt());
+    }
+}
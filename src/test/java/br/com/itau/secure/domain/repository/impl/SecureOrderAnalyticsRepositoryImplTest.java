@@ -0,0 +1,65 @@
+package br.com.itau.secure.domain.repository.impl;
+
+import br.com.itau.secure.commom.IdGenerator;
+import br.com.itau.secure.commom.UUIDv7Utils;
+import br.com.itau.secure.domain.model.FunnelDimension;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SecureOrderAnalyticsRepositoryImplTest {
+
+    private static final Instant FROM = Instant.parse("2025-01-01T00:00:00Z");
+    private static final Instant TO = Instant.parse("2025-01-02T00:00:00Z");
+
+    @Test
+    void lowerBoundId_shouldSortBeforeEveryIdOfTheSameMillisecondAndAfterEarlierOnes() {
+        Instant before = Instant.now();
+        String generated = IdGenerator.generateTimeBasedUUID().toString();
+        Instant after = Instant.now().plusMillis(1);
+
+        assertTrue(UUIDv7Utils.lowerBoundId(before).compareTo(generated) <= 0);
+        assertTrue(UUIDv7Utils.lowerBoundId(after).compareTo(generated) > 0);
+    }
+
+    @Test
+    void approvalFunnelAggregation_shouldBoundTheWindowByIdOnBothCollections() {
+        List<Document> pipeline = pipeline(null);
+
+        Document match = pipeline.get(0).get("$match", Document.class);
+        assertEquals(new Document("$gte", UUIDv7Utils.lowerBoundId(FROM)).append("$lt", UUIDv7Utils.lowerBoundId(TO)), match.get("_id"));
+        assertFalse(match.containsKey("category"));
+
+        Document unionWith = pipeline.get(2).get("$unionWith", Document.class);
+        assertEquals("secure_orders_archive", unionWith.getString("coll"));
+        assertEquals(new Document("$match", match), unionWith.getList("pipeline", Document.class).get(0));
+    }
+
+    @Test
+    void approvalFunnelAggregation_shouldGroupByDimensionAndMatchStatusByNameOrCode() {
+        List<Document> pipeline = pipeline("AUTO");
+
+        assertEquals("AUTO", pipeline.get(0).get("$match", Document.class).get("category"));
+        Document project = pipeline.get(1).get("$project", Document.class);
+        assertEquals(new Document("$ifNull", List.of("$salesChannel", "UNKNOWN")), project.get("key"));
+
+        Document group = pipeline.get(3).get("$group", Document.class);
+        assertEquals("$key", group.get("_id"));
+        String approved = group.get("approved", Document.class).toJson();
+        assertTrue(approved.contains("\"APPROVED\"") && approved.contains("5"), approved);
+        String validated = group.get("validated", Document.class).toJson();
+        assertTrue(validated.contains("$setIntersection") && validated.contains("\"VALIDATED\""), validated);
+    }
+
+    private static List<Document> pipeline(String category) {
+        Aggregation aggregation = SecureOrderAnalyticsRepositoryImpl.approvalFunnelAggregation(FROM, TO,
+                category == null ? FunnelDimension.CATEGORY : FunnelDimension.SALES_CHANNEL, category, Duration.ofSeconds(5));
+        return aggregation.toPipeline(Aggregation.DEFAULT_CONTEXT);
+    }
+}
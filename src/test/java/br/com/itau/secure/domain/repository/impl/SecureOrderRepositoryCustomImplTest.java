@@ -0,0 +1,176 @@
+package br.com.itau.secure.domain.repository.impl;
+
+import br.com.itau.secure.domain.model.SecureOrder;
+import br.com.itau.secure.domain.service.status.SecureOrderStatus;
+import br.com.itau.secure.infraestructure.config.mongo.SecureOrderWriteConcernPolicy;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.WriteConcern;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.client.result.UpdateResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.CollectionCallback;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.convert.UpdateMapper;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SecureOrderRepositoryCustomImplTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private MongoCollection<Document> collection;
+
+    @Mock
+    private MongoCollection<Document> majorityCollection;
+
+    private SecureOrderRepositoryCustomImpl repository;
+    private UpdateMapper updateMapper;
+    private MongoMappingContext mappingContext;
+    private MappingMongoConverter converter;
+
+    @BeforeEach
+    void setUp() {
+        repository = new SecureOrderRepositoryCustomImpl(mongoTemplate,
+                new SecureOrderWriteConcernPolicy(new MockEnvironment(), new SimpleMeterRegistry()));
+        MongoCustomConversions conversions = new MongoCustomConversions(List.of());
+        mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+        updateMapper = new UpdateMapper(converter);
+    }
+
+    @Test
+    void insertAll_shouldApplyTheCreateWriteConcernOnlyToTheSecureOrdersInsert() {
+        SecureOrder first = SecureOrder.builder().customerId("customer").build();
+        SecureOrder second = SecureOrder.builder().customerId("customer").build();
+        mockInsert();
+
+        assertTrue(repository.insertAll(List.of(first, second)).isEmpty());
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Document>> captor = ArgumentCaptor.forClass(List.class);
+        verify(majorityCollection).insertMany(captor.capture(), any(InsertManyOptions.class));
+        assertEquals(List.of(first.getId(), second.getId()), captor.getValue().stream().map(document -> document.get("_id")).toList());
+        verify(collection, never()).insertMany(anyList(), any(InsertManyOptions.class));
+        verify(mongoTemplate, never()).setWriteConcern(any());
+    }
+
+    @Test
+    void insertAll_whenSomeOrdersFail_shouldReturnTheErrorsByIndex() {
+        SecureOrder first = SecureOrder.builder().customerId("customer").build();
+        SecureOrder second = SecureOrder.builder().customerId("customer").build();
+        mockInsert();
+        when(majorityCollection.insertMany(anyList(), any(InsertManyOptions.class))).thenThrow(new MongoBulkWriteException(
+                BulkWriteResult.acknowledged(1, 0, 0, 0, List.of(), List.of()),
+                List.of(new BulkWriteError(11000, "E11000 duplicate key error", new BsonDocument(), 1)),
+                null, new ServerAddress(), Set.of()));
+
+        assertEquals(Map.of(1, "E11000 duplicate key error"), repository.insertAll(List.of(first, second)));
+    }
+
+    @Test
+    void appendTransitions_shouldSetStatusAndPushOnlyPendingTransitions() {
+        Instant receivedAt = Instant.parse("2025-01-01T10:00:00Z");
+        Instant cancelledAt = Instant.parse("2025-01-01T10:05:00Z");
+        List<SecureOrder.History> history = new ArrayList<>();
+        history.add(SecureOrder.History.builder().status(SecureOrderStatus.RECEIVED).timestamp(receivedAt).build());
+        SecureOrder loaded = SecureOrder.builder().customerId("customer").history(history).build();
+        loaded.setStatus(SecureOrderStatus.CANCELLED, cancelledAt);
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(SecureOrder.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
+
+        assertTrue(repository.appendTransitions(loaded));
+
+        ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> captor = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateFirst(queryCaptor.capture(), captor.capture(), eq(SecureOrder.class));
+        Document query = queryCaptor.getValue().getQueryObject();
+        assertEquals(loaded.getId(), query.get("id"));
+        assertEquals(new Document("$in", List.of(SecureOrderStatus.RECEIVED, "RECEIVED")), query.get("status"));
+        assertEquals(new Document("$size", 1), query.get("history"));
+
+        Document mapped = updateMapper.getMappedObject(captor.getValue().getUpdateObject(),
+                mappingContext.getPersistentEntity(SecureOrder.class));
+
+        Document set = mapped.get("$set", Document.class);
+        assertEquals("CANCELLED", set.get("status"));
+        assertEquals(Date.from(cancelledAt), set.get("finishedAt"));
+        assertFalse(set.containsKey("riskClassification"));
+        List<?> pushed = mapped.get("$push", Document.class).get("history", Document.class).getList("$each", Object.class);
+        assertEquals(1, pushed.size());
+        Document transition = (Document) pushed.get(0);
+        assertEquals("CANCELLED", transition.get("status"));
+        assertEquals(Date.from(cancelledAt), transition.get("timestamp"));
+        assertFalse(mapped.containsKey("coverages"));
+    }
+
+    @Test
+    void appendTransitions_whenNothingIsPending_shouldNotWrite() {
+        List<SecureOrder.History> history = new ArrayList<>();
+        history.add(SecureOrder.History.builder().status(SecureOrderStatus.RECEIVED).timestamp(Instant.now()).build());
+        SecureOrder loaded = SecureOrder.builder().customerId("customer").history(history).build();
+
+        assertTrue(repository.appendTransitions(loaded));
+
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    @Test
+    void appendTransitions_whenFraudCheckWasApplied_shouldStoreRiskClassification() {
+        List<SecureOrder.History> history = new ArrayList<>();
+        history.add(SecureOrder.History.builder().status(SecureOrderStatus.RECEIVED).timestamp(Instant.now()).build());
+        SecureOrder loaded = SecureOrder.builder().customerId("customer").history(history).build();
+        loaded.setRiskClassification("PREFERRED");
+        loaded.setStatus(SecureOrderStatus.VALIDATED, Instant.now());
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(SecureOrder.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
+
+        assertTrue(repository.appendTransitions(loaded));
+
+        ArgumentCaptor<Update> captor = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateFirst(any(Query.class), captor.capture(), eq(SecureOrder.class));
+        assertEquals("PREFERRED", captor.getValue().getUpdateObject().get("$set", Document.class).get("riskClassification"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void mockInsert() {
+        when(mongoTemplate.getConverter()).thenReturn(converter);
+        when(mongoTemplate.execute(eq(SecureOrder.class), any(CollectionCallback.class)))
+                .thenAnswer(invocation -> invocation.getArgument(1, CollectionCallback.class).doInCollection(collection));
+        when(collection.withWriteConcern(WriteConcern.MAJORITY)).thenReturn(majorityCollection);
+    }
+}
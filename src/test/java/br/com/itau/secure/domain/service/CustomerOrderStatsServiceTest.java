@@ -0,0 +1,46 @@
+package br.com.itau.secure.domain.service;
+
+import br.com.itau.secure.domain.model.SecureOrder;
+import br.com.itau.secure.domain.repository.CustomerOrderStatsRepository;
+import br.com.itau.secure.domain.service.status.SecureOrderStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CustomerOrderStatsServiceTest {
+
+    @Mock
+    private CustomerOrderStatsRepository customerOrderStatsRepository;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void tryRecordCreated_whenUpsertFails_shouldCountTheFailureWithoutThrowing() {
+        CustomerOrderStatsService service = new CustomerOrderStatsService(customerOrderStatsRepository, meterRegistry);
+        doThrow(new IllegalStateException("mongo unavailable")).when(customerOrderStatsRepository).recordCreated(anyList());
+
+        assertDoesNotThrow(() -> service.tryRecordCreated(List.of(SecureOrder.builder().customerId("customer").build())));
+
+        assertEquals(1, meterRegistry.get(CustomerOrderStatsService.FAILED_COUNTER).counter().count());
+    }
+
+    @Test
+    void recordTransition_whenUpsertFails_shouldPropagateTheError() {
+        CustomerOrderStatsService service = new CustomerOrderStatsService(customerOrderStatsRepository, meterRegistry);
+        SecureOrder secureOrder = SecureOrder.builder().customerId("customer").build();
+        doThrow(new IllegalStateException("mongo unavailable")).when(customerOrderStatsRepository)
+                .recordTransition("customer", SecureOrderStatus.RECEIVED, SecureOrderStatus.RECEIVED);
+
+        assertThrows(IllegalStateException.class, () -> service.recordTransition(secureOrder, SecureOrderStatus.RECEIVED));
+        assertEquals(0, meterRegistry.get(CustomerOrderStatsService.FAILED_COUNTER).counter().count());
+    }
+}
@@ -0,0 +1,56 @@
+package br.com.itau.secure.domain.service;
+
+import br.com.itau.secure.domain.model.IdempotencyKey;
+import br.com.itau.secure.domain.repository.IdempotencyKeyRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyKeyServiceTest {
+
+    @Mock
+    private IdempotencyKeyRepository idempotencyKeyRepository;
+
+    @Test
+    void claim_whenOrderIsNotPersistedYet_shouldReadTheKeyFromMongoOnEveryRetry() {
+        IdempotencyKeyService service = service();
+        when(idempotencyKeyRepository.insert(any(IdempotencyKey.class)))
+                .thenReturn(null)
+                .thenThrow(new DuplicateKeyException("E11000"))
+                .thenReturn(null);
+        when(idempotencyKeyRepository.findById("key-1"))
+                .thenReturn(Optional.of(new IdempotencyKey("key-1", "order-1", Instant.now())));
+
+        assertNull(service.claim("key-1", "order-1"));
+        assertEquals("order-1", service.claim("key-1", "order-2"));
+        // outro pod liberou a chave depois de falhar a gravação: a retentativa cria o pedido de novo
+        assertNull(service.claim("key-1", "order-3"));
+
+        verify(idempotencyKeyRepository, times(3)).insert(any(IdempotencyKey.class));
+    }
+
+    @Test
+    void claim_whenOrderWasPersisted_shouldAnswerFromTheLocalCache() {
+        IdempotencyKeyService service = service();
+
+        service.markPersisted("key-1", "order-1");
+
+        assertEquals("order-1", service.claim("key-1", "order-2"));
+        verifyNoInteractions(idempotencyKeyRepository);
+    }
+
+    private IdempotencyKeyService service() {
+        return new IdempotencyKeyService(idempotencyKeyRepository, 100, Duration.ofMinutes(10));
+    }
+}
@@ -0,0 +1,147 @@
+package br.com.itau.secure.domain.service;
+
+import br.com.itau.secure.api.model.OrderServiceStatusData;
+import br.com.itau.secure.domain.model.PendingOrder;
+import br.com.itau.secure.domain.model.SecureOrder;
+import br.com.itau.secure.domain.repository.SecureOrderRepository;
+import br.com.itau.secure.domain.service.status.SecureOrderStatus;
+import br.com.itau.secure.domain.service.status.SecureOrderStatusService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PendingOrderDeadlineSchedulerTest {
+
+    @Mock
+    private SecureOrderRepository secureOrderRepository;
+
+    @Mock
+    private SecureOrderService secureOrderService;
+
+    @Mock
+    private OrderEventPublisher orderEventPublisher;
+
+    @Test
+    void recoverPendingDeadlines_shouldRejectOrdersPastTheirSla() {
+        PendingOrderDeadlineScheduler scheduler = scheduler(true, "reject");
+        SecureOrder pending = pendingOrder();
+        when(secureOrderRepository.streamPendingOrders()).thenReturn(Stream.of(
+                new PendingOrder(pending.getId(), Instant.now().minus(Duration.ofHours(1)))));
+        when(secureOrderService.findById(pending.getId())).thenReturn(pending);
+
+        scheduler.recoverPendingDeadlines();
+        expireAfterNextTick(scheduler);
+
+        assertEquals(SecureOrderStatus.REJECTED, pending.getStatus());
+        verify(secureOrderService).createUpdateSecureOrder(pending);
+    }
+
+    @Test
+    void recoverPendingDeadlines_whenRescanFindsTheSameOrder_shouldScheduleItOnce() {
+        PendingOrderDeadlineScheduler scheduler = scheduler(true, "reject");
+        SecureOrder pending = pendingOrder();
+        PendingOrder pendingOrder = new PendingOrder(pending.getId(), Instant.now().minus(Duration.ofHours(1)));
+        when(secureOrderRepository.streamPendingOrders()).thenReturn(Stream.of(pendingOrder), Stream.of(pendingOrder));
+        List<String> handlingThreads = new ArrayList<>();
+        when(secureOrderService.findById(pending.getId())).thenAnswer(invocation -> {
+            handlingThreads.add(Thread.currentThread().getName());
+            return pending;
+        });
+
+        scheduler.recoverPendingDeadlines();
+        scheduler.recoverPendingDeadlines();
+        expireAfterNextTick(scheduler);
+
+        assertEquals(1, handlingThreads.size());
+        assertTrue(handlingThreads.get(0).startsWith("pending-deadline-"));
+        verify(secureOrderService).createUpdateSecureOrder(pending);
+    }
+
+    @Test
+    void expireDeadlines_whenOrderAlreadyLeftPending_shouldNotWrite() {
+        PendingOrderDeadlineScheduler scheduler = scheduler(true, "reject");
+        SecureOrder approved = pendingOrder();
+        ReflectionTestUtils.setField(approved, "status", SecureOrderStatus.APPROVED);
+        when(secureOrderService.findById(approved.getId())).thenReturn(approved);
+
+        scheduler.schedule(approved.getId(), Instant.now().minus(Duration.ofHours(1)));
+        expireAfterNextTick(scheduler);
+
+        verify(secureOrderService, never()).createUpdateSecureOrder(any());
+    }
+
+    @Test
+    void onDeadline_withRepoll_shouldRequestPaymentSubscriptionAgainBeforeRejecting() {
+        PendingOrderDeadlineScheduler scheduler = scheduler(true, "repoll");
+        SecureOrder pending = pendingOrder();
+        when(secureOrderService.findById(pending.getId())).thenReturn(pending);
+
+        scheduler.onDeadline(new PendingOrderDeadlineScheduler.PendingDeadline(pending.getId(), 0));
+
+        verify(orderEventPublisher).publish(SecureOrderStatusService.ORDER_SECURE_STATUS_PENDING_PAYMENT_SUBSCRIPTION_KEY,
+                new OrderServiceStatusData(pending.getId(), "PENDING", null));
+        assertEquals(SecureOrderStatus.PENDING, pending.getStatus());
+
+        scheduler.onDeadline(new PendingOrderDeadlineScheduler.PendingDeadline(pending.getId(), 2));
+
+        assertEquals(SecureOrderStatus.REJECTED, pending.getStatus());
+        verify(secureOrderService).createUpdateSecureOrder(pending);
+        verifyNoMoreInteractions(orderEventPublisher);
+    }
+
+    @Test
+    void whenDisabled_shouldNotTrackDeadlines() {
+        PendingOrderDeadlineScheduler scheduler = scheduler(false, "reject");
+
+        scheduler.recoverPendingDeadlines();
+        scheduler.schedule("order-id", Instant.now().minus(Duration.ofHours(1)));
+        expireAfterNextTick(scheduler);
+
+        verifyNoInteractions(secureOrderRepository, secureOrderService, orderEventPublisher);
+    }
+
+    private PendingOrderDeadlineScheduler scheduler(boolean enabled, String action) {
+        return new PendingOrderDeadlineScheduler(secureOrderRepository, secureOrderService, orderEventPublisher,
+                new SimpleMeterRegistry(), enabled, Duration.ofMinutes(15), Duration.ofMillis(1), 64, action, 2, 1);
+    }
+
+    private static void expireAfterNextTick(PendingOrderDeadlineScheduler scheduler) {
+        try {
+            Thread.sleep(5);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        scheduler.expireDeadlines();
+        // espera o executor dos vencimentos terminar
+        scheduler.shutdown();
+    }
+
+    private static SecureOrder pendingOrder() {
+        SecureOrder secureOrder = SecureOrder.builder()
+                .customerId("customer")
+                .category("AUTO")
+                .insuredAmount(new BigDecimal("100000.00"))
+                .history(new ArrayList<>(List.of(SecureOrder.History.builder()
+                        .status(SecureOrderStatus.PENDING)
+                        .timestamp(Instant.now())
+                        .build())))
+                .build();
+        ReflectionTestUtils.setField(secureOrder, "status", SecureOrderStatus.PENDING);
+        return secureOrder;
+    }
+}
@@ -0,0 +1,92 @@
+package br.com.itau.secure.domain.service;
+
+import br.com.itau.secure.api.model.ApprovalFunnelResponse;
+import br.com.itau.secure.domain.exception.InvalidAnalyticsQueryException;
+import br.com.itau.secure.domain.model.ApprovalFunnelBucket;
+import br.com.itau.secure.domain.model.FunnelDimension;
+import br.com.itau.secure.domain.repository.SecureOrderAnalyticsRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SecureOrderAnalyticsServiceTest {
+
+    @Mock
+    private SecureOrderAnalyticsRepository secureOrderAnalyticsRepository;
+
+    private SecureOrderAnalyticsService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new SecureOrderAnalyticsService(secureOrderAnalyticsRepository, new SimpleMeterRegistry(),
+                Duration.ofHours(24), Duration.ofDays(31), Duration.ofSeconds(30), 100);
+    }
+
+    @Test
+    void approvalFunnel_shouldComputeStageRatesFromCounts() {
+        Instant from = Instant.parse("2025-01-01T00:00:00Z");
+        Instant to = Instant.parse("2025-01-02T00:00:00Z");
+        when(secureOrderAnalyticsRepository.approvalFunnel(from, to, FunnelDimension.CATEGORY, null))
+                .thenReturn(List.of(new ApprovalFunnelBucket("AUTO", 10, 8, 4, 3, 5, 1)));
+
+        ApprovalFunnelResponse response = service.approvalFunnel(from, to, FunnelDimension.CATEGORY, null);
+
+        ApprovalFunnelResponse.Bucket bucket = response.buckets().get(0);
+        assertEquals(0.8, bucket.validationRate());
+        assertEquals(0.5, bucket.pendingRate());
+        assertEquals(0.3, bucket.approvalRate());
+        assertEquals(0.5, bucket.rejectionRate());
+    }
+
+    @Test
+    void approvalFunnel_shouldAlignWindowToTheMinuteAndServeRepeatedQueriesFromCache() {
+        Instant from = Instant.parse("2025-01-01T00:00:10Z");
+        Instant to = Instant.parse("2025-01-01T06:00:42Z");
+        Instant alignedFrom = Instant.parse("2025-01-01T00:00:00Z");
+        Instant alignedTo = Instant.parse("2025-01-01T06:00:00Z");
+        when(secureOrderAnalyticsRepository.approvalFunnel(alignedFrom, alignedTo, FunnelDimension.RISK_PROFILE, "AUTO"))
+                .thenReturn(List.of());
+
+        ApprovalFunnelResponse first = service.approvalFunnel(from, to, FunnelDimension.RISK_PROFILE, "AUTO");
+        ApprovalFunnelResponse second = service.approvalFunnel(from.plusSeconds(20), to.plusSeconds(5), FunnelDimension.RISK_PROFILE, "AUTO");
+
+        assertSame(first, second);
+        assertEquals(alignedFrom, first.from());
+        assertEquals(alignedTo, first.to());
+        verify(secureOrderAnalyticsRepository, times(1)).approvalFunnel(any(), any(), any(), any());
+    }
+
+    @Test
+    void approvalFunnel_withoutWindow_shouldUseDefaultWindowEndingNow() {
+        when(secureOrderAnalyticsRepository.approvalFunnel(any(), any(), any(), isNull())).thenReturn(List.of());
+
+        ApprovalFunnelResponse response = service.approvalFunnel(null, null, FunnelDimension.SALES_CHANNEL, null);
+
+        assertEquals(Duration.ofHours(24), Duration.between(response.from(), response.to()));
+        assertFalse(response.to().isAfter(Instant.now()));
+    }
+
+    @Test
+    void approvalFunnel_whenWindowExceedsLimit_shouldRejectQuery() {
+        Instant to = Instant.parse("2025-03-01T00:00:00Z");
+
+        assertThrows(InvalidAnalyticsQueryException.class,
+                () -> service.approvalFunnel(to.minus(Duration.ofDays(32)), to, FunnelDimension.CATEGORY, null));
+        assertThrows(InvalidAnalyticsQueryException.class,
+                () -> service.approvalFunnel(to, to.minusSeconds(120), FunnelDimension.CATEGORY, null));
+        verifyNoInteractions(secureOrderAnalyticsRepository);
+    }
+}
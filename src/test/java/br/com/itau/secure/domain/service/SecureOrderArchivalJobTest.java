@@ -0,0 +1,74 @@
+package br.com.itau.secure.domain.service;
+
+import br.com.itau.secure.domain.repository.SecureOrderArchiveRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SecureOrderArchivalJobTest {
+
+    private static final Duration LEASE_TTL = Duration.ofMinutes(15);
+
+    @Mock
+    private SecureOrderArchiveRepository secureOrderArchiveRepository;
+
+    @Mock
+    private LeaseService leaseService;
+
+    @Test
+    void archiveTerminalOrders_shouldStopWhenBatchIsNotFull() {
+        SecureOrderArchivalJob job = new SecureOrderArchivalJob(secureOrderArchiveRepository, leaseService, true,
+                Duration.ofDays(30), 10, 5, Duration.ZERO, LEASE_TTL);
+        when(leaseService.tryAcquire(SecureOrderArchivalJob.LEASE_NAME, LEASE_TTL)).thenReturn(true);
+        when(secureOrderArchiveRepository.archiveBatch(any(Instant.class), eq(10))).thenReturn(10, 10, 3);
+
+        job.archiveTerminalOrders();
+
+        verify(secureOrderArchiveRepository, times(3)).archiveBatch(any(Instant.class), eq(10));
+        verify(leaseService).release(SecureOrderArchivalJob.LEASE_NAME);
+    }
+
+    @Test
+    void archiveTerminalOrders_shouldRespectMaxBatchesPerRun() {
+        SecureOrderArchivalJob job = new SecureOrderArchivalJob(secureOrderArchiveRepository, leaseService, true,
+                Duration.ofDays(30), 10, 2, Duration.ZERO, LEASE_TTL);
+        when(leaseService.tryAcquire(SecureOrderArchivalJob.LEASE_NAME, LEASE_TTL)).thenReturn(true);
+        when(secureOrderArchiveRepository.archiveBatch(any(Instant.class), eq(10))).thenReturn(10);
+
+        job.archiveTerminalOrders();
+
+        verify(secureOrderArchiveRepository, times(2)).archiveBatch(any(Instant.class), eq(10));
+    }
+
+    @Test
+    void archiveTerminalOrders_whenAnotherInstanceHoldsTheLease_shouldNotTouchOrders() {
+        SecureOrderArchivalJob job = new SecureOrderArchivalJob(secureOrderArchiveRepository, leaseService, true,
+                Duration.ofDays(30), 10, 2, Duration.ZERO, LEASE_TTL);
+        when(leaseService.tryAcquire(SecureOrderArchivalJob.LEASE_NAME, LEASE_TTL)).thenReturn(false);
+
+        job.archiveTerminalOrders();
+
+        verifyNoInteractions(secureOrderArchiveRepository);
+        verify(leaseService, never()).release(anyString());
+    }
+
+    @Test
+    void archiveTerminalOrders_whenDisabled_shouldNotTouchOrders() {
+        SecureOrderArchivalJob job = new SecureOrderArchivalJob(secureOrderArchiveRepository, leaseService, false,
+                Duration.ofDays(30), 10, 2, Duration.ZERO, LEASE_TTL);
+
+        job.archiveTerminalOrders();
+
+        verifyNoInteractions(secureOrderArchiveRepository);
+    }
+}
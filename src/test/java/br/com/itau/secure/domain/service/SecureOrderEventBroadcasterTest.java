@@ -0,0 +1,122 @@
+package br.com.itau.secure.domain.service;
+
+import br.com.itau.secure.api.model.SecureOrderStatusEvent;
+import br.com.itau.secure.domain.model.SecureOrder;
+import br.com.itau.secure.domain.service.status.SecureOrderStatus;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+@SuppressWarnings("unchecked")
+class SecureOrderEventBroadcasterTest {
+
+    private final SecureOrderEventBroadcaster broadcaster =
+            new SecureOrderEventBroadcaster(Runnable::run, Duration.ofMinutes(1));
+
+    @Test
+    void subscribe_whenOrderIsInProgress_shouldKeepSubscriptionUntilTerminalStatus() {
+        SecureOrder secureOrder = SecureOrder.builder().customerId("customer").build();
+
+        broadcaster.subscribe(secureOrder.getId(), () -> secureOrder);
+        broadcaster.subscribe(secureOrder.getId(), () -> secureOrder);
+        assertTrue(broadcaster.hasSubscribers(secureOrder.getId()));
+
+        secureOrder.setStatus(SecureOrderStatus.VALIDATED, null);
+        broadcaster.publish(secureOrder.getId(), List.of(lastTransition(secureOrder)));
+        assertTrue(broadcaster.hasSubscribers(secureOrder.getId()));
+
+        secureOrder.setStatus(SecureOrderStatus.CANCELLED, null);
+        broadcaster.publish(secureOrder.getId(), List.of(lastTransition(secureOrder)));
+        assertFalse(broadcaster.hasSubscribers(secureOrder.getId()));
+    }
+
+    @Test
+    void publish_whenOneWriteCarriesSeveralTransitions_shouldSendEachStatusInOrder() {
+        SecureOrder secureOrder = SecureOrder.builder().customerId("customer").build();
+        secureOrder.markTransitionsPersisted();
+        SseEmitter emitter = broadcaster.subscribe(secureOrder.getId(), () -> secureOrder);
+
+        // processamento em uma passada: RECEIVED→VALIDATED→PENDING→APPROVED gravados num único update
+        secureOrder.setStatus(SecureOrderStatus.VALIDATED, Instant.now());
+        secureOrder.setStatus(SecureOrderStatus.PENDING, Instant.now());
+        secureOrder.setStatus(SecureOrderStatus.APPROVED, Instant.now());
+        broadcaster.publish(secureOrder.getId(), List.copyOf(secureOrder.pendingTransitions()));
+
+        assertEquals(List.of(SecureOrderStatus.RECEIVED, SecureOrderStatus.VALIDATED, SecureOrderStatus.PENDING,
+                SecureOrderStatus.APPROVED), sentStatuses(emitter));
+        assertFalse(broadcaster.hasSubscribers(secureOrder.getId()));
+    }
+
+    @Test
+    void subscribe_whenOrderFinishesWhileItIsBeingRead_shouldStillDeliverTheTerminalStatus() {
+        SecureOrder secureOrder = SecureOrder.builder().customerId("customer").build();
+        secureOrder.markTransitionsPersisted();
+
+        // a leitura devolve o pedido ainda em RECEIVED; a aprovação é gravada e publicada enquanto isso
+        SseEmitter emitter = broadcaster.subscribe(secureOrder.getId(), () -> {
+            SecureOrder.History approved = SecureOrder.History.builder()
+                    .status(SecureOrderStatus.APPROVED).timestamp(Instant.now()).build();
+            broadcaster.publish(secureOrder.getId(), List.of(approved));
+            return secureOrder;
+        });
+
+        assertTrue(sentStatuses(emitter).contains(SecureOrderStatus.APPROVED));
+        assertFalse(broadcaster.hasSubscribers(secureOrder.getId()));
+    }
+
+    @Test
+    void subscribe_whenOrderCannotBeRead_shouldNotKeepTheSubscription() {
+        assertThrows(IllegalStateException.class, () -> broadcaster.subscribe("missing", () -> {
+            throw new IllegalStateException("not found");
+        }));
+
+        assertFalse(broadcaster.hasSubscribers("missing"));
+    }
+
+    @Test
+    void subscribe_whenOrderIsTerminal_shouldNotRegisterSubscription() {
+        SecureOrder secureOrder = SecureOrder.builder().customerId("customer").build();
+        secureOrder.setStatus(SecureOrderStatus.REJECTED, null);
+
+        broadcaster.subscribe(secureOrder.getId(), () -> secureOrder);
+
+        assertFalse(broadcaster.hasSubscribers(secureOrder.getId()));
+    }
+
+    @Test
+    void publish_whenOrderHasNoSubscribers_shouldNotScheduleDelivery() {
+        Executor executor = mock(Executor.class);
+        SecureOrderEventBroadcaster idleBroadcaster = new SecureOrderEventBroadcaster(executor, Duration.ofMinutes(1));
+
+        SecureOrder secureOrder = SecureOrder.builder().customerId("customer").build();
+        idleBroadcaster.publish(secureOrder.getId(), List.of(lastTransition(secureOrder)));
+
+        verifyNoInteractions(executor);
+    }
+
+    private static SecureOrder.History lastTransition(SecureOrder secureOrder) {
+        return secureOrder.getHistory().get(secureOrder.getHistory().size() - 1);
+    }
+
+    // sem requisição associada o emitter guarda os envios; os dados do evento são os SecureOrderStatusEvent
+    private static List<SecureOrderStatus> sentStatuses(SseEmitter emitter) {
+        Set<ResponseBodyEmitter.DataWithMediaType> sent = (Set<ResponseBodyEmitter.DataWithMediaType>)
+                ReflectionTestUtils.getField(emitter, "earlySendAttempts");
+        return sent.stream()
+                .map(ResponseBodyEmitter.DataWithMediaType::getData)
+                .filter(SecureOrderStatusEvent.class::isInstance)
+                .map(data -> ((SecureOrderStatusEvent) data).status())
+                .toList();
+    }
+}
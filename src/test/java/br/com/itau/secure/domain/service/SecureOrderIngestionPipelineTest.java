@@ -0,0 +1,228 @@
+package br.com.itau.secure.domain.service;
+
+import br.com.itau.secure.domain.exception.IngestionOverloadedException;
+import br.com.itau.secure.domain.model.SecureOrder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SecureOrderIngestionPipelineTest {
+
+    @Mock
+    private SecureOrderService secureOrderService;
+
+    @Mock
+    private IdempotencyKeyService idempotencyKeyService;
+
+    private SecureOrderIngestionPipeline pipeline;
+
+    @AfterEach
+    void tearDown() {
+        if (pipeline != null && pipeline.isRunning()) {
+            pipeline.stop();
+        }
+    }
+
+    @Test
+    void submit_shouldPersistAcceptedOrdersInBatches() {
+        when(secureOrderService.insertSecureOrders(anyList())).thenReturn(Map.of());
+        pipeline = new SecureOrderIngestionPipeline(secureOrderService, idempotencyKeyService, new SimpleMeterRegistry(), 10, 2, 1, 5000, 1, Duration.ZERO);
+        pipeline.start();
+
+        SecureOrder first = SecureOrder.builder().customerId("customer").build();
+        SecureOrder second = SecureOrder.builder().customerId("customer").build();
+        SecureOrder third = SecureOrder.builder().customerId("customer").build();
+        pipeline.submit(first, null);
+        pipeline.submit(second, null);
+        pipeline.submit(third, null);
+        pipeline.stop();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<SecureOrder>> captor = ArgumentCaptor.forClass(List.class);
+        verify(secureOrderService, atLeastOnce()).insertSecureOrders(captor.capture());
+        List<SecureOrder> persisted = new ArrayList<>();
+        captor.getAllValues().forEach(batch -> {
+            assertTrue(batch.size() <= 2);
+            persisted.addAll(batch);
+        });
+        assertEquals(List.of(first, second, third), persisted);
+    }
+
+    @Test
+    void submit_whenBufferIsFull_shouldRejectOrder() throws InterruptedException {
+        CountDownLatch flushStarted = new CountDownLatch(1);
+        CountDownLatch releaseFlush = new CountDownLatch(1);
+        when(secureOrderService.insertSecureOrders(anyList())).thenAnswer(invocation -> {
+            flushStarted.countDown();
+            releaseFlush.await();
+            return Map.of();
+        });
+        pipeline = new SecureOrderIngestionPipeline(secureOrderService, idempotencyKeyService, new SimpleMeterRegistry(), 1, 1, 3, 5000, 1, Duration.ZERO);
+        pipeline.start();
+
+        // o worker fica preso gravando o primeiro pedido e o segundo ocupa todo o buffer
+        pipeline.submit(SecureOrder.builder().customerId("customer").build(), null);
+        assertTrue(flushStarted.await(5, TimeUnit.SECONDS));
+        pipeline.submit(SecureOrder.builder().customerId("customer").build(), null);
+
+        IngestionOverloadedException exception = assertThrows(IngestionOverloadedException.class,
+                () -> pipeline.submit(SecureOrder.builder().customerId("customer").build(), null));
+
+        assertEquals(3, exception.getRetryAfterSeconds());
+        releaseFlush.countDown();
+    }
+
+    @Test
+    void submit_whenIdempotencyKeyWasAlreadyUsed_shouldReturnOriginalOrderIdWithoutEnqueueing() {
+        pipeline = new SecureOrderIngestionPipeline(secureOrderService, idempotencyKeyService, new SimpleMeterRegistry(), 1, 1, 1, 5000, 1, Duration.ZERO);
+        pipeline.start();
+        SecureOrder retry = SecureOrder.builder().customerId("customer").build();
+        when(idempotencyKeyService.claim("key-1", retry.getId())).thenReturn("original-id");
+
+        String acceptedId = pipeline.submit(retry, "key-1");
+
+        assertEquals("original-id", acceptedId);
+        pipeline.stop();
+        verifyNoInteractions(secureOrderService);
+    }
+
+    @Test
+    void flush_whenBatchWriteFails_shouldReleaseIdempotencyKeysOfTheBatch() {
+        when(secureOrderService.insertSecureOrders(anyList())).thenThrow(new IllegalStateException("mongo unavailable"));
+        pipeline = new SecureOrderIngestionPipeline(secureOrderService, idempotencyKeyService, new SimpleMeterRegistry(), 10, 10, 1, 5000, 1, Duration.ZERO);
+        pipeline.start();
+
+        pipeline.submit(SecureOrder.builder().customerId("customer").build(), "key-1");
+        pipeline.submit(SecureOrder.builder().customerId("customer").build(), null);
+        pipeline.stop();
+
+        verify(idempotencyKeyService).release("key-1");
+        verify(idempotencyKeyService, never()).release(null);
+    }
+
+    @Test
+    void flush_whenSomeOrdersAreRejected_shouldReleaseOnlyTheirIdempotencyKeys() {
+        SecureOrder persisted = SecureOrder.builder().customerId("customer").build();
+        SecureOrder rejected = SecureOrder.builder().customerId("customer").build();
+        // os dois pedidos podem chegar no mesmo lote ou em lotes separados
+        when(secureOrderService.insertSecureOrders(anyList())).thenAnswer(invocation -> {
+            List<SecureOrder> batch = invocation.getArgument(0);
+            Map<Integer, String> failures = new HashMap<>();
+            for (int i = 0; i < batch.size(); i++) {
+                if (batch.get(i) == rejected) {
+                    failures.put(i, "Document failed validation");
+                }
+            }
+            return failures;
+        });
+        pipeline = new SecureOrderIngestionPipeline(secureOrderService, idempotencyKeyService, new SimpleMeterRegistry(), 10, 10, 1, 5000, 1, Duration.ZERO);
+        pipeline.start();
+
+        pipeline.submit(persisted, "key-ok");
+        pipeline.submit(rejected, "key-failed");
+        pipeline.stop();
+
+        verify(idempotencyKeyService).release("key-failed");
+        verify(idempotencyKeyService, never()).release("key-ok");
+        verify(idempotencyKeyService).markPersisted("key-ok", persisted.getId());
+        verify(idempotencyKeyService, never()).markPersisted(eq("key-failed"), anyString());
+        verify(secureOrderService).publishCreatedSecureOrders(List.of(persisted));
+    }
+
+    @Test
+    void flush_whenWriteKeepsFailing_shouldRetryBoundedAndCountTheDroppedOrders() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        SecureOrder secureOrder = SecureOrder.builder().customerId("customer").build();
+        when(secureOrderService.insertSecureOrders(List.of(secureOrder)))
+                .thenThrow(new IllegalStateException("mongo unavailable"))
+                .thenReturn(Map.of(0, "timeout"))
+                .thenThrow(new IllegalStateException("mongo unavailable"));
+        pipeline = new SecureOrderIngestionPipeline(secureOrderService, idempotencyKeyService, meterRegistry, 10, 10, 1, 5000, 3, Duration.ZERO);
+        pipeline.start();
+
+        pipeline.submit(secureOrder, "key-1");
+        pipeline.stop();
+
+        verify(secureOrderService, times(3)).insertSecureOrders(List.of(secureOrder));
+        assertEquals(1, meterRegistry.get(SecureOrderIngestionPipeline.DROPPED_COUNTER).counter().count());
+        verify(idempotencyKeyService).release("key-1");
+        verify(secureOrderService, never()).publishCreatedSecureOrders(anyList());
+    }
+
+    @Test
+    void flush_whenRetrySucceeds_shouldKeepTheOrderAndItsIdempotencyKey() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        SecureOrder secureOrder = SecureOrder.builder().customerId("customer").build();
+        when(secureOrderService.insertSecureOrders(List.of(secureOrder)))
+                .thenThrow(new IllegalStateException("mongo unavailable"))
+                .thenReturn(Map.of());
+        pipeline = new SecureOrderIngestionPipeline(secureOrderService, idempotencyKeyService, meterRegistry, 10, 10, 1, 5000, 3, Duration.ZERO);
+        pipeline.start();
+
+        pipeline.submit(secureOrder, "key-1");
+        pipeline.stop();
+
+        verify(secureOrderService, times(2)).insertSecureOrders(List.of(secureOrder));
+        verify(secureOrderService).publishCreatedSecureOrders(List.of(secureOrder));
+        assertEquals(0, meterRegistry.get(SecureOrderIngestionPipeline.DROPPED_COUNTER).counter().count());
+        verify(idempotencyKeyService, never()).release(anyString());
+    }
+
+    @Test
+    void flush_whenRetryFindsTheOrderAlreadyPersisted_shouldPublishItAndKeepItsIdempotencyKey() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        SecureOrder secureOrder = SecureOrder.builder().customerId("customer").build();
+        // a primeira tentativa gravou e falhou depois; a segunda esbarra no _id já existente
+        when(secureOrderService.insertSecureOrders(List.of(secureOrder)))
+                .thenThrow(new IllegalStateException("socket timeout after write"))
+                .thenReturn(Map.of(0, "E11000 duplicate key error collection: order_service.secure_orders index: _id_ dup key: { _id: \""
+                        + secureOrder.getId() + "\" }"));
+        pipeline = new SecureOrderIngestionPipeline(secureOrderService, idempotencyKeyService, meterRegistry, 10, 10, 1, 5000, 3, Duration.ZERO);
+        pipeline.start();
+
+        pipeline.submit(secureOrder, "key-1");
+        pipeline.stop();
+
+        verify(secureOrderService).publishCreatedSecureOrders(List.of(secureOrder));
+        assertEquals(0, meterRegistry.get(SecureOrderIngestionPipeline.DROPPED_COUNTER).counter().count());
+        verify(idempotencyKeyService, never()).release(anyString());
+    }
+
+    @Test
+    void flush_whenPublicationKeepsFailing_shouldKeepThePersistedOrderAndCountIt() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        SecureOrder secureOrder = SecureOrder.builder().customerId("customer").build();
+        when(secureOrderService.insertSecureOrders(List.of(secureOrder))).thenReturn(Map.of());
+        doThrow(new IllegalStateException("broker down")).when(secureOrderService).publishCreatedSecureOrders(List.of(secureOrder));
+        pipeline = new SecureOrderIngestionPipeline(secureOrderService, idempotencyKeyService, meterRegistry, 10, 10, 1, 5000, 2, Duration.ZERO);
+        pipeline.start();
+
+        pipeline.submit(secureOrder, "key-1");
+        pipeline.stop();
+
+        verify(secureOrderService, times(1)).insertSecureOrders(List.of(secureOrder));
+        verify(secureOrderService, times(2)).publishCreatedSecureOrders(List.of(secureOrder));
+        assertEquals(1, meterRegistry.get(SecureOrderIngestionPipeline.UNPUBLISHED_COUNTER).counter().count());
+        assertEquals(0, meterRegistry.get(SecureOrderIngestionPipeline.DROPPED_COUNTER).counter().count());
+        verify(idempotencyKeyService, never()).release(anyString());
+    }
+}
@@ -1,30 +1,54 @@
 package br.com.itau.secure.domain.service;
 
+import br.com.itau.secure.api.model.CursorPage;
+import br.com.itau.secure.api.model.SecureOrderBatchItemResponse;
 import br.com.itau.secure.api.model.SecureOrderResponse;
+import br.com.itau.secure.api.model.SecureOrderSummaryResponse;
+import br.com.itau.secure.domain.exception.ConcurrentTransitionException;
+import br.com.itau.secure.domain.exception.IdempotencyKeyInProgressException;
+import br.com.itau.secure.domain.exception.IllegalTransitionException;
 import br.com.itau.secure.domain.exception.ResourceNotFoundException;
 import br.com.itau.secure.domain.model.SecureOrder;
+import br.com.itau.secure.domain.model.SecureOrderSummary;
+import br.com.itau.secure.domain.repository.SecureOrderArchiveRepository;
 import br.com.itau.secure.domain.repository.SecureOrderRepository;
 // A importação de SecureOrderStatus deve ser a classe/enum real, não o mock.
 // Se SecureOrderStatus é um enum ou uma classe concreta que implementa uma interface Status,
 // você mockaria a interface/classe base se necessário, ou usaria instâncias reais do enum.
 import br.com.itau.secure.domain.service.status.SecureOrderStatus;
 import br.com.itau.secure.domain.service.status.SecureOrderStatusService;
+import br.com.itau.secure.infraestructure.cache.SecureOrderCache;
+import br.com.itau.secure.infraestructure.config.mongo.SecureOrderWriteConcernPolicy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionOperations;
 
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 // import static org.mockito.ArgumentMatchers.anyString; // Não utilizado diretamente
 import static org.mockito.Mockito.*;
 
@@ -37,6 +61,29 @@ class SecureOrderServiceTest {
     @Mock
     private SecureOrderStatusService secureOrderStatusService;
 
+    @Mock
+    private SecureOrderCache secureOrderCache;
+
+    @Mock
+    private IdempotencyKeyService idempotencyKeyService;
+
+    @Mock
+    private SecureOrderEventBroadcaster secureOrderEventBroadcaster;
+
+    @Mock
+    private SecureOrderArchiveRepository secureOrderArchiveRepository;
+
+    @Mock
+    private CustomerOrderStatsService customerOrderStatsService;
+
+    @Spy
+    private TransactionOperations transactionOperations = TransactionOperations.withoutTransaction();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private SecureOrderWriteConcernPolicy writeConcernPolicy = new SecureOrderWriteConcernPolicy(new MockEnvironment(), meterRegistry);
+
     @Mock
     private SecureOrderStatus mockOrderStatus; // Este mock é para o campo 'status' de SecureOrder
 
@@ -73,6 +120,35 @@ class SecureOrderServiceTest {
         verify(secureOrderRepository).findById(orderId);
     }
 
+    @Test
+    void findById_whenOrderIsCached_shouldNotQueryRepository() {
+        when(secureOrderCache.get(orderId)).thenReturn(sampleOrder);
+
+        SecureOrder foundOrder = secureOrderService.findById(orderId);
+
+        assertSame(sampleOrder, foundOrder);
+        verify(secureOrderRepository, never()).findById(anyString());
+    }
+
+    @Test
+    void findById_whenOrderIsNotCached_shouldLoadAndCacheOrder() {
+        when(secureOrderRepository.findById(orderId)).thenReturn(Optional.of(sampleOrder));
+
+        secureOrderService.findById(orderId);
+
+        verify(secureOrderCache).put(sampleOrder);
+    }
+
+    @Test
+    void findByIdUncached_shouldReadTheRepositoryEvenWhenTheOrderIsCached() {
+        when(secureOrderRepository.findById(orderId)).thenReturn(Optional.of(sampleOrder));
+
+        secureOrderService.findByIdUncached(orderId);
+
+        verify(secureOrderRepository).findById(orderId);
+        verify(secureOrderCache, never()).get(anyString());
+    }
+
     @Test
     void findById_whenOrderDoesNotExist_shouldThrowResourceNotFoundException() {
         when(secureOrderRepository.findById(orderId)).thenReturn(Optional.empty());
@@ -108,6 +184,93 @@ class SecureOrderServiceTest {
         verify(secureOrderRepository).findByCustomerId(customerId);
     }
 
+    @Test
+    void findByCustomerIdPaged_whenMoreOrdersThanLimit_shouldReturnNextCursor() {
+        SecureOrder newest = SecureOrder.builder().customerId(customerId).build();
+        SecureOrder middle = SecureOrder.builder().customerId(customerId).build();
+        SecureOrder oldest = SecureOrder.builder().customerId(customerId).build();
+        when(secureOrderRepository.findByCustomerIdOrderByIdDesc(customerId, Limit.of(3), SecureOrder.class))
+                .thenReturn(List.of(newest, middle, oldest));
+
+        CursorPage<SecureOrderResponse> page = secureOrderService.findByCustomerId(customerId, null, 2);
+
+        assertEquals(2, page.items().size());
+        assertEquals(middle.getId(), page.nextCursor());
+    }
+
+    @Test
+    void findByCustomerIdPaged_whenCursorGiven_shouldQueryOlderOrdersOnly() {
+        String after = sampleOrder.getId();
+        when(secureOrderRepository.findByCustomerIdAndIdLessThanOrderByIdDesc(customerId, after, Limit.of(3), SecureOrder.class))
+                .thenReturn(List.of(sampleOrder));
+
+        CursorPage<SecureOrderResponse> page = secureOrderService.findByCustomerId(customerId, after, 2);
+
+        assertEquals(1, page.items().size());
+        assertNull(page.nextCursor());
+        verify(secureOrderRepository, never()).findByCustomerIdOrderByIdDesc(any(), any(), any());
+    }
+
+    @Test
+    void findById_whenOrderWasArchived_shouldFallBackToArchive() {
+        when(secureOrderRepository.findById(orderId)).thenReturn(Optional.empty());
+        when(secureOrderArchiveRepository.findById(orderId)).thenReturn(Optional.of(sampleOrder));
+
+        SecureOrder foundOrder = secureOrderService.findById(orderId);
+
+        assertSame(sampleOrder, foundOrder);
+        verify(secureOrderCache).put(sampleOrder);
+    }
+
+    @Test
+    void findByCustomerIdPaged_shouldInterleaveLiveAndArchivedOrdersById() {
+        SecureOrder oldest = SecureOrder.builder().customerId(customerId).build();
+        SecureOrder middle = SecureOrder.builder().customerId(customerId).build();
+        SecureOrder newest = SecureOrder.builder().customerId(customerId).build();
+        ReflectionTestUtils.setField(oldest, "id", "01000000-0000-7000-8000-000000000001");
+        ReflectionTestUtils.setField(middle, "id", "01000000-0000-7000-8000-000000000002");
+        ReflectionTestUtils.setField(newest, "id", "01000000-0000-7000-8000-000000000003");
+        when(secureOrderRepository.findByCustomerIdOrderByIdDesc(customerId, Limit.of(3), SecureOrder.class))
+                .thenReturn(List.of(newest));
+        when(secureOrderArchiveRepository.findByCustomerId(customerId, null, 3, SecureOrder.class))
+                .thenReturn(List.of(middle, oldest));
+
+        CursorPage<SecureOrderResponse> page = secureOrderService.findByCustomerId(customerId, null, 2);
+
+        assertEquals(List.of(newest.getId(), middle.getId()), page.items().stream().map(SecureOrderResponse::id).toList());
+        assertEquals(middle.getId(), page.nextCursor());
+    }
+
+    @Test
+    void streamByCustomerId_shouldMergeLiveAndArchivedOrdersById() {
+        SecureOrder oldest = SecureOrder.builder().customerId(customerId).build();
+        SecureOrder middle = SecureOrder.builder().customerId(customerId).build();
+        SecureOrder newest = SecureOrder.builder().customerId(customerId).build();
+        ReflectionTestUtils.setField(oldest, "id", "01000000-0000-7000-8000-000000000001");
+        ReflectionTestUtils.setField(middle, "id", "01000000-0000-7000-8000-000000000002");
+        ReflectionTestUtils.setField(newest, "id", "01000000-0000-7000-8000-000000000003");
+        when(secureOrderRepository.streamByCustomerIdOrderByIdDesc(customerId)).thenReturn(Stream.of(newest, oldest));
+        when(secureOrderArchiveRepository.streamByCustomerId(customerId)).thenReturn(Stream.of(middle));
+
+        try (Stream<SecureOrderResponse> orders = secureOrderService.streamByCustomerId(customerId)) {
+            assertEquals(List.of(newest.getId(), middle.getId(), oldest.getId()),
+                    orders.map(SecureOrderResponse::id).toList());
+        }
+    }
+
+    @Test
+    void findSummariesByCustomerId_shouldQuerySummaryProjection() {
+        SecureOrderSummary summary = new SecureOrderSummary(sampleOrder.getId(), SecureOrderStatus.RECEIVED, "AUTO",
+                null, new BigDecimal("1000.00"), sampleOrder.getCreatedAt(), null);
+        when(secureOrderRepository.findByCustomerIdOrderByIdDesc(customerId, Limit.of(51), SecureOrderSummary.class))
+                .thenReturn(List.of(summary));
+
+        CursorPage<SecureOrderSummaryResponse> page = secureOrderService.findSummariesByCustomerId(customerId, null, 50);
+
+        assertEquals(1, page.items().size());
+        assertEquals(sampleOrder.getId(), page.items().get(0).id());
+        assertNull(page.nextCursor());
+    }
 
     @Test
     void createUpdateSecureOrder_shouldSaveOrderAndSendStatusUpdate() {
@@ -129,8 +292,206 @@ class SecureOrderServiceTest {
         verify(secureOrderRepository).save(eq(orderToSave)); // Verifique com o objeto que foi passado para save
         // Verifique que o método foi chamado com o objeto que foi retornado por save (que é 'savedOrder' ou 'sampleOrder')
         verify(secureOrderStatusService).sendStatusUpdateToQueueProcessing(any(), isNull());
+        verify(secureOrderCache).put(sampleOrder);
+        verify(secureOrderEventBroadcaster).publish(sampleOrder.getId(), List.copyOf(orderToSave.getHistory()));
+        verify(customerOrderStatsService).tryRecordCreated(List.of(sampleOrder));
        }
 
+    @Test
+    void createUpdateSecureOrder_withoutTransaction_shouldPublishBeforeTheBestEffortStatsUpdate() {
+        SecureOrder orderToSave = SecureOrder.builder().customerId("newCustomer").build();
+        when(secureOrderRepository.save(orderToSave)).thenReturn(orderToSave);
+
+        secureOrderService.createUpdateSecureOrder(orderToSave);
+
+        InOrder inOrder = inOrder(secureOrderStatusService, customerOrderStatsService);
+        inOrder.verify(secureOrderStatusService).sendStatusUpdateToQueueProcessing(orderToSave, null);
+        inOrder.verify(customerOrderStatsService).tryRecordCreated(List.of(orderToSave));
+        verify(customerOrderStatsService, never()).recordCreated(anyList());
+    }
+
+    @Test
+    void createUpdateSecureOrder_insideTransaction_shouldRecordStatsInTheSameCommit() {
+        SecureOrder orderToSave = SecureOrder.builder().customerId("newCustomer").build();
+        when(secureOrderRepository.save(orderToSave)).thenReturn(orderToSave);
+        doAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(new SimpleTransactionStatus(true)))
+                .when(transactionOperations).execute(any());
+        doThrow(new IllegalStateException("stats upsert failed")).when(customerOrderStatsService).recordCreated(List.of(orderToSave));
+
+        assertThrows(IllegalStateException.class, () -> secureOrderService.createUpdateSecureOrder(orderToSave));
+
+        verify(secureOrderStatusService, never()).sendStatusUpdateToQueueProcessing(any(), any());
+        verify(customerOrderStatsService, never()).tryRecordCreated(anyList());
+    }
+
+    @Test
+    void createUpdateSecureOrder_whenOrderIsPersisted_shouldAppendTransitionsInsteadOfSaving() {
+        SecureOrder loaded = SecureOrder.builder()
+                .customerId(customerId)
+                .history(new ArrayList<>(List.of(SecureOrder.History.builder()
+                        .status(SecureOrderStatus.RECEIVED)
+                        .timestamp(Instant.now())
+                        .build())))
+                .build();
+        loaded.setStatus(SecureOrderStatus.VALIDATED, null);
+        when(secureOrderRepository.appendTransitions(loaded)).thenReturn(true);
+
+        SecureOrder saved = secureOrderService.createUpdateSecureOrder(loaded);
+
+        assertSame(loaded, saved);
+        assertTrue(saved.pendingTransitions().isEmpty());
+        verify(secureOrderRepository, never()).save(any(SecureOrder.class));
+        verify(secureOrderCache).put(loaded);
+        verify(customerOrderStatsService).tryRecordTransition(loaded, SecureOrderStatus.RECEIVED);
+        assertEquals(1, meterRegistry.get("secure_order.write")
+                .tag("operation", "transition").tag("write_concern", "journaled").timer().count());
+    }
+
+    @Test
+    void createUpdateSecureOrder_whenSeveralTransitionsAreWrittenTogether_shouldBroadcastEachOfThemInOrder() {
+        SecureOrder loaded = SecureOrder.builder()
+                .customerId(customerId)
+                .history(new ArrayList<>(List.of(SecureOrder.History.builder()
+                        .status(SecureOrderStatus.RECEIVED)
+                        .timestamp(Instant.now())
+                        .build())))
+                .build();
+        loaded.setStatus(SecureOrderStatus.VALIDATED, Instant.now());
+        loaded.setStatus(SecureOrderStatus.PENDING, Instant.now());
+        loaded.setStatus(SecureOrderStatus.APPROVED, Instant.now());
+        List<SecureOrder.History> written = List.copyOf(loaded.pendingTransitions());
+        when(secureOrderRepository.appendTransitions(loaded)).thenReturn(true);
+
+        secureOrderService.createUpdateSecureOrder(loaded);
+
+        verify(secureOrderEventBroadcaster).publish(loaded.getId(), written);
+        assertEquals(List.of(SecureOrderStatus.VALIDATED, SecureOrderStatus.PENDING, SecureOrderStatus.APPROVED),
+                written.stream().map(SecureOrder.History::getStatus).toList());
+    }
+
+    @Test
+    void createUpdateSecureOrder_whenPersistedOrderNoLongerExists_shouldThrowResourceNotFound() {
+        SecureOrder loaded = SecureOrder.builder()
+                .customerId(customerId)
+                .history(new ArrayList<>(List.of(SecureOrder.History.builder()
+                        .status(SecureOrderStatus.RECEIVED)
+                        .timestamp(Instant.now())
+                        .build())))
+                .build();
+        loaded.setStatus(SecureOrderStatus.CANCELLED, null);
+        when(secureOrderRepository.appendTransitions(loaded)).thenReturn(false);
+
+        assertThrows(ResourceNotFoundException.class, () -> secureOrderService.createUpdateSecureOrder(loaded));
+
+        verify(secureOrderCache).invalidate(loaded.getId());
+        verifyNoInteractions(secureOrderStatusService);
+    }
+
+    @Test
+    void createUpdateSecureOrder_whenOrderChangedConcurrently_shouldThrowConflict() {
+        SecureOrder loaded = loadedOrder(SecureOrderStatus.RECEIVED);
+        loaded.setStatus(SecureOrderStatus.VALIDATED, null);
+        when(secureOrderRepository.appendTransitions(loaded)).thenReturn(false);
+        when(secureOrderRepository.existsById(loaded.getId())).thenReturn(true);
+
+        assertThrows(ConcurrentTransitionException.class, () -> secureOrderService.createUpdateSecureOrder(loaded));
+
+        verify(secureOrderCache).invalidate(loaded.getId());
+    }
+
+    @Test
+    void cancelOrder_whenConcurrentTransitionHappens_shouldReloadAndRetry() {
+        SecureOrder stale = loadedOrder(SecureOrderStatus.RECEIVED);
+        SecureOrder fresh = loadedOrder(SecureOrderStatus.RECEIVED);
+        fresh.setStatus(SecureOrderStatus.VALIDATED, null);
+        fresh.markTransitionsPersisted();
+        when(secureOrderRepository.findById(orderId)).thenReturn(Optional.of(stale), Optional.of(fresh));
+        when(secureOrderRepository.appendTransitions(stale)).thenReturn(false);
+        when(secureOrderRepository.existsById(stale.getId())).thenReturn(true);
+        when(secureOrderRepository.appendTransitions(fresh)).thenReturn(true);
+
+        SecureOrder cancelled = secureOrderService.cancelOrder(orderId);
+
+        assertSame(fresh, cancelled);
+        assertEquals(SecureOrderStatus.CANCELLED, cancelled.getStatus());
+        verify(secureOrderRepository, times(2)).findById(orderId);
+    }
+
+    @Test
+    void createUpdateSecureOrder_whenSaveFails_shouldInvalidateCachedOrder() {
+        when(secureOrderRepository.save(sampleOrder)).thenThrow(new IllegalStateException("write failed"));
+
+        assertThrows(IllegalStateException.class, () -> secureOrderService.createUpdateSecureOrder(sampleOrder));
+
+        verify(secureOrderCache).invalidate(sampleOrder.getId());
+        verify(secureOrderCache, never()).put(any());
+        verifyNoInteractions(secureOrderStatusService);
+    }
+
+    @Test
+    void createSecureOrder_whenIdempotencyKeyIsNew_shouldCreateOrder() {
+        when(idempotencyKeyService.claim("key-1", sampleOrder.getId())).thenReturn(null);
+        when(secureOrderRepository.save(sampleOrder)).thenReturn(sampleOrder);
+
+        SecureOrder created = secureOrderService.createSecureOrder(sampleOrder, "key-1");
+
+        assertSame(sampleOrder, created);
+        verify(secureOrderStatusService).sendStatusUpdateToQueueProcessing(sampleOrder, null);
+        verify(idempotencyKeyService).markPersisted("key-1", sampleOrder.getId());
+    }
+
+    @Test
+    void createSecureOrder_whenIdempotencyKeyWasAlreadyUsed_shouldReturnOriginalOrderWithoutSavingOrPublishing() {
+        SecureOrder retry = SecureOrder.builder().customerId(customerId).build();
+        when(idempotencyKeyService.claim("key-1", retry.getId())).thenReturn(orderId);
+        when(secureOrderRepository.findById(orderId)).thenReturn(Optional.of(sampleOrder));
+
+        SecureOrder result = secureOrderService.createSecureOrder(retry, "key-1");
+
+        assertSame(sampleOrder, result);
+        verify(secureOrderRepository, never()).save(any(SecureOrder.class));
+        verifyNoInteractions(secureOrderStatusService);
+    }
+
+    @Test
+    void createSecureOrder_whenOriginalOrderIsNotPersistedYet_shouldThrowInProgress() {
+        SecureOrder retry = SecureOrder.builder().customerId(customerId).build();
+        when(idempotencyKeyService.claim("key-1", retry.getId())).thenReturn(orderId);
+        when(secureOrderRepository.findById(orderId)).thenReturn(Optional.empty());
+
+        assertThrows(IdempotencyKeyInProgressException.class, () -> secureOrderService.createSecureOrder(retry, "key-1"));
+    }
+
+    @Test
+    void createSecureOrder_whenCreationFails_shouldReleaseIdempotencyKey() {
+        when(secureOrderRepository.save(sampleOrder)).thenThrow(new IllegalStateException("write failed"));
+
+        assertThrows(IllegalStateException.class, () -> secureOrderService.createSecureOrder(sampleOrder, "key-1"));
+
+        verify(idempotencyKeyService).release("key-1");
+        verify(idempotencyKeyService, never()).markPersisted(anyString(), anyString());
+    }
+
+    @Test
+    void createSecureOrders_shouldInsertInBulkAndPublishOnlyInsertedOrders() {
+        SecureOrder first = SecureOrder.builder().customerId(customerId).build();
+        SecureOrder second = SecureOrder.builder().customerId(customerId).build();
+        List<SecureOrder> orders = List.of(first, second);
+
+        when(secureOrderRepository.insertAll(orders)).thenReturn(Map.of(1, "E11000 duplicate key error"));
+
+        List<SecureOrderBatchItemResponse> results = secureOrderService.createSecureOrders(orders);
+
+        assertEquals(2, results.size());
+        assertEquals(first.getId(), results.get(0).id());
+        assertNull(results.get(0).error());
+        assertEquals("E11000 duplicate key error", results.get(1).error());
+        verify(secureOrderRepository).insertAll(orders);
+        verify(secureOrderRepository, never()).save(any(SecureOrder.class));
+        verify(secureOrderStatusService).sendStatusUpdatesToQueueProcessing(List.of(first));
+        verify(customerOrderStatsService).tryRecordCreated(List.of(first));
+    }
+
     @Test
     void cancelOrder_whenOrderExists_shouldCancelAndUpdateOrder() {
         when(secureOrderRepository.findById(orderId)).thenReturn(Optional.of(sampleOrder));
@@ -147,6 +508,28 @@ class SecureOrderServiceTest {
         verify(secureOrderStatusService).sendStatusUpdateToQueueProcessing(sampleOrder, null);
     }
 
+    @Test
+    void cancelOrder_whenOrderIsApproved_shouldThrowIllegalTransitionWithoutWriting() {
+        SecureOrder approved = loadedOrder(SecureOrderStatus.APPROVED);
+        when(secureOrderRepository.findById(approved.getId())).thenReturn(Optional.of(approved));
+
+        assertThrows(IllegalTransitionException.class, () -> secureOrderService.cancelOrder(approved.getId()));
+
+        verify(secureOrderRepository, never()).appendTransitions(any(SecureOrder.class));
+        assertEquals(SecureOrderStatus.APPROVED, approved.getStatus());
+    }
+
+    @Test
+    void cancelOrder_whenOrderIsAlreadyCancelled_shouldReturnItWithoutWriting() {
+        SecureOrder cancelled = loadedOrder(SecureOrderStatus.CANCELLED);
+        when(secureOrderRepository.findById(cancelled.getId())).thenReturn(Optional.of(cancelled));
+
+        assertSame(cancelled, secureOrderService.cancelOrder(cancelled.getId()));
+
+        verify(secureOrderRepository, never()).appendTransitions(any(SecureOrder.class));
+        verify(secureOrderEventBroadcaster, never()).publish(any(), any());
+    }
+
     @Test
     void cancelOrder_whenOrderDoesNotExist_shouldThrowResourceNotFoundException() {
         when(secureOrderRepository.findById(orderId)).thenReturn(Optional.empty());
@@ -160,4 +543,13 @@ class SecureOrderServiceTest {
         verify(secureOrderRepository, never()).save(any(SecureOrder.class));
         verify(secureOrderStatusService, never()).sendStatusUpdateToQueueProcessing(any(SecureOrder.class), any());
     }
-}
\ No newline at end of file
+
+    private SecureOrder loadedOrder(SecureOrderStatus status) {
+        SecureOrder loaded = SecureOrder.builder().customerId(customerId).build();
+        if (status != SecureOrderStatus.RECEIVED) {
+            loaded.setStatus(status, null);
+        }
+        loaded.markTransitionsPersisted();
+        return loaded;
+    }
+}
@@ -0,0 +1,154 @@
+package br.com.itau.secure.domain.service.status;
+
+import br.com.itau.secure.api.client.RiskClient;
+import br.com.itau.secure.api.model.FraudCheckResult;
+import br.com.itau.secure.api.model.OrderServiceStatusData;
+import br.com.itau.secure.domain.model.SecureOrder;
+import br.com.itau.secure.domain.service.OrderEventPublisher;
+import br.com.itau.secure.domain.service.PendingOrderDeadlineScheduler;
+import br.com.itau.secure.domain.service.SecureOrderService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SecureOrderStatusServiceTest {
+
+    @Mock
+    private SecureOrderService secureOrderService;
+
+    @Mock
+    private OrderEventPublisher orderEventPublisher;
+
+    @Mock
+    private RiskClient riskClient;
+
+    @Mock
+    private PendingOrderDeadlineScheduler pendingOrderDeadlineScheduler;
+
+    private SecureOrderStatusService secureOrderStatusService;
+
+    @BeforeEach
+    void setUp() {
+        secureOrderStatusService = new SecureOrderStatusService(secureOrderService, orderEventPublisher, riskClient, pendingOrderDeadlineScheduler);
+        ReflectionTestUtils.setField(secureOrderStatusService, "processingMode", "rabbitmq");
+    }
+
+    @Test
+    void processSecureOrder_shouldLoadOnceAndPersistEveryInProcessTransitionInASingleWrite() {
+        SecureOrder received = loadedOrder(SecureOrderStatus.RECEIVED);
+        when(secureOrderService.findById(received.getId())).thenReturn(received);
+        when(riskClient.checkFraud(any())).thenReturn(new FraudCheckResult(received.getId(), "customer", null, "REGULAR", List.of()));
+        when(secureOrderService.createUpdateSecureOrder(received)).thenReturn(received);
+
+        secureOrderStatusService.processSecureOrder(new OrderServiceStatusData(received.getId(), "RECEIVED", null));
+
+        verify(secureOrderService, times(1)).findById(received.getId());
+        verify(secureOrderService, times(1)).createUpdateSecureOrder(received);
+        List<SecureOrderStatus> statuses = received.pendingTransitions().stream().map(SecureOrder.History::getStatus).toList();
+        assertEquals(List.of(SecureOrderStatus.VALIDATED, SecureOrderStatus.PENDING), statuses.subList(0, 2));
+        assertTrue(received.getStatus().isTerminal());
+
+        ArgumentCaptor<OrderServiceStatusData> captor = ArgumentCaptor.forClass(OrderServiceStatusData.class);
+        verify(orderEventPublisher).publish(eq(SecureOrderStatusService.ORDER_SECURE_STATUS_PENDING_PAYMENT_SUBSCRIPTION_KEY), captor.capture());
+        assertEquals("PENDING", captor.getValue().status());
+        verifyNoMoreInteractions(orderEventPublisher);
+        verifyNoInteractions(pendingOrderDeadlineScheduler);
+    }
+
+    @Test
+    void processSecureOrder_whenOrderIsStoredAsPending_shouldScheduleItsDeadline() {
+        SecureOrder received = loadedOrder(SecureOrderStatus.RECEIVED);
+        SecureOrder stored = loadedOrder(SecureOrderStatus.PENDING);
+        when(secureOrderService.findById(received.getId())).thenReturn(received);
+        when(riskClient.checkFraud(any())).thenReturn(new FraudCheckResult(received.getId(), "customer", null, "REGULAR", List.of()));
+        when(secureOrderService.createUpdateSecureOrder(received)).thenReturn(stored);
+
+        secureOrderStatusService.processSecureOrder(new OrderServiceStatusData(received.getId(), "RECEIVED", null));
+
+        verify(pendingOrderDeadlineScheduler).schedule(stored.getId(), stored.getHistory().get(0).getTimestamp());
+    }
+
+    @Test
+    void processSecureOrder_whenRejectedOnValidation_shouldPersistWithoutPaymentSubscriptionEvent() {
+        SecureOrder received = loadedOrder(SecureOrderStatus.RECEIVED);
+        when(secureOrderService.findById(received.getId())).thenReturn(received);
+        when(riskClient.checkFraud(any())).thenReturn(new FraudCheckResult(received.getId(), "customer", null, "UNKNOWN_PROFILE", List.of()));
+        when(secureOrderService.createUpdateSecureOrder(received)).thenReturn(received);
+
+        secureOrderStatusService.processSecureOrder(new OrderServiceStatusData(received.getId(), "RECEIVED", null));
+
+        assertEquals(SecureOrderStatus.REJECTED, received.getStatus());
+        verify(secureOrderService, times(1)).createUpdateSecureOrder(received);
+        verifyNoInteractions(orderEventPublisher);
+    }
+
+    @Test
+    void processSecureOrder_whenValidatedWithoutClassification_shouldNotWrite() {
+        SecureOrder validated = loadedOrder(SecureOrderStatus.VALIDATED);
+        when(secureOrderService.findById(validated.getId())).thenReturn(validated);
+
+        secureOrderStatusService.processSecureOrder(new OrderServiceStatusData(validated.getId(), "VALIDATED", null));
+
+        verify(secureOrderService, never()).createUpdateSecureOrder(any());
+        verifyNoInteractions(orderEventPublisher);
+    }
+
+    @Test
+    void processSecureOrder_whenMessageStatusIsTerminal_shouldNotLoadTheOrder() {
+        secureOrderStatusService.processSecureOrder(new OrderServiceStatusData("order-id", "APPROVED", null));
+        secureOrderStatusService.processSecureOrder(new OrderServiceStatusData("order-id", "UNKNOWN", null));
+
+        verifyNoInteractions(secureOrderService, riskClient, orderEventPublisher);
+    }
+
+    @Test
+    void processSecureOrder_whenOrderAlreadyFinished_shouldNotWrite() {
+        SecureOrder approved = loadedOrder(SecureOrderStatus.APPROVED);
+        when(secureOrderService.findById(approved.getId())).thenReturn(approved);
+
+        secureOrderStatusService.processSecureOrder(new OrderServiceStatusData(approved.getId(), "RECEIVED", null));
+
+        verify(secureOrderService, never()).createUpdateSecureOrder(any());
+        verifyNoInteractions(riskClient, orderEventPublisher);
+    }
+
+    @Test
+    void sendStatusUpdateToQueueProcessing_shouldSkipTerminalOrders() {
+        secureOrderStatusService.sendStatusUpdateToQueueProcessing(loadedOrder(SecureOrderStatus.CANCELLED), null);
+        verifyNoInteractions(orderEventPublisher);
+
+        SecureOrder pending = loadedOrder(SecureOrderStatus.PENDING);
+        secureOrderStatusService.sendStatusUpdateToQueueProcessing(pending, null);
+        verify(orderEventPublisher).publish(SecureOrderStatusService.ORDER_SECURE_STATUS_PROCESSING_KEY,
+                new OrderServiceStatusData(pending.getId(), "PENDING", null));
+    }
+
+    private static SecureOrder loadedOrder(SecureOrderStatus status) {
+        SecureOrder secureOrder = SecureOrder.builder()
+                .customerId("customer")
+                .category("AUTO")
+                .insuredAmount(new BigDecimal("100000.00"))
+                .history(new ArrayList<>(List.of(SecureOrder.History.builder()
+                        .status(status)
+                        .timestamp(Instant.now())
+                        .build())))
+                .build();
+        // o builder com history não define o status: ele vem do último item, como na leitura do banco
+        ReflectionTestUtils.setField(secureOrder, "status", status);
+        return secureOrder;
+    }
+}
@@ -0,0 +1,78 @@
+package br.com.itau.secure.domain.service.status;
+
+import br.com.itau.secure.api.model.FraudCheckResult;
+import br.com.itau.secure.domain.model.SecureOrder;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SecureOrderTransitionTableTest {
+
+    @Test
+    void outcome_shouldCoverEveryStatusAndEvent() {
+        for (SecureOrderStatus status : SecureOrderStatus.values()) {
+            for (SecureOrderEvent event : SecureOrderEvent.values()) {
+                assertNotNull(SecureOrderTransitionTable.outcome(status, event), status + " x " + event);
+            }
+        }
+    }
+
+    @Test
+    void outcome_shouldIgnoreStepsTheOrderAlreadyPassed() {
+        assertEquals(TransitionOutcome.IGNORED, SecureOrderTransitionTable.outcome(SecureOrderStatus.VALIDATED, SecureOrderEvent.VALIDATE));
+        assertEquals(TransitionOutcome.IGNORED, SecureOrderTransitionTable.outcome(SecureOrderStatus.PENDING, SecureOrderEvent.PEND));
+        assertEquals(TransitionOutcome.IGNORED, SecureOrderTransitionTable.outcome(SecureOrderStatus.APPROVED, SecureOrderEvent.APPROVE));
+        assertEquals(TransitionOutcome.IGNORED, SecureOrderTransitionTable.outcome(SecureOrderStatus.CANCELLED, SecureOrderEvent.CANCEL));
+    }
+
+    @Test
+    void outcome_shouldRejectSkippedStepsAndCancellingFinishedOrders() {
+        assertEquals(TransitionOutcome.ILLEGAL, SecureOrderTransitionTable.outcome(SecureOrderStatus.RECEIVED, SecureOrderEvent.APPROVE));
+        assertEquals(TransitionOutcome.ILLEGAL, SecureOrderTransitionTable.outcome(SecureOrderStatus.VALIDATED, SecureOrderEvent.APPROVE));
+        assertEquals(TransitionOutcome.ILLEGAL, SecureOrderTransitionTable.outcome(SecureOrderStatus.APPROVED, SecureOrderEvent.CANCEL));
+        assertEquals(TransitionOutcome.ILLEGAL, SecureOrderTransitionTable.outcome(SecureOrderStatus.REJECTED, SecureOrderEvent.CANCEL));
+    }
+
+    @Test
+    void inProcessStep_shouldFollowTheProcessingFlowAndStopOnFinalStatuses() {
+        assertEquals(SecureOrderEvent.VALIDATE, SecureOrderTransitionTable.inProcessStep(SecureOrderStatus.RECEIVED));
+        assertEquals(SecureOrderEvent.PEND, SecureOrderTransitionTable.inProcessStep(SecureOrderStatus.VALIDATED));
+        assertEquals(SecureOrderEvent.APPROVE, SecureOrderTransitionTable.inProcessStep(SecureOrderStatus.PENDING));
+        assertNull(SecureOrderTransitionTable.inProcessStep(SecureOrderStatus.APPROVED));
+        assertNull(SecureOrderTransitionTable.inProcessStep(SecureOrderStatus.CANCELLED));
+    }
+
+    @Test
+    void apply_shouldRunTheStrategyOnlyWhenTheTransitionIsAllowed() {
+        SecureOrder received = order(SecureOrderStatus.RECEIVED);
+        FraudCheckResult fraudCheckResult = new FraudCheckResult(received.getId(), "customer", null, "REGULAR", List.of());
+
+        assertEquals(TransitionOutcome.APPLIED,
+                SecureOrderTransitionTable.apply(received, SecureOrderEvent.VALIDATE, TransitionInput.fraudCheck(fraudCheckResult)));
+        assertEquals(SecureOrderStatus.VALIDATED, received.getStatus());
+
+        SecureOrder approved = order(SecureOrderStatus.APPROVED);
+        assertEquals(TransitionOutcome.ILLEGAL, SecureOrderTransitionTable.apply(approved, SecureOrderEvent.CANCEL, TransitionInput.none()));
+        assertEquals(TransitionOutcome.IGNORED,
+                SecureOrderTransitionTable.apply(approved, SecureOrderEvent.VALIDATE, TransitionInput.fraudCheck(fraudCheckResult)));
+        assertEquals(SecureOrderStatus.APPROVED, approved.getStatus());
+        assertEquals(1, approved.getHistory().size());
+    }
+
+    private static SecureOrder order(SecureOrderStatus status) {
+        SecureOrder secureOrder = SecureOrder.builder()
+                .customerId("customer")
+                .category("AUTO")
+                .insuredAmount(new BigDecimal("100000.00"))
+                .history(new ArrayList<>(List.of(SecureOrder.History.builder().status(status).timestamp(Instant.now()).build())))
+                .build();
+        ReflectionTestUtils.setField(secureOrder, "status", status);
+        return secureOrder;
+    }
+}
@@ -0,0 +1,173 @@
+package br.com.itau.secure.infraestructure.changestream;
+
+import br.com.itau.secure.domain.model.ChangeStreamFailure;
+import br.com.itau.secure.domain.model.SecureOrder;
+import br.com.itau.secure.domain.repository.ChangeStreamCheckpointRepository;
+import br.com.itau.secure.domain.repository.ChangeStreamFailureRepository;
+import br.com.itau.secure.domain.service.LeaseService;
+import br.com.itau.secure.domain.service.status.SecureOrderStatusService;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.messaging.Message;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SecureOrderChangeStreamListenerTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private ChangeStreamCheckpointRepository checkpointRepository;
+
+    @Mock
+    private ChangeStreamFailureRepository failureRepository;
+
+    @Mock
+    private LeaseService leaseService;
+
+    @Mock
+    private SecureOrderStatusService secureOrderStatusService;
+
+    private SecureOrderChangeStreamListener listener;
+
+    @BeforeEach
+    void setUp() {
+        listener = new SecureOrderChangeStreamListener(mongoTemplate, checkpointRepository, failureRepository, leaseService,
+                secureOrderStatusService, Duration.ofHours(1), Duration.ofSeconds(1), Duration.ofSeconds(30), 3,
+                Duration.ZERO, 5);
+    }
+
+    @Test
+    void onChange_whenProcessingKeepsFailing_shouldRetryThenRecordTheOrderAndAdvance() {
+        SecureOrder secureOrder = SecureOrder.builder().customerId("customer").build();
+        doThrow(new IllegalStateException("risk api timeout")).when(secureOrderStatusService).processSecureOrderChange(secureOrder);
+
+        listener.onChange(message(secureOrder, "token-1"));
+
+        verify(secureOrderStatusService, times(3)).processSecureOrderChange(secureOrder);
+        ArgumentCaptor<ChangeStreamFailure> captor = ArgumentCaptor.forClass(ChangeStreamFailure.class);
+        verify(failureRepository).save(captor.capture());
+        assertEquals(secureOrder.getId(), captor.getValue().id());
+        assertEquals(token("token-1"), ReflectionTestUtils.getField(listener, "lastResumeToken"));
+    }
+
+    @Test
+    void onChange_whenFailureCannotBeRecorded_shouldNotAdvancePastTheEvent() {
+        SecureOrder failed = SecureOrder.builder().customerId("customer").build();
+        SecureOrder next = SecureOrder.builder().customerId("customer").build();
+        doThrow(new IllegalStateException("risk api timeout")).when(secureOrderStatusService).processSecureOrderChange(failed);
+        when(failureRepository.save(any(ChangeStreamFailure.class))).thenThrow(new IllegalStateException("mongo unavailable"));
+
+        listener.onChange(message(failed, "token-1"));
+        listener.onChange(message(next, "token-2"));
+
+        assertNull(ReflectionTestUtils.getField(listener, "lastResumeToken"));
+        assertEquals(true, ReflectionTestUtils.getField(listener, "reopenRequested"));
+        verify(secureOrderStatusService, never()).processSecureOrderChange(next);
+    }
+
+    @Test
+    void redriveBatch_shouldReprocessFromTheCurrentDocumentAndCountFailures() {
+        SecureOrder recovered = SecureOrder.builder().customerId("customer").build();
+        SecureOrder stillFailing = SecureOrder.builder().customerId("customer").build();
+        ReflectionTestUtils.setField(listener, "running", true);
+        ReflectionTestUtils.setField(listener, "container", mock(org.springframework.data.mongodb.core.messaging.MessageListenerContainer.class));
+        when(failureRepository.findTop100ByAttemptsLessThanOrderByFailedAtAsc(5)).thenReturn(List.of(
+                new ChangeStreamFailure(recovered.getId(), "timeout", 0, Instant.now()),
+                new ChangeStreamFailure(stillFailing.getId(), "timeout", 1, Instant.now())));
+        when(mongoTemplate.findById(recovered.getId(), SecureOrder.class)).thenReturn(recovered);
+        when(mongoTemplate.findById(stillFailing.getId(), SecureOrder.class)).thenReturn(stillFailing);
+        lenient().doThrow(new IllegalStateException("risk api timeout")).when(secureOrderStatusService).processSecureOrderChange(stillFailing);
+
+        listener.redriveBatch();
+
+        verify(failureRepository).deleteById(recovered.getId());
+        ArgumentCaptor<ChangeStreamFailure> captor = ArgumentCaptor.forClass(ChangeStreamFailure.class);
+        verify(failureRepository).save(captor.capture());
+        assertEquals(stillFailing.getId(), captor.getValue().id());
+        assertEquals(2, captor.getValue().attempts());
+    }
+
+    @Test
+    void redriveBatch_whenTheStreamIsClosedMidBatch_shouldStopBeforeTheNextOrder() {
+        SecureOrder first = SecureOrder.builder().customerId("customer").build();
+        SecureOrder second = SecureOrder.builder().customerId("customer").build();
+        ReflectionTestUtils.setField(listener, "running", true);
+        ReflectionTestUtils.setField(listener, "container", mock(org.springframework.data.mongodb.core.messaging.MessageListenerContainer.class));
+        when(failureRepository.findTop100ByAttemptsLessThanOrderByFailedAtAsc(5)).thenReturn(List.of(
+                new ChangeStreamFailure(first.getId(), "timeout", 0, Instant.now()),
+                new ChangeStreamFailure(second.getId(), "timeout", 0, Instant.now())));
+        when(mongoTemplate.findById(first.getId(), SecureOrder.class)).thenReturn(first);
+        // a trava foi perdida enquanto o primeiro pedido era reprocessado
+        doAnswer(invocation -> {
+            ReflectionTestUtils.setField(listener, "container", null);
+            return null;
+        }).when(secureOrderStatusService).processSecureOrderChange(first);
+
+        listener.redriveBatch();
+
+        verify(mongoTemplate, never()).findById(second.getId(), SecureOrder.class);
+        verify(failureRepository, never()).deleteById(second.getId());
+    }
+
+    @Test
+    void redriveFailedChanges_shouldRunTheBatchOutsideTheSchedulerThread() {
+        ReflectionTestUtils.setField(listener, "running", true);
+        ReflectionTestUtils.setField(listener, "container", mock(org.springframework.data.mongodb.core.messaging.MessageListenerContainer.class));
+        Thread caller = Thread.currentThread();
+        CompletableFuture<Thread> redriveThread = new CompletableFuture<>();
+        when(failureRepository.findTop100ByAttemptsLessThanOrderByFailedAtAsc(5)).thenAnswer(invocation -> {
+            redriveThread.complete(Thread.currentThread());
+            return List.of();
+        });
+
+        listener.redriveFailedChanges();
+        listener.shutdown();
+
+        assertNotSame(caller, redriveThread.getNow(caller));
+    }
+
+    @Test
+    void maintainStream_whenAnotherInstanceHoldsTheLease_shouldNotOpenTheStream() {
+        when(leaseService.tryAcquire(SecureOrderChangeStreamListener.LEASE_NAME, Duration.ofSeconds(30))).thenReturn(false);
+
+        listener.start();
+
+        assertTrue(listener.isRunning());
+        assertNull(ReflectionTestUtils.getField(listener, "container"));
+        verifyNoInteractions(checkpointRepository);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Message<ChangeStreamDocument<Document>, SecureOrder> message(SecureOrder secureOrder, String token) {
+        Message<ChangeStreamDocument<Document>, SecureOrder> message = mock(Message.class);
+        ChangeStreamDocument<Document> raw = mock(ChangeStreamDocument.class);
+        lenient().when(message.getBody()).thenReturn(secureOrder);
+        lenient().when(message.getRaw()).thenReturn(raw);
+        lenient().when(raw.getResumeToken()).thenReturn(token(token));
+        return message;
+    }
+
+    private static BsonDocument token(String value) {
+        return new BsonDocument("_data", new BsonString(value));
+    }
+}
@@ -0,0 +1,76 @@
+package br.com.itau.secure.infraestructure.config.mongo;
+
+import br.com.itau.secure.domain.model.SecureOrder;
+import br.com.itau.secure.domain.service.status.SecureOrderStatus;
+import org.bson.Document;
+import org.bson.types.Decimal128;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompactCodecConfigTest {
+
+    private MappingMongoConverter converter;
+
+    @BeforeEach
+    void setUp() {
+        MongoCustomConversions conversions = new CompactCodecConfig().mongoCustomConversions();
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+    }
+
+    @Test
+    void write_shouldStoreMoneyAsDecimal128AndStatusAsCode() {
+        SecureOrder secureOrder = SecureOrder.builder()
+                .customerId("customer")
+                .insuredAmount(new BigDecimal("50000.00"))
+                .coverages(Map.of("Morte", new BigDecimal("25000.00")))
+                .build();
+
+        Document document = new Document();
+        converter.write(secureOrder, document);
+
+        assertEquals(new Decimal128(new BigDecimal("50000.00")), document.get("insuredAmount"));
+        assertEquals(new Decimal128(new BigDecimal("25000.00")), document.get("coverages", Document.class).get("Morte"));
+        assertEquals(SecureOrderStatus.RECEIVED.getCode(), document.get("status"));
+        Document transition = (Document) document.getList("history", Object.class).get(0);
+        assertEquals(SecureOrderStatus.RECEIVED.getCode(), transition.get("status"));
+    }
+
+    @Test
+    void read_shouldAcceptLegacyAndCompactDocuments() {
+        Date now = new Date();
+        Document legacy = new Document("_id", "legacy-id")
+                .append("customerId", "customer")
+                .append("status", "PENDING")
+                .append("insuredAmount", "1000.00")
+                .append("history", List.of(new Document("status", "PENDING").append("timestamp", now)));
+        Document compact = new Document("_id", "compact-id")
+                .append("customerId", "customer")
+                .append("status", SecureOrderStatus.APPROVED.getCode())
+                .append("insuredAmount", new Decimal128(new BigDecimal("1000.00")))
+                .append("history", List.of(new Document("status", SecureOrderStatus.APPROVED.getCode()).append("timestamp", now)));
+
+        SecureOrder legacyOrder = converter.read(SecureOrder.class, legacy);
+        SecureOrder compactOrder = converter.read(SecureOrder.class, compact);
+
+        assertEquals(SecureOrderStatus.PENDING, legacyOrder.getStatus());
+        assertEquals(new BigDecimal("1000.00"), legacyOrder.getInsuredAmount());
+        assertEquals(SecureOrderStatus.APPROVED, compactOrder.getStatus());
+        assertEquals(SecureOrderStatus.APPROVED, compactOrder.getHistory().get(0).getStatus());
+        assertEquals(new BigDecimal("1000.00"), compactOrder.getInsuredAmount());
+    }
+}
@@ -0,0 +1,91 @@
+package br.com.itau.secure.infraestructure.config.mongo;
+
+import br.com.itau.secure.domain.model.CustomerOrderStats;
+import br.com.itau.secure.domain.model.SecureOrder;
+import br.com.itau.secure.domain.service.status.SecureOrderStatus;
+import com.mongodb.WriteConcern;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoAction;
+import org.springframework.data.mongodb.core.MongoActionOperation;
+import org.springframework.mock.env.MockEnvironment;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SecureOrderWriteConcernPolicyTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private SecureOrderWriteConcernPolicy policy;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        policy = new SecureOrderWriteConcernPolicy(new MockEnvironment(), meterRegistry);
+    }
+
+    @Test
+    void defaults_shouldUseMajorityForCreateAndTerminalStatesAndJournaledForIntermediateOnes() {
+        assertEquals(SecureOrderWriteConcernPolicy.Level.MAJORITY, policy.forCreate());
+        assertEquals(SecureOrderWriteConcernPolicy.Level.JOURNALED, policy.forTransition(SecureOrderStatus.RECEIVED));
+        assertEquals(SecureOrderWriteConcernPolicy.Level.JOURNALED, policy.forTransition(SecureOrderStatus.VALIDATED));
+        assertEquals(SecureOrderWriteConcernPolicy.Level.JOURNALED, policy.forTransition(SecureOrderStatus.PENDING));
+        assertEquals(SecureOrderWriteConcernPolicy.Level.MAJORITY, policy.forTransition(SecureOrderStatus.APPROVED));
+        assertEquals(SecureOrderWriteConcernPolicy.Level.MAJORITY, policy.forTransition(SecureOrderStatus.REJECTED));
+        assertEquals(SecureOrderWriteConcernPolicy.Level.MAJORITY, policy.forTransition(SecureOrderStatus.CANCELLED));
+    }
+
+    @Test
+    void constructor_shouldReadLevelsPerStatusFromProperties() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("secure-order.write-concern.create", "journaled")
+                .withProperty("secure-order.write-concern.transitions.VALIDATED", "w1");
+
+        SecureOrderWriteConcernPolicy configured = new SecureOrderWriteConcernPolicy(environment, meterRegistry);
+
+        assertEquals(SecureOrderWriteConcernPolicy.Level.JOURNALED, configured.forCreate());
+        assertEquals(SecureOrderWriteConcernPolicy.Level.W1, configured.forTransition(SecureOrderStatus.VALIDATED));
+        assertEquals(SecureOrderWriteConcernPolicy.Level.JOURNALED, configured.forTransition(SecureOrderStatus.PENDING));
+    }
+
+    @Test
+    void resolve_shouldUseCreateLevelForInsertsAndSaves() {
+        assertEquals(WriteConcern.MAJORITY, policy.resolve(action(MongoActionOperation.INSERT, SecureOrder.class, null)));
+        assertEquals(WriteConcern.MAJORITY, policy.resolve(action(MongoActionOperation.SAVE, SecureOrder.class, null)));
+    }
+
+    @Test
+    void resolve_shouldUseLevelOfTheStatusBeingSet() {
+        assertEquals(WriteConcern.JOURNALED, policy.resolve(action(MongoActionOperation.UPDATE, SecureOrder.class,
+                new Document("$set", new Document("status", SecureOrderStatus.PENDING)))));
+        assertEquals(WriteConcern.MAJORITY, policy.resolve(action(MongoActionOperation.UPDATE, SecureOrder.class,
+                new Document("$set", new Document("status", "APPROVED")))));
+        assertEquals(WriteConcern.MAJORITY, policy.resolve(action(MongoActionOperation.UPDATE, SecureOrder.class,
+                new Document("$set", new Document("status", SecureOrderStatus.CANCELLED.getCode())))));
+    }
+
+    @Test
+    void resolve_shouldKeepClientDefaultForOtherWrites() {
+        assertNull(policy.resolve(action(MongoActionOperation.UPDATE, SecureOrder.class,
+                new Document("$set", new Document("riskClassification", "REGULAR")))));
+        assertNull(policy.resolve(action(MongoActionOperation.REMOVE, SecureOrder.class, null)));
+        assertNull(policy.resolve(action(MongoActionOperation.INSERT, CustomerOrderStats.class, null)));
+    }
+
+    @Test
+    void recordTransition_shouldTimeWriteTaggedByOperationAndLevel() {
+        String result = policy.recordTransition(SecureOrderStatus.APPROVED, () -> "written");
+        policy.recordCreate(() -> "created");
+
+        assertEquals("written", result);
+        assertEquals(1, meterRegistry.get(SecureOrderWriteConcernPolicy.WRITE_TIMER)
+                .tag("operation", "transition").tag("write_concern", "majority").timer().count());
+        assertEquals(1, meterRegistry.get(SecureOrderWriteConcernPolicy.WRITE_TIMER)
+                .tag("operation", "create").tag("write_concern", "majority").timer().count());
+    }
+
+    private static MongoAction action(MongoActionOperation operation, Class<?> entityType, Document document) {
+        return new MongoAction(null, operation, "secure_orders", entityType, document, new Document());
+    }
+}
@@ -0,0 +1,46 @@
+package br.com.itau.secure.infraestructure.rbbitmq;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.Declarables;
+import org.springframework.amqp.core.Exchange;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.TopicExchange;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PartitionedProcessingConfigTest {
+
+    private final PartitionedProcessingConfig config = new PartitionedProcessingConfig(
+            "orders.hash.e", "orders.q.", "orders.dlq", 4);
+
+    @Test
+    void queueNames_shouldNumberOneQueuePerPartition() {
+        assertArrayEquals(new String[]{"orders.q.0", "orders.q.1", "orders.q.2", "orders.q.3"}, config.queueNames());
+    }
+
+    @Test
+    void declarables_shouldHashOnOrderIdIntoSingleActiveConsumerQueues() {
+        Declarables declarables = config.partitionedProcessingDeclarables(new TopicExchange("orders.e"));
+
+        Exchange hashExchange = declarables.getDeclarablesByType(Exchange.class).getFirst();
+        assertEquals("x-consistent-hash", hashExchange.getType());
+        assertEquals(RabbitMQConfig.ORDER_ID_HEADER, hashExchange.getArguments().get("hash-header"));
+
+        List<Queue> queues = declarables.getDeclarablesByType(Queue.class);
+        assertEquals(4, queues.size());
+        for (Queue queue : queues) {
+            assertEquals(true, queue.getArguments().get("x-single-active-consumer"));
+            assertEquals("orders.dlq", queue.getArguments().get("x-dead-letter-routing-key"));
+        }
+
+        List<Binding> bindings = declarables.getDeclarablesByType(Binding.class);
+        assertTrue(bindings.stream().anyMatch(binding -> binding.getDestination().equals("orders.hash.e")
+                && binding.getExchange().equals("orders.e")
+                && binding.getRoutingKey().equals(RabbitMQConfig.ORDER_SECURE_STATUS_PROCESSING_KEY)));
+        assertEquals(4, bindings.stream().filter(binding -> binding.getExchange().equals("orders.hash.e")
+                && binding.getRoutingKey().equals("1")).count());
+    }
+}
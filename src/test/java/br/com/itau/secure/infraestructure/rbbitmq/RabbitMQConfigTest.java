@@ -0,0 +1,31 @@
+package br.com.itau.secure.infraestructure.rbbitmq;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageBuilder;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class RabbitMQConfigTest {
+
+    @Test
+    void retryMandatoryCustomizer_shouldMakeOnlyTheRetryPublishMandatory() {
+        RabbitTemplate template = new RabbitTemplate(mock(ConnectionFactory.class));
+        // com publisher-returns o Boot liga mandatory para todas as publicações
+        template.setMandatory(true);
+
+        new RabbitMQConfig().retryMandatoryCustomizer().customize(template);
+
+        Expression mandatory = (Expression) ReflectionTestUtils.getField(template, "mandatoryExpression");
+        Message retry = MessageBuilder.withBody(new byte[0]).setHeader(RabbitMQConfig.RETRY_ATTEMPT_HEADER, "1").build();
+        Message event = MessageBuilder.withBody(new byte[0]).build();
+        assertEquals(Boolean.TRUE, mandatory.getValue(new StandardEvaluationContext(), retry, Boolean.class));
+        assertEquals(Boolean.FALSE, mandatory.getValue(new StandardEvaluationContext(), event, Boolean.class));
+    }
+}
@@ -0,0 +1,152 @@
+package br.com.itau.secure.infraestructure.rbbitmq.consumer;
+
+import br.com.itau.secure.infraestructure.rbbitmq.RabbitMQConfig;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.AmqpRejectAndDontRequeueException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageBuilder;
+import org.springframework.amqp.core.MessageBuilderSupport;
+import org.springframework.amqp.core.ReturnedMessage;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.support.ListenerExecutionFailedException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DelayedRetryErrorHandlerTest {
+
+    private static final String RETRY_EXCHANGE = "order-service.retry.v1.e";
+    private static final String SOURCE_QUEUE = "order-service.process-secure-order-status.v1.q";
+
+    @Mock
+    private RabbitTemplate rabbitTemplate;
+
+    @Test
+    void handleError_shouldRepublishToTheWaitQueueOfTheNextAttemptWithJitteredBackoff() {
+        DelayedRetryErrorHandler handler = handler(true);
+        confirmRetries(true);
+
+        Object result = handler.handleError(delivery(null), null, null, failure());
+
+        assertNull(result);
+        ArgumentCaptor<Message> captor = ArgumentCaptor.forClass(Message.class);
+        verify(rabbitTemplate).send(eq(RETRY_EXCHANGE), eq(SOURCE_QUEUE), captor.capture(), any(CorrelationData.class));
+        Message retry = captor.getValue();
+        assertEquals("1", retry.getMessageProperties().getHeader(RabbitMQConfig.RETRY_ATTEMPT_HEADER));
+        assertEquals("order-id", retry.getMessageProperties().getHeader(RabbitMQConfig.ORDER_ID_HEADER));
+        long expiration = Long.parseLong(retry.getMessageProperties().getExpiration());
+        assertTrue(expiration > 8_000 && expiration <= 10_000, "expiration " + expiration);
+    }
+
+    @Test
+    void handleError_whenAttemptsAreExhausted_shouldRejectToTheDeadLetterQueue() {
+        DelayedRetryErrorHandler handler = handler(true);
+
+        assertThrows(AmqpRejectAndDontRequeueException.class,
+                () -> handler.handleError(delivery("2"), null, null, failure()));
+        verify(rabbitTemplate, never()).send(anyString(), anyString(), any(Message.class), any(CorrelationData.class));
+    }
+
+    @Test
+    void handleError_whenRetryCannotBePublished_shouldRejectInsteadOfRequeueing() {
+        DelayedRetryErrorHandler handler = handler(true);
+        doThrow(new IllegalStateException("broker down")).when(rabbitTemplate)
+                .send(anyString(), anyString(), any(Message.class), any(CorrelationData.class));
+
+        assertThrows(AmqpRejectAndDontRequeueException.class,
+                () -> handler.handleError(delivery(null), null, null, failure()));
+    }
+
+    @Test
+    void handleError_whenBrokerDoesNotConfirmTheRetry_shouldRejectInsteadOfAcking() {
+        DelayedRetryErrorHandler handler = handler(true);
+        confirmRetries(false);
+
+        assertThrows(AmqpRejectAndDontRequeueException.class,
+                () -> handler.handleError(delivery(null), null, null, failure()));
+    }
+
+    @Test
+    void handleError_whenRetryIsUnroutable_shouldRejectToTheDeadLetterQueue() {
+        DelayedRetryErrorHandler handler = handler(true);
+        // o broker devolve a mensagem mandatory sem fila de espera e ainda assim confirma a publicação
+        doAnswer(invocation -> {
+            CorrelationData correlation = invocation.getArgument(3, CorrelationData.class);
+            correlation.setReturned(new ReturnedMessage(invocation.getArgument(2, Message.class), 312, "NO_ROUTE",
+                    RETRY_EXCHANGE, SOURCE_QUEUE));
+            return correlation.getFuture().complete(new CorrelationData.Confirm(true, null));
+        }).when(rabbitTemplate).send(anyString(), anyString(), any(Message.class), any(CorrelationData.class));
+
+        assertThrows(AmqpRejectAndDontRequeueException.class,
+                () -> handler.handleError(delivery(null), null, null, failure()));
+    }
+
+    @Test
+    void handleError_whenConfirmDoesNotArriveInTime_shouldReject() {
+        DelayedRetryErrorHandler handler = handler(true);
+
+        assertThrows(AmqpRejectAndDontRequeueException.class,
+                () -> handler.handleError(delivery(null), null, null, failure()));
+        verify(rabbitTemplate).send(eq(RETRY_EXCHANGE), eq(SOURCE_QUEUE), any(Message.class), any(CorrelationData.class));
+    }
+
+    @Test
+    void handleError_whenDisabled_shouldRethrowForTheListenerRetry() {
+        DelayedRetryErrorHandler handler = handler(false);
+        ListenerExecutionFailedException failure = failure();
+
+        assertSame(failure, assertThrows(ListenerExecutionFailedException.class,
+                () -> handler.handleError(delivery(null), null, null, failure)));
+        verifyNoInteractions(rabbitTemplate);
+    }
+
+    @Test
+    void delayMillis_shouldGrowExponentiallyUpToTheMaxInterval() {
+        DelayedRetryErrorHandler handler = new DelayedRetryErrorHandler(rabbitTemplate, RETRY_EXCHANGE, true, 10,
+                Duration.ofSeconds(10), 2, Duration.ofSeconds(60), 0, Duration.ofMillis(50));
+
+        assertEquals(10_000, handler.delayMillis(1));
+        assertEquals(20_000, handler.delayMillis(2));
+        assertEquals(40_000, handler.delayMillis(3));
+        assertEquals(60_000, handler.delayMillis(4));
+    }
+
+    private DelayedRetryErrorHandler handler(boolean enabled) {
+        return new DelayedRetryErrorHandler(rabbitTemplate, RETRY_EXCHANGE, enabled, 3,
+                Duration.ofSeconds(10), 2, Duration.ofSeconds(60), 0.2, Duration.ofMillis(50));
+    }
+
+    // o mock completa o publisher confirm na hora, como o broker faria
+    private void confirmRetries(boolean ack) {
+        doAnswer(invocation -> invocation.getArgument(3, CorrelationData.class).getFuture()
+                .complete(new CorrelationData.Confirm(ack, ack ? null : "queue full")))
+                .when(rabbitTemplate).send(anyString(), anyString(), any(Message.class), any(CorrelationData.class));
+    }
+
+    private static Message delivery(String attempt) {
+        MessageBuilderSupport<Message> builder = MessageBuilder.withBody("{\"orderId\":\"order-id\"}".getBytes(StandardCharsets.UTF_8))
+                .setHeader(RabbitMQConfig.ORDER_ID_HEADER, "order-id");
+        if (attempt != null) {
+            builder.setHeader(RabbitMQConfig.RETRY_ATTEMPT_HEADER, attempt);
+        }
+        Message message = builder.build();
+        message.getMessageProperties().setConsumerQueue(SOURCE_QUEUE);
+        return message;
+    }
+
+    private static ListenerExecutionFailedException failure() {
+        return new ListenerExecutionFailedException("Listener failed", new IllegalStateException("risk api unavailable"));
+    }
+}
@@ -0,0 +1,150 @@
+package br.com.itau.secure.infraestructure.rbbitmq.outbox;
+
+import br.com.itau.secure.domain.model.OutboxMessage;
+import br.com.itau.secure.domain.repository.LeaseRepository;
+import br.com.itau.secure.domain.repository.OutboxMessageRepository;
+import br.com.itau.secure.domain.service.LeaseService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.AmqpConnectException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.data.domain.Limit;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OutboxRelayTest {
+    private static final Duration LEASE_TTL = Duration.ofSeconds(30);
+
+    @Mock
+    private OutboxMessageRepository outboxMessageRepository;
+
+    @Mock
+    private RabbitTemplate rabbitTemplate;
+
+    @Mock
+    private LeaseService leaseService;
+
+    private OutboxRelay relay() {
+        when(leaseService.tryAcquire(OutboxRelay.LEASE_NAME, LEASE_TTL)).thenReturn(true);
+        return new OutboxRelay(outboxMessageRepository, rabbitTemplate, leaseService, 2, 5, Duration.ofMillis(200), LEASE_TTL);
+    }
+
+    @Test
+    void relay_shouldPublishStoredMessageAndDeleteAfterAck() {
+        OutboxMessage message = outboxMessage("1");
+        when(outboxMessageRepository.findAllByOrderByIdAsc(Limit.of(2))).thenReturn(List.of(message));
+        confirmWith(true);
+
+        relay().relay();
+
+        ArgumentCaptor<Message> sent = ArgumentCaptor.forClass(Message.class);
+        verify(rabbitTemplate).send(eq("exchange"), eq("order.secure.status.processing"), sent.capture(), any(CorrelationData.class));
+        assertEquals("{\"orderId\":\"1\"}", new String(sent.getValue().getBody(), StandardCharsets.UTF_8));
+        assertEquals("application/json", sent.getValue().getMessageProperties().getContentType());
+        assertEquals("OrderServiceStatusData", sent.getValue().getMessageProperties().getHeader("__TypeId__"));
+        verify(outboxMessageRepository).deleteAllById(List.of("1"));
+    }
+
+    @Test
+    void relay_whenBrokerNacks_shouldKeepMessageAndStopTheRun() {
+        when(outboxMessageRepository.findAllByOrderByIdAsc(Limit.of(2)))
+                .thenReturn(List.of(outboxMessage("1"), outboxMessage("2")));
+        confirmWith(true, false);
+
+        relay().relay();
+
+        verify(outboxMessageRepository).deleteAllById(List.of("1"));
+        verify(outboxMessageRepository, times(1)).findAllByOrderByIdAsc(any());
+    }
+
+    @Test
+    void relay_whenBatchIsFull_shouldFetchNextBatch() {
+        when(outboxMessageRepository.findAllByOrderByIdAsc(Limit.of(2)))
+                .thenReturn(List.of(outboxMessage("1"), outboxMessage("2")), List.of(outboxMessage("3")));
+        confirmWith(true);
+
+        relay().relay();
+
+        verify(outboxMessageRepository).deleteAllById(List.of("1", "2"));
+        verify(outboxMessageRepository).deleteAllById(List.of("3"));
+    }
+
+    @Test
+    void relay_whenBrokerIsDown_shouldKeepMessages() {
+        when(outboxMessageRepository.findAllByOrderByIdAsc(Limit.of(2))).thenReturn(List.of(outboxMessage("1")));
+        doThrow(new AmqpConnectException(new RuntimeException("connection refused")))
+                .when(rabbitTemplate).send(anyString(), anyString(), any(Message.class), any(CorrelationData.class));
+
+        relay().relay();
+
+        verify(outboxMessageRepository, never()).deleteAllById(any());
+    }
+
+    @Test
+    void relay_whenTwoInstancesRun_shouldPublishEachMessageOnlyOnce() {
+        // duas instâncias com a mesma coleção leases
+        LeaseRepository leaseRepository = mock(LeaseRepository.class);
+        Map<String, String> leases = new HashMap<>();
+        when(leaseRepository.acquire(eq(OutboxRelay.LEASE_NAME), anyString(), eq(LEASE_TTL)))
+                .thenAnswer(invocation -> {
+                    String owner = invocation.getArgument(1);
+                    return owner.equals(leases.computeIfAbsent(OutboxRelay.LEASE_NAME, name -> owner));
+                });
+        OutboxRelay first = new OutboxRelay(outboxMessageRepository, rabbitTemplate, new LeaseService(leaseRepository),
+                2, 5, Duration.ofMillis(200), LEASE_TTL);
+        OutboxRelay second = new OutboxRelay(outboxMessageRepository, rabbitTemplate, new LeaseService(leaseRepository),
+                2, 5, Duration.ofMillis(200), LEASE_TTL);
+        when(outboxMessageRepository.findAllByOrderByIdAsc(Limit.of(2))).thenReturn(List.of(outboxMessage("1")));
+        confirmWith(true);
+
+        first.relay();
+        second.relay();
+
+        verify(rabbitTemplate, times(1)).send(anyString(), anyString(), any(Message.class), any(CorrelationData.class));
+        verify(outboxMessageRepository, times(1)).findAllByOrderByIdAsc(any());
+    }
+
+    @Test
+    void relay_withoutTheLease_shouldNotReadTheOutbox() {
+        when(leaseService.tryAcquire(OutboxRelay.LEASE_NAME, LEASE_TTL)).thenReturn(false);
+        OutboxRelay relay = new OutboxRelay(outboxMessageRepository, rabbitTemplate, leaseService, 2, 5,
+                Duration.ofMillis(200), LEASE_TTL);
+
+        relay.relay();
+
+        verifyNoInteractions(outboxMessageRepository, rabbitTemplate);
+    }
+
+    private void confirmWith(Boolean... acks) {
+        ArrayDeque<Boolean> answers = new ArrayDeque<>(List.of(acks));
+        doAnswer(invocation -> {
+            CorrelationData correlation = invocation.getArgument(3);
+            boolean ack = answers.size() > 1 ? answers.poll() : answers.peek();
+            correlation.getFuture().complete(new CorrelationData.Confirm(ack, ack ? null : "nack"));
+            return null;
+        }).when(rabbitTemplate).send(anyString(), anyString(), any(Message.class), any(CorrelationData.class));
+    }
+
+    private static OutboxMessage outboxMessage(String id) {
+        return new OutboxMessage(id, "exchange", "order.secure.status.processing", "application/json",
+                Map.of("__TypeId__", "OrderServiceStatusData"), "{\"orderId\":\"" + id + "\"}", Instant.now());
+    }
+}
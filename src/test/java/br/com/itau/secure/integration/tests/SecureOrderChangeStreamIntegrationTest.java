@@ -0,0 +1,138 @@
+package br.com.itau.secure.integration.tests;
+
+import br.com.itau.secure.domain.model.SecureOrder;
+import br.com.itau.secure.domain.repository.ChangeStreamCheckpointRepository;
+import br.com.itau.secure.domain.repository.SecureOrderRepository;
+import br.com.itau.secure.domain.service.LeaseService;
+import br.com.itau.secure.domain.service.status.SecureOrderStatus;
+import br.com.itau.secure.domain.service.status.SecureOrderStatusService;
+import br.com.itau.secure.infraestructure.changestream.SecureOrderChangeStreamListener;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+// MongoDBContainer sobe um replica set de um nó, requisito dos change streams.
+@Testcontainers
+@DataMongoTest
+@Import({SecureOrderChangeStreamListener.class, LeaseService.class})
+@TestPropertySource(properties = {
+        "secure-order.processing.mode=change-stream",
+        "secure-order.change-stream.checkpoint-interval=0s"
+})
+public class SecureOrderChangeStreamIntegrationTest {
+    @Container
+    static final MongoDBContainer mongoDBContainer = new MongoDBContainer(DockerImageName.parse("mongo:latest"))
+            .withExposedPorts(27017);
+
+    @Autowired
+    private SecureOrderChangeStreamListener changeStreamListener;
+
+    @Autowired
+    private SecureOrderRepository secureOrderRepository;
+
+    @Autowired
+    private ChangeStreamCheckpointRepository checkpointRepository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @MockitoBean
+    private SecureOrderStatusService secureOrderStatusService;
+
+    @DynamicPropertySource
+    static void setProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.data.mongodb.uri", mongoDBContainer::getReplicaSetUrl);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (!changeStreamListener.isRunning()) {
+            changeStreamListener.start();
+        }
+    }
+
+    @Test
+    void insertAndStatusChange_shouldEachTriggerProcessingWithTheStoredDocument() {
+        SecureOrder order = newOrder();
+        secureOrderRepository.save(order);
+
+        verify(secureOrderStatusService, timeout(10_000)).processSecureOrderChange(
+                argThat(changed -> changed.getId().equals(order.getId()) && changed.getStatus() == SecureOrderStatus.RECEIVED));
+
+        order.markTransitionsPersisted();
+        order.setRiskClassification("REGULAR");
+        order.setStatus(SecureOrderStatus.VALIDATED, Instant.now());
+        assertTrue(secureOrderRepository.appendTransitions(order));
+
+        verify(secureOrderStatusService, timeout(10_000)).processSecureOrderChange(
+                argThat(changed -> changed.getId().equals(order.getId()) && changed.getStatus() == SecureOrderStatus.VALIDATED
+                        && "REGULAR".equals(changed.getRiskClassification()) && changed.getHistory().size() == 2));
+    }
+
+    @Test
+    void updateWithoutStatusChange_shouldNotTriggerProcessing() {
+        SecureOrder order = newOrder();
+        secureOrderRepository.save(order);
+        verify(secureOrderStatusService, timeout(10_000)).processSecureOrderChange(
+                argThat(changed -> changed.getId().equals(order.getId())));
+
+        mongoTemplate.updateFirst(Query.query(Criteria.where("id").is(order.getId())),
+                new Update().set("salesChannel", "MOBILE"), SecureOrder.class);
+        SecureOrder marker = newOrder();
+        secureOrderRepository.save(marker);
+
+        // o evento do marcador chega depois do update: se o update gerasse evento, ele já teria sido entregue
+        verify(secureOrderStatusService, timeout(10_000)).processSecureOrderChange(
+                argThat(changed -> changed.getId().equals(marker.getId())));
+        verify(secureOrderStatusService, times(1)).processSecureOrderChange(
+                argThat(changed -> changed.getId().equals(order.getId())));
+    }
+
+    @Test
+    void restart_shouldResumeFromCheckpointAndDeliverChangesMadeWhileStopped() {
+        SecureOrder first = newOrder();
+        secureOrderRepository.save(first);
+        verify(secureOrderStatusService, timeout(10_000)).processSecureOrderChange(
+                argThat(changed -> changed.getId().equals(first.getId())));
+
+        changeStreamListener.stop();
+        assertTrue(checkpointRepository.findById("secure_orders").isPresent());
+
+        SecureOrder missed = newOrder();
+        secureOrderRepository.save(missed);
+        changeStreamListener.start();
+
+        verify(secureOrderStatusService, timeout(10_000)).processSecureOrderChange(
+                argThat(changed -> changed.getId().equals(missed.getId())));
+        verify(secureOrderStatusService, times(1)).processSecureOrderChange(
+                argThat(changed -> changed.getId().equals(first.getId())));
+    }
+
+    private static SecureOrder newOrder() {
+        return SecureOrder.builder()
+                .customerId("customer-change-stream")
+                .insuredAmount(new BigDecimal("1000.00"))
+                .build();
+    }
+}
@@ -0,0 +1,142 @@
+package br.com.itau.secure.integration.tests;
+
+import br.com.itau.secure.commom.UUIDv7Utils;
+import br.com.itau.secure.domain.model.ApprovalFunnelBucket;
+import br.com.itau.secure.domain.model.FunnelDimension;
+import br.com.itau.secure.domain.model.SecureOrder;
+import br.com.itau.secure.domain.repository.SecureOrderRepository;
+import br.com.itau.secure.domain.repository.impl.SecureOrderAnalyticsRepositoryImpl;
+import br.com.itau.secure.domain.service.status.SecureOrderStatus;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Testcontainers
+@DataMongoTest
+public class SecureOrderIndexIntegrationTest {
+    @Container
+    static final MongoDBContainer mongoDBContainer = new MongoDBContainer(DockerImageName.parse("mongo:latest"))
+            .withExposedPorts(27017);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private SecureOrderRepository secureOrderRepository;
+
+    @DynamicPropertySource
+    static void setProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.data.mongodb.uri", mongoDBContainer::getReplicaSetUrl);
+    }
+
+    @BeforeEach
+    void setUp() {
+        secureOrderRepository.deleteAll();
+        List<SecureOrder> orders = IntStream.range(0, 50)
+                .mapToObj(i -> SecureOrder.builder()
+                        .customerId("customer-" + (i % 5))
+                        .insuredAmount(new BigDecimal("1000.00"))
+                        .build())
+                .toList();
+        secureOrderRepository.saveAll(orders);
+    }
+
+    @Test
+    void findByCustomerIdOrderedById_shouldUseCustomerIdIndex() {
+        Document explain = mongoTemplate.getCollection("secure_orders")
+                .find(new Document("customerId", "customer-1"))
+                .sort(new Document("_id", -1))
+                .limit(10)
+                .explain();
+
+        assertUsesIndex(explain, "customerId_id");
+    }
+
+    @Test
+    void findByStatusAndCreatedAt_shouldUseStatusIndex() {
+        Document explain = mongoTemplate.getCollection("secure_orders")
+                .find(new Document("status", SecureOrderStatus.RECEIVED.name())
+                        .append("createdAt", new Document("$lt", Instant.now())))
+                .explain();
+
+        assertUsesIndex(explain, "status_createdAt");
+    }
+
+    @Test
+    void approvalFunnelWindow_shouldUseIdIndex() {
+        Document explain = mongoTemplate.getCollection("secure_orders")
+                .find(idWindow(Instant.now().minus(1, ChronoUnit.HOURS), Instant.now().plus(1, ChronoUnit.MINUTES)))
+                .explain();
+
+        assertUsesIndex(explain, "_id_");
+    }
+
+    @Test
+    void approvalFunnelWindowByCategory_shouldUseCategoryIndex() {
+        Document explain = mongoTemplate.getCollection("secure_orders")
+                .find(idWindow(Instant.now().minus(1, ChronoUnit.HOURS), Instant.now().plus(1, ChronoUnit.MINUTES))
+                        .append("category", "AUTO"))
+                .explain();
+
+        assertUsesIndex(explain, "category_id");
+    }
+
+    @Test
+    void approvalFunnel_shouldCountOrdersCreatedInsideTheWindow() {
+        SecureOrderAnalyticsRepositoryImpl analyticsRepository = new SecureOrderAnalyticsRepositoryImpl(mongoTemplate, Duration.ofSeconds(5));
+
+        List<ApprovalFunnelBucket> buckets = analyticsRepository.approvalFunnel(Instant.now().minus(1, ChronoUnit.HOURS),
+                Instant.now().plus(1, ChronoUnit.MINUTES), FunnelDimension.CATEGORY, null);
+        List<ApprovalFunnelBucket> future = analyticsRepository.approvalFunnel(Instant.now().plus(1, ChronoUnit.MINUTES),
+                Instant.now().plus(1, ChronoUnit.HOURS), FunnelDimension.CATEGORY, null);
+
+        assertEquals(1, buckets.size());
+        assertEquals(50, buckets.get(0).total());
+        assertEquals(0, buckets.get(0).approved());
+        assertTrue(future.isEmpty());
+    }
+
+    private static Document idWindow(Instant from, Instant to) {
+        return new Document("_id", new Document("$gte", UUIDv7Utils.lowerBoundId(from)).append("$lt", UUIDv7Utils.lowerBoundId(to)));
+    }
+
+    private static void assertUsesIndex(Document explain, String indexName) {
+        Document winningPlan = explain.get("queryPlanner", Document.class).get("winningPlan", Document.class);
+        List<Document> stages = new ArrayList<>();
+        collectStages(winningPlan, stages);
+
+        assertTrue(stages.stream().anyMatch(stage -> indexName.equals(stage.getString("indexName"))),
+                "Expected index " + indexName + " in plan " + winningPlan.toJson());
+        assertTrue(stages.stream().noneMatch(stage -> "COLLSCAN".equals(stage.getString("stage"))),
+                "Unexpected collection scan in plan " + winningPlan.toJson());
+    }
+
+    // o formato do plano varia entre versões do servidor (inputStage, inputStages, queryPlan)
+    private static void collectStages(Object node, List<Document> stages) {
+        if (node instanceof Document document) {
+            stages.add(document);
+            document.values().forEach(value -> collectStages(value, stages));
+        } else if (node instanceof List<?> list) {
+            list.forEach(value -> collectStages(value, stages));
+        }
+    }
+}